@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal;
+
+import org.abego.commons.seq.Seq;
+import org.abego.guitesting.swing.ComponentBaseSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import java.awt.Component;
+import java.util.concurrent.TimeUnit;
+
+import static org.abego.commons.seq.SeqUtil.emptySeq;
+import static org.abego.commons.seq.SeqUtil.newSeq;
+
+/**
+ * Benchmarks {@link ComponentSupportImpl#allComponentsWith(Class, Seq, java.util.function.Predicate)}
+ * on synthetic component trees (see {@link ComponentTrees}).
+ *
+ * <p>The benchmark uses no windows and runs in headless mode.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComponentLookupBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int componentCount;
+
+    private ComponentBaseSupport componentSupport;
+    private Seq<Component> roots;
+    private String lastComponentName;
+
+    @Setup
+    public void setup() {
+        JPanel root = new JPanel();
+        ComponentTrees.addComponentTree(root, componentCount);
+        roots = newSeq(root);
+        lastComponentName = "c" + (componentCount - 1); //NON-NLS
+        componentSupport = ComponentSupportImpl.newComponentSupport(() -> emptySeq());
+    }
+
+    /**
+     * Looks up a component by name, the most common lookup in tests.
+     */
+    @Benchmark
+    public Seq<JLabel> componentWithName() {
+        return componentSupport.allComponentsWith(
+                JLabel.class, roots, c -> lastComponentName.equals(c.getName()));
+    }
+
+    @Benchmark
+    public Seq<Component> allComponents() {
+        return componentSupport.allComponentsWith(
+                Component.class, roots, c -> true);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import java.awt.Container;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Creates synthetic component trees for benchmarks.
+ */
+final class ComponentTrees {
+    /**
+     * The number of children of every container in the trees.
+     */
+    private static final int CHILDREN_PER_CONTAINER = 10;
+
+    private ComponentTrees() {
+    }
+
+    /**
+     * Adds {@code componentCount} components to {@code root}, as a tree of
+     * {@link JPanel}s with {@link JLabel}s as leaves.
+     *
+     * <p>The components are named "c0", "c1", ... in breadth-first order,
+     * i.e. "c{componentCount-1}" is the last component added and a
+     * {@link JLabel}.</p>
+     */
+    static void addComponentTree(Container root, int componentCount) {
+        // The leaves are labels, all other components are panels. Every
+        // panel has CHILDREN_PER_CONTAINER children (the last one maybe less).
+        int panelCount = (componentCount - 1) / CHILDREN_PER_CONTAINER;
+        Queue<Container> parents = new ArrayDeque<>();
+        parents.add(root);
+        int childCount = 0;
+        for (int i = 0; i < componentCount; i++) {
+            Container parent = parents.element();
+            Container c = i < panelCount ? new JPanel() : new JLabel("Label " + i); //NON-NLS
+            c.setName("c" + i); //NON-NLS
+            parent.add(c);
+            if (c instanceof JPanel) {
+                parents.add(c);
+            }
+            childCount++;
+            if (childCount == CHILDREN_PER_CONTAINER) {
+                parents.remove();
+                childCount = 0;
+            }
+        }
+    }
+}
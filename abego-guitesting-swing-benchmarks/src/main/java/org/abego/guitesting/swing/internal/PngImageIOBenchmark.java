@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal;
+
+import org.abego.guitesting.swing.internal.screencapture.ImageCompareBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks writing and reading PNG files, as done for snapshots and
+ * snapshot issue reports
+ * (see {@link GuiTestingUtil#writeImage(java.awt.image.RenderedImage, File)}
+ * and {@link GuiTestingUtil#readImage(File)}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PngImageIOBenchmark {
+
+    @Param({"1280x720", "1920x1080", "3840x2160"})
+    public String resolution;
+
+    private File directory;
+    private BufferedImage image;
+    private File writtenFile;
+    private File readFile;
+
+    @Setup
+    public void setup() throws IOException {
+        String[] widthAndHeight = resolution.split("x"); //NON-NLS
+        image = ImageCompareBenchmark.newImage(
+                Integer.parseInt(widthAndHeight[0]),
+                Integer.parseInt(widthAndHeight[1]), 1, 2);
+
+        directory = Files.createTempDirectory("png-benchmark").toFile(); //NON-NLS
+        writtenFile = new File(directory, "written.png"); //NON-NLS
+        readFile = new File(directory, "read.png"); //NON-NLS
+        GuiTestingUtil.writeImage(image, readFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        writtenFile.delete();
+        //noinspection ResultOfMethodCallIgnored
+        readFile.delete();
+        //noinspection ResultOfMethodCallIgnored
+        directory.delete();
+    }
+
+    @Benchmark
+    public long writeImage() {
+        GuiTestingUtil.writeImage(image, writtenFile);
+        return writtenFile.length();
+    }
+
+    @Benchmark
+    public BufferedImage readImage() {
+        return GuiTestingUtil.readImage(readFile);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link ImageCompare#differenceMask(java.awt.Image, java.awt.Image)}
+ * for screen captures of different resolutions and tolerances.
+ *
+ * <p>The images are "screen like" (see
+ * {@link ImageCompareBenchmark#newImage(int, int, long, int)}), with some
+ * colors slightly changed (within a tolerance of 10%) and a few rectangles
+ * painted differently, as if a label text changed.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DifferenceMaskBenchmark {
+
+    @Param({"1280x720", "1920x1080", "3840x2160"})
+    public String resolution;
+
+    @Param({"0", "10"})
+    public int tolerancePercentage;
+
+    private ImageCompare imageCompare;
+    private BufferedImage imageA;
+    private BufferedImage imageB;
+
+    @Setup
+    public void setup() {
+        String[] widthAndHeight = resolution.split("x"); //NON-NLS
+        int width = Integer.parseInt(widthAndHeight[0]);
+        int height = Integer.parseInt(widthAndHeight[1]);
+
+        imageA = ImageCompareBenchmark.newImage(width, height, 1, 0);
+        imageB = ImageCompareBenchmark.newImage(width, height, 1, 2);
+        Graphics2D g = imageB.createGraphics();
+        try {
+            g.setColor(Color.RED);
+            for (int i = 1; i <= 4; i++) {
+                g.fillRect(i * width / 5, i * height / 5, width / 20, height / 40);
+            }
+        } finally {
+            g.dispose();
+        }
+
+        imageCompare = ImageCompare.newImageCompare(new ImageCompare.Options() {
+            @Override
+            public int getTolerancePercentage() {
+                return tolerancePercentage;
+            }
+        });
+    }
+
+    @Benchmark
+    public BufferedImage differenceMask() {
+        return imageCompare.differenceMask(imageA, imageB);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the pixel comparison of {@link ImageCompare} on 4K screen
+ * captures (3840 x 2160, {@link BufferedImage#TYPE_INT_RGB}).
+ *
+ * <p>The images are equal, or "nearly equal", i.e. only differ within the
+ * tolerance, so every pixel is compared.</p>
+ *
+ * <p>{@link #referenceKernel()} is the per-pixel computation ImageCompare
+ * used before (computing the difference percentage of every different
+ * pixel), as a baseline for {@link #imagesAreDifferent()}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageCompareBenchmark {
+    private static final int WIDTH = 3840;
+    private static final int HEIGHT = 2160;
+
+    @Param({"0", "10"})
+    public int tolerancePercentage;
+
+    @Param({"equal", "nearlyEqual"})
+    public String images;
+
+    @Param({"true", "false"})
+    public boolean parallel;
+
+    private ImageCompare imageCompare;
+    private ImagePixels pixelsA;
+    private ImagePixels pixelsB;
+
+    @Setup
+    public void setup() {
+        BufferedImage imageA = newImage(WIDTH, HEIGHT, 1, 0);
+        BufferedImage imageB = newImage(WIDTH, HEIGHT, 1, images.equals("nearlyEqual") ? 2 : 0); //NON-NLS
+        pixelsA = ImagePixels.of(imageA);
+        pixelsB = ImagePixels.of(imageB);
+        int threshold = parallel
+                ? ImageCompare.PARALLELISM_THRESHOLD_DEFAULT : Integer.MAX_VALUE;
+        imageCompare = ImageCompare.newImageCompare(new ImageCompare.Options() {
+            @Override
+            public int getTolerancePercentage() {
+                return tolerancePercentage;
+            }
+
+            @Override
+            public int getParallelismThreshold() {
+                return threshold;
+            }
+        });
+    }
+
+    /**
+     * Returns a new image with a "screen like" content, i.e. larger areas of
+     * the same color, with random noise of up to {@code maxNoise} per color
+     * channel.
+     */
+    public static BufferedImage newImage(int width, int height, long seed, int maxNoise) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int base = ((x / 64) * 0x0F0A05 + (y / 32) * 0x05070B) & 0xF0F0F0;
+                int noise = maxNoise > 0
+                        ? random.nextInt(maxNoise + 1) * 0x010101 : 0;
+                image.setRGB(x, y, base + noise);
+            }
+        }
+        return image;
+    }
+
+    @Benchmark
+    public boolean imagesAreDifferent() {
+        return imageCompare.imagesAreDifferent(pixelsA, pixelsB);
+    }
+
+    @Benchmark
+    public long differences() {
+        return imageCompare.differences(pixelsA, pixelsB).getDifferentPixelsCount();
+    }
+
+    @Benchmark
+    public boolean referenceKernel() {
+        int[] dataA = pixelsA.getData();
+        int[] dataB = pixelsB.getData();
+        for (int y = 0; y < HEIGHT; y++) {
+            int offsetA = pixelsA.getRowOffset(y);
+            int offsetB = pixelsB.getRowOffset(y);
+            for (int x = 0; x < WIDTH; x++) {
+                int pixelA = dataA[offsetA + x];
+                int pixelB = dataB[offsetB + x];
+                if (pixelA != pixelB
+                        && referenceDifferenceInPercent(pixelA, pixelB) > tolerancePercentage) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int referenceDifferenceInPercent(int pixelA, int pixelB) {
+        int redDiff = ((pixelA >> 16) & 0xff) - ((pixelB >> 16) & 0xff);
+        int greenDiff = ((pixelA >> 8) & 0xff) - ((pixelB >> 8) & 0xff);
+        int blueDiff = ((pixelA) & 0xff) - ((pixelB) & 0xff);
+
+        if (redDiff < 0) redDiff = -redDiff;
+        if (greenDiff < 0) greenDiff = -greenDiff;
+        if (blueDiff < 0) blueDiff = -blueDiff;
+
+        int totalDiff = redDiff + greenDiff + blueDiff;
+        return totalDiff == 0 ? 0 : 1 + totalDiff * 99 / 765;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.guitesting.swing;
+
+import org.abego.guitesting.swing.internal.screencapture.ScreenshotCompareReportWriter;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ExtensionContext.Store.CloseableResource;
+
+/**
+ * An JUnit 5 {@link org.junit.jupiter.api.extension.Extension} to wait for
+ * the screenshot compare reports (of failed snapshot tests) to be written
+ * completely at the end of the test run.
+ *
+ * <p>The reports are written in the background. Without this extension the
+ * remaining reports are written when the JVM exits.</p>
+ */
+public class FlushScreenshotReports implements BeforeAllCallback {
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(FlushScreenshotReports.class);
+
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        // Resources in the store of the root context are closed at the end
+        // of the test run.
+        context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(
+                FlushScreenshotReports.class,
+                key -> (CloseableResource) () ->
+                        ScreenshotCompareReportWriter.getDefault().flush(),
+                CloseableResource.class);
+    }
+}
@@ -115,6 +115,7 @@ public interface GT extends
         KeyboardSupport,
         MouseSupport,
         PollingService,
+        PollingSupport,
         RobotAPI,
         ScreenCaptureSupport,
         TimeoutService,
@@ -147,7 +148,9 @@ public interface GT extends
     default <T extends Window> T waitForWindowWith(Class<T> windowClass, Predicate<T> condition) {
         Seq<T> windows = poll(
                 () -> allWindowsWith(windowClass, condition),
-                w -> !w.isEmpty());
+                w -> !w.isEmpty(),
+                timeout(),
+                PollingStrategy.UI_EVENTS);
         return windows.singleItem();
     }
 
@@ -186,7 +189,9 @@ public interface GT extends
                                                          Predicate<T> condition) {
         Seq<T> seq = poll(
                 () -> allComponentsWith(componentClass, condition),
-                a -> !a.isEmpty());
+                a -> !a.isEmpty(),
+                timeout(),
+                PollingStrategy.UI_EVENTS);
         return seq.singleItem();
     }
 
@@ -60,8 +60,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
  * <p>
  * After each test {@link GT#cleanup()} is performed, e.g. to all remaining
  * windows are closes/disposed.
+ * <p>
+ * At the end of the test run it waits until all screenshot compare reports
+ * are written (see {@link FlushScreenshotReports}).
  */
 @ExtendWith(DumpComponentsOnFailure.class)
+@ExtendWith(FlushScreenshotReports.class)
 public class GuiTestBase {
     protected final GT gt = GuiTesting.newGT();
 
@@ -55,6 +55,10 @@ public class GuiTesting {
      * (see {@link GraphicsEnvironment#isHeadless()}) methods of the returned GT
      * will fail with a {@link HeadlessGuiTestingException} when the operation
      * dependents on the existance of a display, keyboard, or mouse.
+     * <p>
+     * Screenshots of components (and thus snapshot tests) also work in a
+     * headless environment. The components are painted offscreen (see
+     * {@link ScreenCaptureSupport.CaptureMode#PAINT}).
      *
      * @return a new instance of {@link GT}
      */
@@ -0,0 +1,207 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing;
+
+import org.abego.commons.timeout.Timeoutable;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Polling with different {@link PollingStrategy}s, and statistics about
+ * the polling.
+ *
+ * <p>The {@link PollingStrategy} defines how long to wait between two
+ * evaluations of the polled function. The {@code poll...} methods without
+ * a {@link PollingStrategy} parameter use the
+ * {@link #getPollingStrategy() pollingStrategy} property.</p>
+ */
+public interface PollingSupport {
+
+    /**
+     * Returns the first value of {@code functionToPoll} that matches
+     * {@code isResult}, polling with the {@code pollingStrategy}.
+     *
+     * <p>
+     * <em>(This operation may timeout.)</em>
+     *
+     * @param functionToPoll  the function to poll
+     * @param isResult        the predicate a value must match to be the result
+     * @param timeout         the maximal time to poll
+     * @param pollingStrategy the way to poll
+     * @param <T>             the type of the values
+     * @return the first value of {@code functionToPoll} that matches
+     * {@code isResult}
+     */
+    @Timeoutable
+    <T> T poll(Supplier<T> functionToPoll,
+               Predicate<T> isResult,
+               Duration timeout,
+               PollingStrategy pollingStrategy);
+
+    /**
+     * Returns the first value of {@code functionToPoll} that matches
+     * {@code isResult}, polling with the {@code pollingStrategy}, or the
+     * last value of {@code functionToPoll} when the {@code timeout}
+     * occurred.
+     *
+     * <p>
+     * <em>(This operation does not fail on timeout.)</em>
+     *
+     * @param functionToPoll  the function to poll
+     * @param isResult        the predicate a value must match to be the result
+     * @param timeout         the maximal time to poll
+     * @param pollingStrategy the way to poll
+     * @param <T>             the type of the values
+     * @return the first value of {@code functionToPoll} that matches
+     * {@code isResult}, or the last value on timeout
+     */
+    <T> T pollNoFail(Supplier<T> functionToPoll,
+                     Predicate<T> isResult,
+                     Duration timeout,
+                     PollingStrategy pollingStrategy);
+
+    /**
+     * Returns the {@link PollingStrategy} used when no strategy is
+     * specified explicitly.
+     *
+     * <p>Default: {@link PollingStrategy#FIXED}</p>
+     *
+     * @return the {@link PollingStrategy} used when no strategy is
+     * specified explicitly
+     */
+    PollingStrategy getPollingStrategy();
+
+    /**
+     * Sets the {@code pollingStrategy} property to the {@code value}.
+     *
+     * <p>See {@link #getPollingStrategy()}.</p>
+     *
+     * @param value the new value of the {@code pollingStrategy} property
+     */
+    void setPollingStrategy(PollingStrategy value);
+
+    /**
+     * Returns the statistics of the polls using the
+     * {@code pollingStrategy}.
+     *
+     * @param pollingStrategy the strategy to return the statistics for
+     * @return the statistics of the polls using the {@code pollingStrategy}
+     */
+    PollingStatistics getPollingStatistics(PollingStrategy pollingStrategy);
+
+    /**
+     * Resets the statistics of all polling strategies.
+     */
+    void resetPollingStatistics();
+
+    /**
+     * The way to wait between two evaluations of a polled function.
+     */
+    enum PollingStrategy {
+        /**
+         * Wait the same time between two evaluations (as defined by
+         * {@link org.abego.commons.polling.PollingService}).
+         */
+        FIXED,
+        /**
+         * Start with a very short wait and double the waiting time after
+         * every evaluation, up to a maximum ("exponential backoff").
+         *
+         * <p>Fast for conditions becoming true very soon, without being
+         * busy for conditions taking longer.</p>
+         */
+        BACKOFF,
+        /**
+         * First evaluate without sleeping for a short time (only yielding
+         * the thread), then wait a fixed time between two evaluations.
+         */
+        SPIN_THEN_SLEEP,
+        /**
+         * Evaluate again when UI events (e.g. a window was opened, a
+         * component was added or the focus changed) were dispatched, and
+         * at the latest after a short fallback interval.
+         *
+         * <p>Used when waiting for a condition on the UI state, e.g. in
+         * {@code waitUntil} or {@code waitForComponentWith}.</p>
+         */
+        UI_EVENTS
+    }
+
+    /**
+     * Statistics about the polls using a {@link PollingStrategy}, like the
+     * number of iterations (evaluations of the polled function) the polls
+     * needed.
+     */
+    interface PollingStatistics {
+        /**
+         * Returns the number of polls.
+         *
+         * @return the number of polls
+         */
+        long getPollsCount();
+
+        /**
+         * Returns the number of polls that timed out.
+         *
+         * @return the number of polls that timed out
+         */
+        long getTimeoutsCount();
+
+        /**
+         * Returns the total number of iterations of all polls.
+         *
+         * @return the total number of iterations of all polls
+         */
+        long getIterationsCount();
+
+        /**
+         * Returns the maximal number of iterations of a poll.
+         *
+         * @return the maximal number of iterations of a poll
+         */
+        long getMaxIterationsCount();
+
+        /**
+         * Returns the total time spent polling.
+         *
+         * @return the total time spent polling
+         */
+        Duration getPollingTime();
+
+        /**
+         * Returns the histogram of the number of iterations of the polls.
+         *
+         * <p>The value at index {@code i} is the number of polls that
+         * needed {@code 2^i} to {@code 2^(i+1)-1} iterations, e.g. index 0:
+         * 1 iteration, index 1: 2 or 3 iterations, index 2: 4 to 7
+         * iterations, ...</p>
+         *
+         * @return the histogram of the number of iterations of the polls
+         */
+        long[] getIterationsHistogram();
+    }
+}
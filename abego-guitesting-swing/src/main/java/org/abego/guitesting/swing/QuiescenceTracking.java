@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing;
+
+import org.abego.commons.lang.exception.MustNotInstantiateException;
+import org.abego.guitesting.swing.internal.QuiescenceTracker;
+
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+/**
+ * Hooks to make activities of the UI known to
+ * {@link WaitSupport#waitForQuiescence()}.
+ *
+ * <p>Swing provides no way to find the running {@link Timer}s and
+ * {@link SwingWorker}s. To have {@link WaitSupport#waitForQuiescence()}
+ * wait for them the application code must start them through these hooks,
+ * e.g. use {@code QuiescenceTracking.execute(worker)} instead of
+ * {@code worker.execute()}.</p>
+ *
+ * <p>Tracking has no effect on the behaviour of the timers and workers,
+ * so the hooks can also be used in production code.</p>
+ */
+public final class QuiescenceTracking {
+
+    QuiescenceTracking() {
+        throw new MustNotInstantiateException();
+    }
+
+    /**
+     * Tracks the {@code timer}, i.e. {@link WaitSupport#waitForQuiescence()}
+     * waits while the {@code timer} is running.
+     *
+     * <p>Notice a repeating timer keeps running until it is stopped.</p>
+     *
+     * @param timer the timer to track
+     */
+    public static void track(Timer timer) {
+        QuiescenceTracker.getDefault().track(timer);
+    }
+
+    /**
+     * Tracks the {@code timer} (see {@link #track(Timer)}) and starts it.
+     *
+     * @param timer the timer to track and start
+     */
+    public static void start(Timer timer) {
+        track(timer);
+        timer.start();
+    }
+
+    /**
+     * Executes the {@code worker}, with
+     * {@link WaitSupport#waitForQuiescence()} waiting until the
+     * {@code worker} is done (including its {@link SwingWorker#done()}
+     * method).
+     *
+     * <p>A worker already done is not tracked.</p>
+     *
+     * @param worker the worker to execute
+     */
+    public static void execute(SwingWorker<?, ?> worker) {
+        QuiescenceTracker.getDefault().trackBeforeExecute(worker);
+        worker.execute();
+    }
+}
@@ -39,6 +39,9 @@ import java.awt.image.RenderedImage;
 import java.io.File;
 import java.net.URL;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Support for screen captures/screenshots of the screen or {@link Component}s.
@@ -87,6 +90,85 @@ public interface ScreenCaptureSupport extends TimeoutSupplier {
      */
     void setUseInnerJFrameBounds(boolean value);
 
+    /**
+     * The way screenshots of {@link Component}s are captured.
+     */
+    enum CaptureMode {
+        /**
+         * Captures the pixels of the component on the screen, using a
+         * {@link java.awt.Robot}.
+         *
+         * <p>Also captures other windows overlapping the component
+         * and requires the component to be visible on the screen.</p>
+         */
+        ROBOT,
+        /**
+         * Paints the component (and its children) into an offscreen image,
+         * in the Event Dispatch Thread.
+         *
+         * <p>Faster than {@link #ROBOT} and not affected by other windows
+         * or the window manager. However things not painted by the component
+         * itself, like window decorations or (heavyweight) popups, are not
+         * included in the screenshot.</p>
+         */
+        PAINT
+    }
+
+    /**
+     * Returns the {@link CaptureMode} used for screenshots of components,
+     * when no capture mode is explicitly specified.
+     *
+     * <p>The capture mode is also used by the "waitUntilScreenshotMatches..."
+     * methods.</p>
+     *
+     * <p>Default: {@link CaptureMode#ROBOT}</p>
+     *
+     * @return the {@link CaptureMode} used for screenshots of components
+     */
+    CaptureMode getCaptureMode();
+
+    /**
+     * Sets the {@code captureMode} property to the {@code mode}.
+     *
+     * <p>See {@link #getCaptureMode()}.</p>
+     *
+     * @param mode the new value of the {@code captureMode} property
+     */
+    void setCaptureMode(CaptureMode mode);
+
+    /**
+     * Returns {@code true} when the "waitUntilScreenshotMatches..." methods
+     * only capture a new screenshot after the component was repainted,
+     * {@code false} when they capture screenshots at regular intervals
+     * ("polling").
+     *
+     * <p>When recapturing on repaint only the repainted area of the
+     * component is captured again. This avoids needless captures while the
+     * component does not change and detects changes faster.</p>
+     *
+     * <p>Repaints are only tracked for Swing components showing on the
+     * screen and when the default {@link javax.swing.RepaintManager} is
+     * used. In other cases screenshots are captured at regular intervals,
+     * as when this property is {@code false}. Also, when no repaint is
+     * detected for a while a new screenshot is captured, to handle changes
+     * not painted via the {@link javax.swing.RepaintManager}.</p>
+     *
+     * <p>Default: {@code false}</p>
+     *
+     * @return {@code true} when screenshots are only captured after the
+     * component was repainted, {@code false} otherwise
+     */
+    boolean getRecaptureOnRepaint();
+
+    /**
+     * Sets the {@code recaptureOnRepaint} property to the {@code value}.
+     *
+     * <p>See {@link #getRecaptureOnRepaint()}.</p>
+     *
+     * @param value the new value of the {@code recaptureOnRepaint} property
+     */
+    void setRecaptureOnRepaint(boolean value);
+
     /**
      * Returns an image/screenshot of the rectangle of the screen.
      *
@@ -101,6 +183,9 @@ public interface ScreenCaptureSupport extends TimeoutSupplier {
      * {@code rectangle} of the {@code component}, if {@code rectangle}
      * is not {@code null}.
      *
+     * <p>The screenshot is captured as defined by the {@code captureMode}
+     * property (see {@link #getCaptureMode()}).</p>
+     *
      * @param component the {@link Component} to take a screenshot of or,
      *                  {@code null} when taking a screenshot of the full
      *                  screen.
@@ -113,6 +198,28 @@ public interface ScreenCaptureSupport extends TimeoutSupplier {
     BufferedImage captureScreen(@Nullable Component component,
                                 @Nullable Rectangle rectangle);
 
+    /**
+     * Returns an image/screenshot of the {@code component}, or of the
+     * {@code rectangle} of the {@code component}, if {@code rectangle}
+     * is not {@code null}, captured as defined by the {@code captureMode}.
+     *
+     * <p>When {@code component} is {@code null} the screen is captured, using
+     * {@link CaptureMode#ROBOT}.</p>
+     *
+     * @param component   the {@link Component} to take a screenshot of or,
+     *                    {@code null} when taking a screenshot of the full
+     *                    screen.
+     * @param rectangle   the area of the component to take a screenshot of
+     *                    (in coordinates relative to the component), or
+     *                    {@code null} when a screenshot of the full component
+     *                    should be returned.
+     * @param captureMode the way the screenshot is captured
+     * @return an image of the {@code component} or a part of it
+     */
+    BufferedImage captureScreen(@Nullable Component component,
+                                @Nullable Rectangle rectangle,
+                                CaptureMode captureMode);
+
     /**
      * Returns an image/screenshot of the {@code component}.
      *
@@ -151,6 +258,52 @@ public interface ScreenCaptureSupport extends TimeoutSupplier {
 
     void setImageDifferenceIgnoredCornerSize(int value);
 
+    /**
+     * Returns the rectangles of pixels ignored when comparing images,
+     * in image coordinates.
+     *
+     * <p>Use this e.g. for parts of a screenshot that change all the time,
+     * like clocks or spinners.</p>
+     *
+     * @return the rectangles of pixels ignored when comparing images
+     */
+    Seq<Rectangle> getImageDifferenceIgnoredRectangles();
+
+    /**
+     * Sets the {@code imageDifferenceIgnoredRectangles} property to
+     * {@code rectangles}.
+     *
+     * <p>See {@link #getImageDifferenceIgnoredRectangles()}</p>
+     *
+     * @param rectangles the rectangles of pixels to ignore when comparing
+     *                   images, in image coordinates
+     */
+    void setImageDifferenceIgnoredRectangles(Rectangle... rectangles);
+
+    /**
+     * Returns the number of pixels an image comparison must at least cover
+     * to compare the images in parallel, i.e. using multiple threads.
+     *
+     * <p>Comparing images in parallel is faster for large images,
+     * e.g. full screen captures, while smaller images are compared faster
+     * sequentially. The result of the comparison does not depend on this
+     * value.</p>
+     *
+     * @return the number of pixels an image comparison must at least cover
+     * to compare the images in parallel
+     */
+    int getImageDifferenceParallelismThreshold();
+
+    /**
+     * Sets the {@code imageDifferenceParallelismThreshold} property to {@code value}.
+     *
+     * <p>See {@link #getImageDifferenceParallelismThreshold()}</p>
+     *
+     * @param value the value to set the {@code imageDifferenceParallelismThreshold}
+     *              property to, in pixels
+     */
+    void setImageDifferenceParallelismThreshold(int value);
+
     /**
      * Returns the difference between {@code imageA} and {@code imageB} as an
      * {@link ImageDifference} object.
@@ -254,6 +407,24 @@ public interface ScreenCaptureSupport extends TimeoutSupplier {
     /**
      * Returns the value of the {@code delayBeforeNewSnapshot} property.
      *
+     * <p>Before the first image of a new snapshot is captured the UI is
+     * given at most this time to become quiescent (see
+     * {@link WaitSupport#waitForQuiescence()}). A UI not becoming quiescent
+     * in time, e.g. because of a blinking caret tracked by
+     * {@link QuiescenceTracking}, is captured anyway.</p>
+     *
+     * <p>Afterwards the delay is waited for, giving activities not tracked
+     * by {@link QuiescenceTracking} time to finish.</p>
+     *
+     * <p>When the {@code newSnapshotStableCaptureCount} property is not 0
+     * (see {@link #getNewSnapshotStableCaptureCount()}) this is the maximal
+     * time to wait for a stable image, not a fixed delay. With
+     * {@link Duration#ZERO} only the images of one "stable capture window"
+     * are captured (as many as {@code newSnapshotStableCaptureCount}) and
+     * the last one is used, even when the images differ.</p>
+     *
+     * <p>Default: 1 second</p>
+     *
      * @return the value of the {@code delayBeforeNewSnapshot} property
      * @see #waitUntilScreenshotMatchesSnapshot(Component, Rectangle, String)
      */
@@ -267,6 +438,147 @@ public interface ScreenCaptureSupport extends TimeoutSupplier {
      */
     void setDelayBeforeNewSnapshot(Duration duration);
 
+    /**
+     * Returns the number of consecutive identical captures required before
+     * the first image of a new snapshot is written, or 0 when the first
+     * image is captured after the fixed delay
+     * {@link #getDelayBeforeNewSnapshot()}.
+     *
+     * <p>When not 0 the area of the new snapshot is captured repeatedly,
+     * until the given number of consecutive captures are identical, i.e.
+     * the UI renders "stable". The last capture is then written as the
+     * first image of the snapshot. A static UI typically is stable after
+     * some milliseconds, much sooner than after the fixed delay.</p>
+     *
+     * <p>When the captures are not stable within
+     * {@link #getDelayBeforeNewSnapshot()} the last capture is written.</p>
+     *
+     * <p>Default: 3</p>
+     *
+     * @return the number of consecutive identical captures required before
+     * the first image of a new snapshot is written, or 0
+     * @see #waitUntilScreenshotMatchesSnapshot(Component, Rectangle, String)
+     */
+    int getNewSnapshotStableCaptureCount();
+
+    /**
+     * Sets the {@code newSnapshotStableCaptureCount} property to the
+     * {@code value}.
+     *
+     * <p>See {@link #getNewSnapshotStableCaptureCount()}</p>
+     *
+     * @param value the value to set the {@code newSnapshotStableCaptureCount}
+     *              property to, or 0 to use the fixed delay
+     *              {@link #getDelayBeforeNewSnapshot()}
+     */
+    void setNewSnapshotStableCaptureCount(int value);
+
+    /**
+     * The way images are encoded when written to PNG files.
+     */
+    enum PngEncoding {
+        /**
+         * The PNG encoding of {@link javax.imageio.ImageIO}.
+         */
+        DEFAULT,
+        /**
+         * Encodes fast, creating larger files (low compression). Large
+         * images are compressed in parallel.
+         */
+        FAST,
+        /**
+         * Creates small files, taking more time (best compression). Large
+         * images are compressed in parallel.
+         */
+        COMPACT
+    }
+
+    /**
+     * Statistics about the PNG files written with a {@link PngEncoding},
+     * like the time spent encoding the images.
+     */
+    interface PngEncodingStatistics {
+        /**
+         * Returns the number of images written.
+         *
+         * @return the number of images written
+         */
+        long getImagesCount();
+
+        /**
+         * Returns the total time spent writing the images.
+         *
+         * @return the total time spent writing the images
+         */
+        Duration getEncodingTime();
+
+        /**
+         * Returns the total size (in bytes) of the files written.
+         *
+         * @return the total size (in bytes) of the files written
+         */
+        long getOutputSize();
+    }
+
+    /**
+     * Returns the {@link PngEncoding} used when writing new snapshot images
+     * to the test resources directory.
+     *
+     * <p>Default: {@link PngEncoding#COMPACT}</p>
+     *
+     * @return the {@link PngEncoding} used for new snapshot images
+     * @see #waitUntilScreenshotMatchesSnapshot(Component, Rectangle, String)
+     */
+    PngEncoding getSnapshotImagesEncoding();
+
+    /**
+     * Sets the {@link PngEncoding} used when writing new snapshot images.
+     *
+     * <p>See {@link #getSnapshotImagesEncoding()}.</p>
+     *
+     * @param encoding the {@link PngEncoding} used for new snapshot images
+     */
+    void setSnapshotImagesEncoding(PngEncoding encoding);
+
+    /**
+     * Returns the {@link PngEncoding} used when writing the images of the
+     * report of a failed snapshot test.
+     *
+     * <p>Default: {@link PngEncoding#FAST}</p>
+     *
+     * @return the {@link PngEncoding} used for report images
+     * @see #getSnapshotReportDirectory()
+     */
+    PngEncoding getReportImagesEncoding();
+
+    /**
+     * Sets the {@link PngEncoding} used when writing the images of the
+     * report of a failed snapshot test.
+     *
+     * <p>See {@link #getReportImagesEncoding()}.</p>
+     *
+     * @param encoding the {@link PngEncoding} used for report images
+     */
+    void setReportImagesEncoding(PngEncoding encoding);
+
+    /**
+     * Returns the statistics of the PNG files written with the
+     * {@code encoding}.
+     *
+     * <p>The statistics cover the snapshot and report images written with
+     * the {@code encoding} in this process, not only the images of this
+     * object.</p>
+     *
+     * @param encoding the encoding to return the statistics for
+     * @return the statistics of the PNG files written with the
+     * {@code encoding}
+     */
+    PngEncodingStatistics getPngEncodingStatistics(PngEncoding encoding);
+
+    /**
+     * Resets the statistics of all PNG encodings.
+     */
+    void resetPngEncodingStatistics();
 
     /**
      * Returns the test resources directory
@@ -398,7 +710,9 @@ public interface ScreenCaptureSupport extends TimeoutSupplier {
      * the property {@code generateSnapshotIfMissing}
      * (see {@link #getGenerateSnapshotIfMissing()}):</p>
      * <ul>
-     *     <li>{@code generateSnapshotIfMissing == true}: after a delay of {@link #getDelayBeforeNewSnapshot()}
+     *     <li>{@code generateSnapshotIfMissing == true}: after waiting for
+     *     quiescence (see {@link WaitSupport#waitForQuiescence()}) and until
+     *     the captures are stable (see {@link #getNewSnapshotStableCaptureCount()})
      *     a screenshot of the given area is stored as the first image of this
      *     snapshot and the method returns normally.</li>
      *     <li>{@code generateSnapshotIfMissing == false}: the method throws
@@ -427,6 +741,103 @@ public interface ScreenCaptureSupport extends TimeoutSupplier {
             String snapshotName)
             throws GuiTestingException;
 
+    /**
+     * Waits until the screenshot of the {@code component}, or of the
+     * {@code rectangle} of the {@code component}, if {@code rectangle} is not {@code null},
+     * matches one of the images defined for the snapshot with the given
+     * {@code snapshotName}, ignoring the areas of the (showing) child
+     * components matching {@code ignoredComponents}, and returns the image.
+     *
+     * <p>Use this e.g. for child components that change all the time,
+     * like clocks or progress bars. The areas of these components are not
+     * compared at all. The areas are determined for every screenshot, i.e.
+     * they follow the components when they move or change their size.</p>
+     *
+     * <p>Otherwise the method behaves like
+     * {@link #waitUntilScreenshotMatchesSnapshot(Component, Rectangle, String)}.</p>
+     *
+     * @param component         the {@link Component} to compare with the images of
+     *                          the snapshot
+     * @param rectangle         the area of the component (in coordinates relative
+     *                          to the component) to compare with the images of the
+     *                          snapshot.
+     *                          When {@code null} the full component is compared.
+     * @param snapshotName      a Java identifier to identify the snapshot. The
+     *                          snapshotName must be unique within the method calling
+     *                          this method.
+     * @param ignoredComponents returns {@code true} for the child components of
+     *                          {@code component} whose areas are ignored
+     * @return the screenshot image
+     */
+    @Timeoutable
+    BufferedImage waitUntilScreenshotMatchesSnapshot(
+            Component component,
+            @Nullable Rectangle rectangle,
+            String snapshotName,
+            Predicate<Component> ignoredComponents)
+            throws GuiTestingException;
+
+    /**
+     * Waits until the screenshot of the {@code component}, or of the
+     * {@code rectangle} of the {@code component}, if {@code rectangle} is not {@code null},
+     * matches one of the images defined for the snapshot with the given
+     * {@code snapshotName}, ignoring the areas of the {@code ignoredComponents},
+     * and returns the image.
+     *
+     * <p>See {@link #waitUntilScreenshotMatchesSnapshot(Component, Rectangle, String, Predicate)}</p>
+     *
+     * @param component         the {@link Component} to compare with the images of
+     *                          the snapshot
+     * @param rectangle         the area of the component (in coordinates relative
+     *                          to the component) to compare with the images of the
+     *                          snapshot.
+     *                          When {@code null} the full component is compared.
+     * @param snapshotName      a Java identifier to identify the snapshot. The
+     *                          snapshotName must be unique within the method calling
+     *                          this method.
+     * @param ignoredComponents the child components of {@code component}
+     *                          whose areas are ignored
+     * @return the screenshot image
+     */
+    @Timeoutable
+    default BufferedImage waitUntilScreenshotMatchesSnapshot(
+            Component component,
+            @Nullable Rectangle rectangle,
+            String snapshotName,
+            Component... ignoredComponents)
+            throws GuiTestingException {
+        List<Component> ignored = Arrays.asList(ignoredComponents);
+        return waitUntilScreenshotMatchesSnapshot(
+                component, rectangle, snapshotName, ignored::contains);
+    }
+
+    /**
+     * Waits until the screenshot of the {@code component}
+     * matches one of the images defined for the snapshot with the given
+     * {@code snapshotName}, ignoring the areas of the {@code ignoredComponents},
+     * and returns the image.
+     *
+     * <p>See {@link #waitUntilScreenshotMatchesSnapshot(Component, Rectangle, String, Predicate)}</p>
+     *
+     * @param component         the {@link Component} to compare with the images of
+     *                          the snapshot
+     * @param snapshotName      a Java identifier to identify the snapshot. The
+     *                          snapshotName must be unique within the method calling
+     *                          this method.
+     * @param ignoredComponents the child components of {@code component}
+     *                          whose areas are ignored
+     * @return the screenshot image
+     */
+    @Timeoutable
+    default BufferedImage waitUntilScreenshotMatchesSnapshot(
+            Component component,
+            String snapshotName,
+            Component... ignoredComponents)
+            throws GuiTestingException {
+        return waitUntilScreenshotMatchesSnapshot(
+                component, null, snapshotName, ignoredComponents);
+    }
+
     /**
      * Waits until the screenshot of the {@code component}, or of the
      * {@code rectangle} of the {@code component}, if {@code rectangle} is not {@code null},
@@ -439,7 +850,9 @@ public interface ScreenCaptureSupport extends TimeoutSupplier {
      * the property {@code generateSnapshotIfMissing}
      * (see {@link #getGenerateSnapshotIfMissing()}):</p>
      * <ul>
-     *     <li>{@code generateSnapshotIfMissing == true}: after a delay of {@link #getDelayBeforeNewSnapshot()}
+     *     <li>{@code generateSnapshotIfMissing == true}: after waiting for
+     *     quiescence (see {@link WaitSupport#waitForQuiescence()}) and until
+     *     the captures are stable (see {@link #getNewSnapshotStableCaptureCount()})
      *     a screenshot of the given area is stored as the first image of this
      *     snapshot and the method returns normally.</li>
      *     <li>{@code generateSnapshotIfMissing == false}: the method throws
@@ -477,7 +890,9 @@ public interface ScreenCaptureSupport extends TimeoutSupplier {
      * the property {@code generateSnapshotIfMissing}
      * (see {@link #getGenerateSnapshotIfMissing()}):</p>
      * <ul>
-     *     <li>{@code generateSnapshotIfMissing == true}: after a delay of {@link #getDelayBeforeNewSnapshot()}
+     *     <li>{@code generateSnapshotIfMissing == true}: after waiting for
+     *     quiescence (see {@link WaitSupport#waitForQuiescence()}) and until
+     *     the captures are stable (see {@link #getNewSnapshotStableCaptureCount()})
      *     a screenshot of the {@code component} is stored as the first image
      *     of this snapshot and the method returns normally.</li>
      *     <li>{@code generateSnapshotIfMissing == false}: the method throws
@@ -512,7 +927,9 @@ public interface ScreenCaptureSupport extends TimeoutSupplier {
      * the property {@code generateSnapshotIfMissing}
      * (see {@link #getGenerateSnapshotIfMissing()}):</p>
      * <ul>
-     *     <li>{@code generateSnapshotIfMissing == true}: after a delay of {@link #getDelayBeforeNewSnapshot()}
+     *     <li>{@code generateSnapshotIfMissing == true}: after waiting for
+     *     quiescence (see {@link WaitSupport#waitForQuiescence()}) and until
+     *     the captures are stable (see {@link #getNewSnapshotStableCaptureCount()})
      *     a screenshot of the {@code component} is stored as the first image
      *     of this snapshot and the method returns normally.</li>
      *     <li>{@code generateSnapshotIfMissing == false}: the method throws
@@ -588,9 +1005,13 @@ public interface ScreenCaptureSupport extends TimeoutSupplier {
     void makeScreenshotMatchingTolerant();
 
     /**
-     * Resets  "ImageDifferenceIgnoredBorderSize",
-     * "ImageDifferenceIgnoredCornerSize" and "ImageDifferenceTolerancePercentage"
-     * to its default values.
+     * Resets  "CaptureMode", "RecaptureOnRepaint",
+     * "ImageDifferenceIgnoredBorderSize", "ImageDifferenceIgnoredCornerSize",
+     * "ImageDifferenceIgnoredRectangles",
+     * "ImageDifferenceTolerancePercentage",
+     * "ImageDifferenceParallelismThreshold",
+     * "NewSnapshotStableCaptureCount", "SnapshotImagesEncoding" and
+     * "ReportImagesEncoding" to its default values.
      * <p>
      * See also {@link #makeScreenshotMatchingTolerant()}
      */
@@ -636,6 +1057,46 @@ interface ImageDifference {
      * with {@link Color#black} pixels on a (transparent) white canvas
      */
     BufferedImage getDifferenceMask();
+
+    /**
+     * Returns the number of different pixels, i.e. of the pixels marked
+     * in the difference mask.
+     *
+     * @return the number of different pixels
+     */
+    long getDifferentPixelsCount();
+
+    /**
+     * Returns the percentage of different pixels of all pixels of the
+     * compared area (i.e. of the larger width and height of both images).
+     *
+     * @return the percentage of different pixels
+     */
+    double getDifferentPixelsPercentage();
+
+    /**
+     * Returns the maximal difference between two compared pixels, in percent.
+     *
+     * <p>This also includes differences within the tolerance
+     * (see {@link ScreenCaptureSupport#getImageDifferenceTolerancePercentage()}),
+     * i.e. of pixels not considered different. Pixels only existing in one
+     * image have a difference of 100%. Ignored pixels are not
+     * included.</p>
+     *
+     * @return the maximal difference between two compared pixels, in percent
+     */
+    int getMaxPixelDifferencePercentage();
+
+    /**
+     * Returns the bounding rectangles of the regions of different pixels.
+     *
+     * <p>Different pixels that are adjacent (also diagonally) belong to the
+     * same region. Intersecting bounding rectangles are merged, i.e. the
+     * rectangles don't overlap.</p>
+     *
+     * @return the bounding rectangles of the regions of different pixels
+     */
+    Seq<Rectangle> getDifferenceRectangles();
 }
 
 interface SnapshotIssue {
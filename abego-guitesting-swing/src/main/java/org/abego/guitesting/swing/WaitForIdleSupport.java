@@ -33,4 +33,37 @@ public interface WaitForIdleSupport {
      */
     void waitForIdle();
 
+    /**
+     * Returns {@code true} when {@link #waitForIdle()} takes the "fast
+     * path" when the application is already idle, {@code false} otherwise.
+     *
+     * <p>Default: {@code false}</p>
+     *
+     * @return {@code true} when {@link #waitForIdle()} takes the "fast path"
+     * when the application is already idle, {@code false} otherwise
+     * @see #setWaitForIdleFastPath(boolean)
+     */
+    boolean getWaitForIdleFastPath();
+
+    /**
+     * Sets whether {@link #waitForIdle()} takes the "fast path" when the
+     * application is already idle, i.e. when the event queue is empty and
+     * the event dispatch thread is waiting for the next event.
+     *
+     * <p>{@link #waitForIdle()} always waits for the platform's event
+     * queue, i.e. for native events (e.g. of a mouse or keyboard action
+     * that just happened) to be posted to the event queue. On the fast path
+     * it then returns without posting an own event and waiting for the
+     * event dispatch thread to process it.</p>
+     *
+     * <p>To verify the event dispatch thread waits for the next event
+     * {@link #waitForIdle()} inspects the thread's stack. Only enable the
+     * fast path when this is cheaper than a round trip through the event
+     * queue, e.g. when {@link #waitForIdle()} is mostly called when the
+     * application is already idle.</p>
+     *
+     * @param value {@code true} to take the fast path when already idle
+     */
+    void setWaitForIdleFastPath(boolean value);
+
 }
@@ -50,6 +50,26 @@ public interface WaitSupport extends TimeoutSupplier, WaitUntilFunction {
         waitUntil(() -> !condition.getAsBoolean());
     }
 
+    /**
+     * Waits until the UI is "quiescent", i.e. until no tracked activity is
+     * pending and all events posted to the event queue are processed.
+     *
+     * <p>Tracked activities are the {@link javax.swing.Timer}s and
+     * {@link javax.swing.SwingWorker}s started through the hooks of
+     * {@link QuiescenceTracking}. Pending repaint requests are processed via
+     * the event queue and thus also covered.</p>
+     *
+     * <p>Use this method instead of waiting for some fixed time
+     * ({@link #waitFor(Duration)}) until the UI "settled", e.g. after an
+     * action started an animation or a background computation.</p>
+     *
+     * <p>Must not be called in the Event Dispatch Thread.</p>
+     * <p>
+     * <em>(This operation may timeout.)</em>
+     */
+    @Timeoutable
+    void waitForQuiescence();
+
     /**
      * Waits for the given {@code duration}.
      * <p>
@@ -25,7 +25,6 @@
 package org.abego.guitesting.swing.internal;
 
 import org.abego.commons.blackboard.Blackboard;
-import org.abego.commons.polling.PollingService;
 import org.abego.commons.seq.Seq;
 import org.abego.commons.test.AssertRetryingService;
 import org.abego.commons.timeout.Timeout;
@@ -34,6 +33,7 @@ import org.abego.guitesting.swing.ComponentBaseSupport;
 import org.abego.guitesting.swing.DialogAndFrameSupport;
 import org.abego.guitesting.swing.EDTSupport;
 import org.abego.guitesting.swing.GT;
+import org.abego.guitesting.swing.PollingSupport;
 import org.abego.guitesting.swing.WaitSupport;
 import org.abego.guitesting.swing.WindowBaseSupport;
 import org.eclipse.jdt.annotation.Nullable;
@@ -55,6 +55,7 @@ import static org.abego.commons.test.AssertRetrying.newAssertRetryingService;
 import static org.abego.guitesting.swing.internal.ComponentSupportImpl.newComponentSupport;
 import static org.abego.guitesting.swing.internal.DialogAndFrameSupportImpl.newDialogAndFrameSupport;
 import static org.abego.guitesting.swing.internal.EDTSupportImpl.newEDTSupport;
+import static org.abego.guitesting.swing.internal.PollingSupportImpl.newPollingSupport;
 import static org.abego.guitesting.swing.internal.WaitSupportImpl.newWaitSupport;
 import static org.abego.guitesting.swing.internal.WindowSupportImpl.newWindowSupport;
 
@@ -66,18 +67,18 @@ abstract class GTHeadlessImpl implements GT {
     private final AssertRetryingService assertRetryingService;
     private final DialogAndFrameSupport dialogAndFrameSupport;
     private final EDTSupport edtSupport;
-    private final PollingService pollingService;
+    private final PollingSupport pollingSupport;
     private final WindowBaseSupport windowSupport;
     private final ComponentBaseSupport componentSupport;
 
     protected GTHeadlessImpl() {
         this.blackboard = newBlackboardDefault();
         this.timeoutService = Timeout.newTimeoutService();
-        this.waitSupport = newWaitSupport(timeoutService);
+        this.pollingSupport = newPollingSupport(newPollingService(timeoutService));
+        this.waitSupport = newWaitSupport(timeoutService, pollingSupport);
         this.assertRetryingService = newAssertRetryingService(timeoutService);
         this.dialogAndFrameSupport = newDialogAndFrameSupport();
         this.edtSupport = newEDTSupport();
-        this.pollingService = newPollingService(timeoutService);
         this.windowSupport = newWindowSupport();
         this.componentSupport = newComponentSupport(windowSupport::allWindows);
     }
@@ -151,12 +152,42 @@ abstract class GTHeadlessImpl implements GT {
 
     @Override
     public <T> T poll(Supplier<T> functionToPoll, Predicate<T> isResult, Duration timeout) {
-        return pollingService.poll(functionToPoll, isResult, timeout);
+        return pollingSupport.poll(functionToPoll, isResult, timeout, getPollingStrategy());
     }
 
     @Override
     public <T> T pollNoFail(Supplier<T> functionToPoll, Predicate<T> isResult, Duration timeout) {
-        return pollingService.pollNoFail(functionToPoll, isResult, timeout);
+        return pollingSupport.pollNoFail(functionToPoll, isResult, timeout, getPollingStrategy());
+    }
+
+    @Override
+    public <T> T poll(Supplier<T> functionToPoll, Predicate<T> isResult, Duration timeout, PollingStrategy pollingStrategy) {
+        return pollingSupport.poll(functionToPoll, isResult, timeout, pollingStrategy);
+    }
+
+    @Override
+    public <T> T pollNoFail(Supplier<T> functionToPoll, Predicate<T> isResult, Duration timeout, PollingStrategy pollingStrategy) {
+        return pollingSupport.pollNoFail(functionToPoll, isResult, timeout, pollingStrategy);
+    }
+
+    @Override
+    public PollingStrategy getPollingStrategy() {
+        return pollingSupport.getPollingStrategy();
+    }
+
+    @Override
+    public void setPollingStrategy(PollingStrategy value) {
+        pollingSupport.setPollingStrategy(value);
+    }
+
+    @Override
+    public PollingStatistics getPollingStatistics(PollingStrategy pollingStrategy) {
+        return pollingSupport.getPollingStatistics(pollingStrategy);
+    }
+
+    @Override
+    public void resetPollingStatistics() {
+        pollingSupport.resetPollingStatistics();
     }
 
     // ======================================================================
@@ -232,6 +263,11 @@ abstract class GTHeadlessImpl implements GT {
     // Wait Support
     // ======================================================================
 
+    @Override
+    public void waitForQuiescence() {
+        waitSupport.waitForQuiescence();
+    }
+
     @Override
     public void waitFor(Duration duration) {
         waitSupport.waitFor(duration);
@@ -58,6 +58,7 @@ import java.net.URL;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import static java.util.Objects.requireNonNull;
@@ -86,7 +87,7 @@ public final class GTImpl extends GTHeadlessImpl implements GT {
         this.robot = robot;
         this.waitForIdleSupport = newWaitForIdleSupport(robot);
         this.keyboardSupport = newKeyboardSupport(robot, waitForIdleSupport);
-        this.mouseSupport = newMouseSupport(robot, waitForIdleSupport);
+        this.mouseSupport = newMouseSupport(robot, waitForIdleSupport, this);
         this.windowSupport = newWindowSupport();
         this.componentSupport = newComponentSupport(windowSupport::allWindows);
         this.focusSupport = newFocusSupport(this, this, keyboardSupport);
@@ -276,6 +277,26 @@ public final class GTImpl extends GTHeadlessImpl implements GT {
         screenCaptureSupport.setUseInnerJFrameBounds(value);
     }
 
+    @Override
+    public CaptureMode getCaptureMode() {
+        return screenCaptureSupport.getCaptureMode();
+    }
+
+    @Override
+    public void setCaptureMode(CaptureMode mode) {
+        screenCaptureSupport.setCaptureMode(mode);
+    }
+
+    @Override
+    public boolean getRecaptureOnRepaint() {
+        return screenCaptureSupport.getRecaptureOnRepaint();
+    }
+
+    @Override
+    public void setRecaptureOnRepaint(boolean value) {
+        screenCaptureSupport.setRecaptureOnRepaint(value);
+    }
+
     @Override
     public BufferedImage captureScreen(@Nullable Rectangle screenRect) {
         return screenCaptureSupport.captureScreen(screenRect);
@@ -286,6 +307,11 @@ public final class GTImpl extends GTHeadlessImpl implements GT {
         return screenCaptureSupport.captureScreen(component, rectangle);
     }
 
+    @Override
+    public BufferedImage captureScreen(@Nullable Component component, @Nullable Rectangle rectangle, CaptureMode captureMode) {
+        return screenCaptureSupport.captureScreen(component, rectangle, captureMode);
+    }
+
     @Override
     public BufferedImage captureScreen(@Nullable Component component) {
         return screenCaptureSupport.captureScreen(component);
@@ -322,6 +348,26 @@ public final class GTImpl extends GTHeadlessImpl implements GT {
 
     }
 
+    @Override
+    public Seq<Rectangle> getImageDifferenceIgnoredRectangles() {
+        return screenCaptureSupport.getImageDifferenceIgnoredRectangles();
+    }
+
+    @Override
+    public void setImageDifferenceIgnoredRectangles(Rectangle... rectangles) {
+        screenCaptureSupport.setImageDifferenceIgnoredRectangles(rectangles);
+    }
+
+    @Override
+    public int getImageDifferenceParallelismThreshold() {
+        return screenCaptureSupport.getImageDifferenceParallelismThreshold();
+    }
+
+    @Override
+    public void setImageDifferenceParallelismThreshold(int value) {
+        screenCaptureSupport.setImageDifferenceParallelismThreshold(value);
+    }
+
     @Override
     public ImageDifference imageDifference(BufferedImage imageA, BufferedImage imageB) {
         return screenCaptureSupport.imageDifference(imageA, imageB);
@@ -362,6 +408,46 @@ public final class GTImpl extends GTHeadlessImpl implements GT {
         screenCaptureSupport.setDelayBeforeNewSnapshot(duration);
     }
 
+    @Override
+    public int getNewSnapshotStableCaptureCount() {
+        return screenCaptureSupport.getNewSnapshotStableCaptureCount();
+    }
+
+    @Override
+    public void setNewSnapshotStableCaptureCount(int value) {
+        screenCaptureSupport.setNewSnapshotStableCaptureCount(value);
+    }
+
+    @Override
+    public PngEncoding getSnapshotImagesEncoding() {
+        return screenCaptureSupport.getSnapshotImagesEncoding();
+    }
+
+    @Override
+    public void setSnapshotImagesEncoding(PngEncoding encoding) {
+        screenCaptureSupport.setSnapshotImagesEncoding(encoding);
+    }
+
+    @Override
+    public PngEncoding getReportImagesEncoding() {
+        return screenCaptureSupport.getReportImagesEncoding();
+    }
+
+    @Override
+    public void setReportImagesEncoding(PngEncoding encoding) {
+        screenCaptureSupport.setReportImagesEncoding(encoding);
+    }
+
+    @Override
+    public PngEncodingStatistics getPngEncodingStatistics(PngEncoding encoding) {
+        return screenCaptureSupport.getPngEncodingStatistics(encoding);
+    }
+
+    @Override
+    public void resetPngEncodingStatistics() {
+        screenCaptureSupport.resetPngEncodingStatistics();
+    }
+
     @Override
     public File getTestResourcesDirectory() {
         return screenCaptureSupport.getTestResourcesDirectory();
@@ -392,6 +478,11 @@ public final class GTImpl extends GTHeadlessImpl implements GT {
         return screenCaptureSupport.waitUntilScreenshotMatchesSnapshot(component, rectangle, snapshotName);
     }
 
+    @Override
+    public BufferedImage waitUntilScreenshotMatchesSnapshot(Component component, @Nullable Rectangle rectangle, String snapshotName, Predicate<Component> ignoredComponents) throws GuiTestingException {
+        return screenCaptureSupport.waitUntilScreenshotMatchesSnapshot(component, rectangle, snapshotName, ignoredComponents);
+    }
+
     @Override
     public BufferedImage waitUntilScreenshotMatchesSnapshot(Component component, String snapshotName) throws GuiTestingException {
         return screenCaptureSupport.waitUntilScreenshotMatchesSnapshot(component, snapshotName);
@@ -570,6 +661,16 @@ public final class GTImpl extends GTHeadlessImpl implements GT {
         waitForIdleSupport.waitForIdle();
     }
 
+    @Override
+    public boolean getWaitForIdleFastPath() {
+        return waitForIdleSupport.getWaitForIdleFastPath();
+    }
+
+    @Override
+    public void setWaitForIdleFastPath(boolean value) {
+        waitForIdleSupport.setWaitForIdleFastPath(value);
+    }
+
 
     // ======================================================================
     // WindowSupport
@@ -29,6 +29,7 @@ import org.abego.guitesting.swing.GT;
 import org.abego.guitesting.swing.GuiTestingException;
 import org.abego.guitesting.swing.SnapshotReviewService;
 import org.abego.guitesting.swing.HeadlessGuiTestingException;
+import org.abego.guitesting.swing.ScreenCaptureSupport;
 import org.eclipse.jdt.annotation.Nullable;
 
 import javax.swing.JMenu;
@@ -44,14 +45,24 @@ import java.io.File;
 import java.io.PrintStream;
 import java.net.URL;
 import java.time.Duration;
+import java.util.function.Predicate;
+
+import static org.abego.guitesting.swing.internal.screencapture.ScreenCaptureSupportImpl.newScreenCaptureSupportNoRobot;
 
 /**
  * An implementation of GT that throws {@link HeadlessGuiTestingException}
  * for operations that require a display, mouse or keyboard,
  * i.e. that don't work in a headless environment.
+ *
+ * <p>Screenshots of components are created by painting the components
+ * offscreen (see {@link CaptureMode#PAINT}), so snapshot tests also
+ * work in a headless environment.</p>
  */
 public class GTNoRobotImpl extends GTHeadlessImpl implements GT {
+    private final ScreenCaptureSupport screenCaptureSupport;
+
     private GTNoRobotImpl() {
+        this.screenCaptureSupport = newScreenCaptureSupportNoRobot(this, this);
     }
 
     public static GT newGTNoRobot() {
@@ -225,182 +236,277 @@ public class GTNoRobotImpl extends GTHeadlessImpl implements GT {
 
     @Override
     public String getSnapshotNameDefault() {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.getSnapshotNameDefault();
     }
 
     @Override
     public boolean getUseInnerJFrameBounds() {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.getUseInnerJFrameBounds();
     }
 
     @Override
     public void setUseInnerJFrameBounds(boolean value) {
-        throw new HeadlessGuiTestingException();
+        screenCaptureSupport.setUseInnerJFrameBounds(value);
+    }
+
+    @Override
+    public CaptureMode getCaptureMode() {
+        return screenCaptureSupport.getCaptureMode();
+    }
+
+    @Override
+    public void setCaptureMode(CaptureMode mode) {
+        screenCaptureSupport.setCaptureMode(mode);
+    }
+
+    @Override
+    public boolean getRecaptureOnRepaint() {
+        return screenCaptureSupport.getRecaptureOnRepaint();
+    }
+
+    @Override
+    public void setRecaptureOnRepaint(boolean value) {
+        screenCaptureSupport.setRecaptureOnRepaint(value);
     }
 
     @Override
     public BufferedImage captureScreen(@Nullable Rectangle screenRect) {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.captureScreen(screenRect);
     }
 
     @Override
     public BufferedImage captureScreen(@Nullable Component component, @Nullable Rectangle rectangle) {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.captureScreen(component, rectangle);
+    }
+
+    @Override
+    public BufferedImage captureScreen(@Nullable Component component, @Nullable Rectangle rectangle, CaptureMode captureMode) {
+        return screenCaptureSupport.captureScreen(component, rectangle, captureMode);
     }
 
     @Override
     public BufferedImage captureScreen(@Nullable Component component) {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.captureScreen(component);
     }
 
     @Override
     public int getImageDifferenceTolerancePercentage() {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.getImageDifferenceTolerancePercentage();
     }
 
     @Override
     public void setImageDifferenceTolerancePercentage(int value) {
-        throw new HeadlessGuiTestingException();
+        screenCaptureSupport.setImageDifferenceTolerancePercentage(value);
     }
 
     @Override
     public int getImageDifferenceIgnoredBorderSize() {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.getImageDifferenceIgnoredBorderSize();
     }
 
     @Override
     public void setImageDifferenceIgnoredBorderSize(int value) {
-        throw new HeadlessGuiTestingException();
+        screenCaptureSupport.setImageDifferenceIgnoredBorderSize(value);
     }
 
     @Override
     public int getImageDifferenceIgnoredCornerSize() {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.getImageDifferenceIgnoredCornerSize();
     }
 
     @Override
     public void setImageDifferenceIgnoredCornerSize(int value) {
-        throw new HeadlessGuiTestingException();
+        screenCaptureSupport.setImageDifferenceIgnoredCornerSize(value);
+    }
+
+    @Override
+    public Seq<Rectangle> getImageDifferenceIgnoredRectangles() {
+        return screenCaptureSupport.getImageDifferenceIgnoredRectangles();
+    }
+
+    @Override
+    public void setImageDifferenceIgnoredRectangles(Rectangle... rectangles) {
+        screenCaptureSupport.setImageDifferenceIgnoredRectangles(rectangles);
+    }
+
+    @Override
+    public int getImageDifferenceParallelismThreshold() {
+        return screenCaptureSupport.getImageDifferenceParallelismThreshold();
+    }
+
+    @Override
+    public void setImageDifferenceParallelismThreshold(int value) {
+        screenCaptureSupport.setImageDifferenceParallelismThreshold(value);
     }
 
     @Override
     public ImageDifference imageDifference(BufferedImage imageA, BufferedImage imageB) {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.imageDifference(imageA, imageB);
     }
 
     @Override
     public BufferedImage imageDifferenceMask(BufferedImage imageA, BufferedImage imageB) {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.imageDifferenceMask(imageA, imageB);
     }
 
     @Override
     public void writeImage(RenderedImage image, File file) {
-        throw new HeadlessGuiTestingException();
+        screenCaptureSupport.writeImage(image, file);
     }
 
     @Override
     public BufferedImage readImage(File file) {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.readImage(file);
     }
 
     @Override
     public BufferedImage readImage(URL url) {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.readImage(url);
     }
 
     @Override
     public BufferedImage waitUntilScreenshotMatchesImage(Component component, @Nullable Rectangle rectangle, BufferedImage... expectedImages) {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.waitUntilScreenshotMatchesImage(component, rectangle, expectedImages);
     }
 
     @Override
     public BufferedImage waitUntilScreenshotMatchesImage(Component component, BufferedImage... expectedImages) {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.waitUntilScreenshotMatchesImage(component, expectedImages);
     }
 
     @Override
     public boolean getGenerateSnapshotIfMissing() {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.getGenerateSnapshotIfMissing();
     }
 
     @Override
     public void setGenerateSnapshotIfMissing(boolean value) {
-        throw new HeadlessGuiTestingException();
+        screenCaptureSupport.setGenerateSnapshotIfMissing(value);
     }
 
     @Override
     public Duration getDelayBeforeNewSnapshot() {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.getDelayBeforeNewSnapshot();
     }
 
     @Override
     public void setDelayBeforeNewSnapshot(Duration duration) {
-        throw new HeadlessGuiTestingException();
+        screenCaptureSupport.setDelayBeforeNewSnapshot(duration);
+    }
+
+    @Override
+    public int getNewSnapshotStableCaptureCount() {
+        return screenCaptureSupport.getNewSnapshotStableCaptureCount();
+    }
+
+    @Override
+    public void setNewSnapshotStableCaptureCount(int value) {
+        screenCaptureSupport.setNewSnapshotStableCaptureCount(value);
+    }
+
+    @Override
+    public PngEncoding getSnapshotImagesEncoding() {
+        return screenCaptureSupport.getSnapshotImagesEncoding();
+    }
+
+    @Override
+    public void setSnapshotImagesEncoding(PngEncoding encoding) {
+        screenCaptureSupport.setSnapshotImagesEncoding(encoding);
+    }
+
+    @Override
+    public PngEncoding getReportImagesEncoding() {
+        return screenCaptureSupport.getReportImagesEncoding();
+    }
+
+    @Override
+    public void setReportImagesEncoding(PngEncoding encoding) {
+        screenCaptureSupport.setReportImagesEncoding(encoding);
+    }
+
+    @Override
+    public PngEncodingStatistics getPngEncodingStatistics(PngEncoding encoding) {
+        return screenCaptureSupport.getPngEncodingStatistics(encoding);
+    }
+
+    @Override
+    public void resetPngEncodingStatistics() {
+        screenCaptureSupport.resetPngEncodingStatistics();
     }
 
     @Override
     public File getTestResourcesDirectory() {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.getTestResourcesDirectory();
     }
 
     @Override
     public void setTestResourcesDirectory(File directory) {
-        throw new HeadlessGuiTestingException();
+        screenCaptureSupport.setTestResourcesDirectory(directory);
     }
 
     @Override
     public File[] getTestResourcesDirectoryCandidatesDefault() {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.getTestResourcesDirectoryCandidatesDefault();
     }
 
     @Override
     public void adjustTestResourcesDirectory(@Nullable File directory, File[] directoryCandidates) {
-        throw new HeadlessGuiTestingException();
+        screenCaptureSupport.adjustTestResourcesDirectory(directory, directoryCandidates);
     }
 
     @Override
     public String getSnapshotName(@Nullable String name) {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.getSnapshotName(name);
     }
 
     @Override
     public BufferedImage[] getImagesOfSnapshot(String name) {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.getImagesOfSnapshot(name);
     }
 
     @Override
     public BufferedImage waitUntilScreenshotMatchesSnapshot(Component component, @Nullable Rectangle rectangle, String snapshotName) throws GuiTestingException {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.waitUntilScreenshotMatchesSnapshot(component, rectangle, snapshotName);
+    }
+
+    @Override
+    public BufferedImage waitUntilScreenshotMatchesSnapshot(Component component, @Nullable Rectangle rectangle, String snapshotName, Predicate<Component> ignoredComponents) throws GuiTestingException {
+        return screenCaptureSupport.waitUntilScreenshotMatchesSnapshot(component, rectangle, snapshotName, ignoredComponents);
+    }
+
+    @Override
+    public Seq<SnapshotIssue> getSnapshotIssues() {
+        return screenCaptureSupport.getSnapshotIssues();
     }
 
     @Override
     public File getSnapshotReportDirectory() {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.getSnapshotReportDirectory();
     }
 
     @Override
     public void setSnapshotReportDirectory(File directory) {
-        throw new HeadlessGuiTestingException();
+        screenCaptureSupport.setSnapshotReportDirectory(directory);
     }
 
     @Override
     public File[] getSnapshotReportDirectoryCandidatesDefault() {
-        throw new HeadlessGuiTestingException();
+        return screenCaptureSupport.getSnapshotReportDirectoryCandidatesDefault();
     }
 
     @Override
     public void adjustSnapshotReportDirectory(@Nullable File directory, File[] directoryCandidates) {
-        throw new HeadlessGuiTestingException();
+        screenCaptureSupport.adjustSnapshotReportDirectory(directory, directoryCandidates);
     }
 
     @Override
     public void makeScreenshotMatchingTolerant() {
-        throw new HeadlessGuiTestingException();
+        screenCaptureSupport.makeScreenshotMatchingTolerant();
     }
 
     @Override
     public void resetScreenCaptureSupport() {
-        throw new HeadlessGuiTestingException();
+        screenCaptureSupport.resetScreenCaptureSupport();
     }
 
     @Override
@@ -408,6 +514,16 @@ public class GTNoRobotImpl extends GTHeadlessImpl implements GT {
         throw new HeadlessGuiTestingException();
     }
 
+    @Override
+    public boolean getWaitForIdleFastPath() {
+        throw new HeadlessGuiTestingException();
+    }
+
+    @Override
+    public void setWaitForIdleFastPath(boolean value) {
+        throw new HeadlessGuiTestingException();
+    }
+
     @Override
     public <T extends Window> Seq<T> allWindowsIncludingInvisibleOnes(Class<T> windowClass) {
         throw new HeadlessGuiTestingException();
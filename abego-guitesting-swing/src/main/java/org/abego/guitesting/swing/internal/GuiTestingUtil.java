@@ -24,6 +24,7 @@
 
 package org.abego.guitesting.swing.internal;
 
+import org.abego.commons.io.FileUtil;
 import org.abego.commons.lang.exception.MustNotInstantiateException;
 import org.abego.guitesting.swing.GuiTestingException;
 import org.eclipse.jdt.annotation.Nullable;
@@ -42,7 +43,9 @@ import java.awt.Image;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.util.function.Predicate;
@@ -60,6 +63,28 @@ public final class GuiTestingUtil {
         return String.format("Error when reading image from %s", source); //NON-NLS
     }
 
+    public static void writeImage(RenderedImage image, File file) {
+        checkIsPngFilename(file);
+        try {
+            FileUtil.ensureDirectoryExists(file.getParentFile());
+
+            ImageIO.write(image, "png", file); //NON-NLS
+        } catch (IOException e) {
+            throw new GuiTestingException(
+                    String.format("Error when writing image to %s", file.getAbsolutePath()), e); //NON-NLS
+        }
+    }
+
+    public static BufferedImage readImage(File file) {
+        checkIsPngFilename(file);
+        try {
+            return ImageIO.read(file);
+        } catch (Exception e) {
+            throw new GuiTestingException(
+                    getReadImageErrorMessage(file.getAbsolutePath()), e);
+        }
+    }
+
     public static BufferedImage readImage(URL url) {
         try {
             return ImageIO.read(url);
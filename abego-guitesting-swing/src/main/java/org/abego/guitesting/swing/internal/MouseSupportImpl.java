@@ -25,6 +25,7 @@
 package org.abego.guitesting.swing.internal;
 
 
+import org.abego.commons.polling.PollingService;
 import org.abego.guitesting.swing.MouseSupport;
 import org.abego.guitesting.swing.WaitForIdleSupport;
 
@@ -43,7 +44,6 @@ import static java.awt.event.MouseEvent.MOUSE_PRESSED;
 import static java.awt.event.MouseEvent.MOUSE_RELEASED;
 import static java.time.Duration.ofMillis;
 import static org.abego.commons.lang.ThreadUtil.sleep;
-import static org.abego.commons.polling.PollingUtil.pollNoFail;
 import static org.abego.guitesting.swing.internal.GuiTestingUtil.toScreenCoordinates;
 
 final class MouseSupportImpl implements MouseSupport {
@@ -62,12 +62,16 @@ final class MouseSupportImpl implements MouseSupport {
 
     private final Robot robot;
     private final WaitForIdleSupport waitForIdleSupport;
+    private final PollingService pollingService;
     private final int multiClickIntervalMillis = multiClickIntervalMillisDefault();
     private volatile boolean gotMouseWheelEvent = false;
 
-    private MouseSupportImpl(Robot robot, WaitForIdleSupport waitForIdleSupport) {
+    private MouseSupportImpl(Robot robot,
+                             WaitForIdleSupport waitForIdleSupport,
+                             PollingService pollingService) {
         this.robot = robot;
         this.waitForIdleSupport = waitForIdleSupport;
+        this.pollingService = pollingService;
     }
 
     private static int multiClickIntervalMillisDefault() {
@@ -76,12 +80,10 @@ final class MouseSupportImpl implements MouseSupport {
         return i != null ? i : MULTI_CLICK_INTERVAL_MILLIS_DEFAULT;
     }
 
-    static MouseSupport newMouseSupport(Robot robot, WaitForIdleSupport waitForIdleSupport) {
-        return new MouseSupportImpl(robot, waitForIdleSupport);
-    }
-
-    private static void runAndWaitForMouseAt(Point globalLocation, Runnable runnable) {
-        new MouseLocationObserver().runAndWaitForMouseAt(globalLocation, runnable);
+    static MouseSupport newMouseSupport(Robot robot,
+                                        WaitForIdleSupport waitForIdleSupport,
+                                        PollingService pollingService) {
+        return new MouseSupportImpl(robot, waitForIdleSupport, pollingService);
     }
 
     private static Point mousePos() {
@@ -202,6 +204,10 @@ final class MouseSupportImpl implements MouseSupport {
         waitForIdleSupport.waitForIdle();
     }
 
+    private void runAndWaitForMouseAt(Point globalLocation, Runnable runnable) {
+        new MouseLocationObserver(pollingService).runAndWaitForMouseAt(globalLocation, runnable);
+    }
+
     @Override
     public void mouseMove(int x, int y) {
         Point newMousePos = new Point(x, y);
@@ -212,7 +218,7 @@ final class MouseSupportImpl implements MouseSupport {
         }
 
         // The mouse is not always immediately at the expected position. So wait...
-        Point currentMousePos = pollNoFail(
+        Point currentMousePos = pollingService.pollNoFail(
                 MouseSupportImpl::mousePos, v -> v.equals(newMousePos), MAX_WAIT_TIME_FOR_MOUSE_EVENT);
 
         if (!currentMousePos.equals(newMousePos)) {
@@ -246,7 +252,7 @@ final class MouseSupportImpl implements MouseSupport {
         try {
             robot.mouseWheel(notchCount);
 
-            pollNoFail(() -> gotMouseWheelEvent, v -> v, MAX_WAIT_TIME_FOR_MOUSE_EVENT);
+            pollingService.pollNoFail(() -> gotMouseWheelEvent, v -> v, MAX_WAIT_TIME_FOR_MOUSE_EVENT);
         } finally {
             Toolkit.getDefaultToolkit().removeAWTEventListener(listener);
         }
@@ -261,8 +267,13 @@ final class MouseSupportImpl implements MouseSupport {
      * events, too. This is what this class is for.
      */
     private static class MouseLocationObserver {
+        private final PollingService pollingService;
         private Point lastGlobalMouseEventPos = new Point(-1, -1);
 
+        private MouseLocationObserver(PollingService pollingService) {
+            this.pollingService = pollingService;
+        }
+
         private void runAndWaitForMouseAt(Point globalLocation, Runnable runnable) {
 
             AWTEventListener listener = event -> {
@@ -284,7 +295,7 @@ final class MouseSupportImpl implements MouseSupport {
                 // globalLocation. In some situations, e.g. when moving a frame
                 // by dragging in its title bar, no events will be posted.
                 // In these cases the timeout will be used.
-                pollNoFail(this::getLastGlobalMouseEventPos,
+                pollingService.pollNoFail(this::getLastGlobalMouseEventPos,
                         p -> p.equals(globalLocation), MAX_WAIT_TIME_FOR_MOUSE_EVENT);
 
             } finally {
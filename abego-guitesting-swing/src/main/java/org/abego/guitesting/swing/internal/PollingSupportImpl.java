@@ -0,0 +1,320 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal;
+
+import org.abego.commons.polling.PollingService;
+import org.abego.guitesting.swing.GuiTestingException;
+import org.abego.guitesting.swing.PollingSupport;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.util.logging.Logger.getLogger;
+
+/**
+ * Implements the {@link PollingSupport}, using the {@link PollingService}
+ * for the {@link PollingStrategy#FIXED} strategy and the
+ * {@link UIEventWaiter} for the {@link PollingStrategy#UI_EVENTS} strategy.
+ */
+final class PollingSupportImpl implements PollingSupport {
+    static final long BACKOFF_INITIAL_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    static final long BACKOFF_MAX_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    static final long SPIN_DURATION_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    static final long SLEEP_AFTER_SPIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final Logger LOGGER = getLogger(PollingSupportImpl.class.getName());
+
+    private final PollingService pollingService;
+    private final Map<PollingStrategy, PollingStatisticsImpl> statistics =
+            new EnumMap<>(PollingStrategy.class);
+    private volatile PollingStrategy pollingStrategy = PollingStrategy.FIXED;
+
+    private PollingSupportImpl(PollingService pollingService) {
+        this.pollingService = pollingService;
+        for (PollingStrategy strategy : PollingStrategy.values()) {
+            statistics.put(strategy, new PollingStatisticsImpl());
+        }
+    }
+
+    static PollingSupportImpl newPollingSupport(PollingService pollingService) {
+        return new PollingSupportImpl(pollingService);
+    }
+
+    private static void checkNotInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new GuiTestingException("Interrupted while polling"); //NON-NLS
+        }
+    }
+
+    /**
+     * Returns the time to wait before the next evaluation, when using the
+     * {@code strategy}, after {@code iterations} evaluations and
+     * {@code elapsedNanos} since the start of the poll.
+     */
+    private static long getIntervalNanos(
+            PollingStrategy strategy, long iterations, long elapsedNanos) {
+        switch (strategy) {
+            case BACKOFF:
+                // (the shift is limited, to avoid overflows)
+                return Math.min(BACKOFF_MAX_INTERVAL_NANOS,
+                        BACKOFF_INITIAL_INTERVAL_NANOS << Math.min(iterations - 1, 20));
+            case SPIN_THEN_SLEEP:
+                return elapsedNanos < SPIN_DURATION_NANOS
+                        ? 0 : SLEEP_AFTER_SPIN_INTERVAL_NANOS;
+            default:
+                throw new IllegalArgumentException(
+                        String.format("Unsupported polling strategy %s", strategy)); //NON-NLS
+        }
+    }
+
+    @Override
+    public <T> T poll(Supplier<T> functionToPoll,
+                      Predicate<T> isResult,
+                      Duration timeout,
+                      PollingStrategy pollingStrategy) {
+        return poll(functionToPoll, isResult, timeout, pollingStrategy, true);
+    }
+
+    @Override
+    public <T> T pollNoFail(Supplier<T> functionToPoll,
+                            Predicate<T> isResult,
+                            Duration timeout,
+                            PollingStrategy pollingStrategy) {
+        return poll(functionToPoll, isResult, timeout, pollingStrategy, false);
+    }
+
+    @Override
+    public PollingStrategy getPollingStrategy() {
+        return pollingStrategy;
+    }
+
+    @Override
+    public void setPollingStrategy(PollingStrategy value) {
+        pollingStrategy = value;
+    }
+
+    @Override
+    public PollingStatistics getPollingStatistics(PollingStrategy pollingStrategy) {
+        return statistics.get(pollingStrategy).snapshot();
+    }
+
+    @Override
+    public void resetPollingStatistics() {
+        statistics.values().forEach(PollingStatisticsImpl::reset);
+    }
+
+    private <T> T poll(Supplier<T> functionToPoll,
+                       Predicate<T> isResult,
+                       Duration timeout,
+                       PollingStrategy strategy,
+                       boolean failOnTimeout) {
+
+        PollRun<T> run = new PollRun<>(functionToPoll, isResult);
+        long start = System.nanoTime();
+        try {
+            switch (strategy) {
+                case FIXED:
+                    return pollFixed(run, timeout, failOnTimeout);
+                case UI_EVENTS:
+                    return pollAfterUIEvents(run, timeout, failOnTimeout);
+                default:
+                    return pollWithIntervals(run, timeout, strategy, failOnTimeout);
+            }
+        } finally {
+            long nanos = System.nanoTime() - start;
+            boolean timedOut = !run.succeeded;
+            statistics.get(strategy).add(run.iterations, nanos, timedOut);
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine(String.format(
+                        "poll (%s): %d iterations, %d ms%s", //NON-NLS
+                        strategy, run.iterations,
+                        TimeUnit.NANOSECONDS.toMillis(nanos),
+                        timedOut ? ", timeout" : "")); //NON-NLS
+            }
+        }
+    }
+
+    private <T> T pollFixed(PollRun<T> run,
+                            Duration timeout,
+                            boolean failOnTimeout) {
+        return failOnTimeout
+                ? pollingService.poll(run::get, run::isResult, timeout)
+                : pollingService.pollNoFail(run::get, run::isResult, timeout);
+    }
+
+    private static <T> T pollAfterUIEvents(PollRun<T> run,
+                                           Duration timeout,
+                                           boolean failOnTimeout) {
+        UIEventWaiter waiter = UIEventWaiter.getDefault();
+        return failOnTimeout
+                ? waiter.poll(run::get, run::isResult, timeout)
+                : waiter.pollNoFail(run::get, run::isResult, timeout);
+    }
+
+    private <T> T pollWithIntervals(PollRun<T> run,
+                                    Duration timeout,
+                                    PollingStrategy strategy,
+                                    boolean failOnTimeout) {
+        long start = System.nanoTime();
+        long timeoutNanos = timeout.toNanos();
+        while (true) {
+            T value = run.get();
+            if (run.isResult(value)) {
+                return value;
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            long remainingNanos = timeoutNanos - elapsedNanos;
+            if (remainingNanos <= 0) {
+                // Timeout: a last try, failing with the same exception as
+                // the FIXED strategy.
+                return failOnTimeout
+                        ? pollingService.poll(run::get, run::isResult, Duration.ZERO)
+                        : value;
+            }
+            long intervalNanos = Math.min(remainingNanos,
+                    getIntervalNanos(strategy, run.iterations, elapsedNanos));
+            if (intervalNanos > 0) {
+                LockSupport.parkNanos(intervalNanos);
+            } else {
+                Thread.yield();
+            }
+            checkNotInterrupted();
+        }
+    }
+
+    /**
+     * A single poll, counting the evaluations of the polled function and
+     * remembering if the last evaluated value was a result.
+     *
+     * <p>The {@code isResult} predicate is tested exactly once per
+     * evaluation, as it may have side effects.</p>
+     */
+    private static final class PollRun<T> {
+        private final Supplier<T> functionToPoll;
+        private final Predicate<T> isResult;
+        private long iterations;
+        private boolean succeeded;
+
+        private PollRun(Supplier<T> functionToPoll, Predicate<T> isResult) {
+            this.functionToPoll = functionToPoll;
+            this.isResult = isResult;
+        }
+
+        private T get() {
+            iterations++;
+            return functionToPoll.get();
+        }
+
+        private boolean isResult(T value) {
+            succeeded = isResult.test(value);
+            return succeeded;
+        }
+    }
+
+    private static final class PollingStatisticsImpl implements PollingStatistics {
+        private static final int HISTOGRAM_SIZE = 64;
+
+        private long pollsCount;
+        private long timeoutsCount;
+        private long iterationsCount;
+        private long maxIterationsCount;
+        private long pollingNanos;
+        private long[] iterationsHistogram = new long[HISTOGRAM_SIZE];
+
+        synchronized void add(long iterations, long nanos, boolean timedOut) {
+            pollsCount++;
+            if (timedOut) {
+                timeoutsCount++;
+            }
+            iterationsCount += iterations;
+            maxIterationsCount = Math.max(maxIterationsCount, iterations);
+            pollingNanos += nanos;
+            if (iterations > 0) {
+                iterationsHistogram[63 - Long.numberOfLeadingZeros(iterations)]++;
+            }
+        }
+
+        synchronized void reset() {
+            pollsCount = 0;
+            timeoutsCount = 0;
+            iterationsCount = 0;
+            maxIterationsCount = 0;
+            pollingNanos = 0;
+            iterationsHistogram = new long[HISTOGRAM_SIZE];
+        }
+
+        synchronized PollingStatisticsImpl snapshot() {
+            PollingStatisticsImpl result = new PollingStatisticsImpl();
+            result.pollsCount = pollsCount;
+            result.timeoutsCount = timeoutsCount;
+            result.iterationsCount = iterationsCount;
+            result.maxIterationsCount = maxIterationsCount;
+            result.pollingNanos = pollingNanos;
+            int n = HISTOGRAM_SIZE;
+            while (n > 0 && iterationsHistogram[n - 1] == 0) {
+                n--;
+            }
+            result.iterationsHistogram = Arrays.copyOf(iterationsHistogram, n);
+            return result;
+        }
+
+        @Override
+        public synchronized long getPollsCount() {
+            return pollsCount;
+        }
+
+        @Override
+        public synchronized long getTimeoutsCount() {
+            return timeoutsCount;
+        }
+
+        @Override
+        public synchronized long getIterationsCount() {
+            return iterationsCount;
+        }
+
+        @Override
+        public synchronized long getMaxIterationsCount() {
+            return maxIterationsCount;
+        }
+
+        @Override
+        public synchronized Duration getPollingTime() {
+            return Duration.ofNanos(pollingNanos);
+        }
+
+        @Override
+        public synchronized long[] getIterationsHistogram() {
+            return iterationsHistogram.clone();
+        }
+    }
+}
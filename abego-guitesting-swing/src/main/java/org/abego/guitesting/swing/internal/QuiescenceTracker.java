@@ -0,0 +1,240 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal;
+
+import org.abego.commons.polling.PollingUtil;
+import org.abego.guitesting.swing.GuiTestingException;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the pending activities of the UI, i.e. running {@link Timer}s and
+ * {@link SwingWorker}s, to wait for the "quiescence" of the UI.
+ *
+ * <p>Swing provides no way to enumerate the running {@link Timer}s or
+ * {@link SwingWorker}s. Therefore the code starting them must make them
+ * known to the tracker ({@link #track(Timer)},
+ * {@link #trackBeforeExecute(SwingWorker)}).</p>
+ *
+ * <p>Repaint requests need no tracking: the {@link javax.swing.RepaintManager}
+ * paints the dirty regions in an event it posts to the event queue, so they
+ * are covered by waiting for the event queue.</p>
+ */
+public final class QuiescenceTracker {
+    /**
+     * The maximal time to wait before re-checking the pending activities.
+     * <p>
+     * Most changes are signalled, but e.g. stopping a {@link Timer} is not.
+     */
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final String STATE_PROPERTY_NAME = "state"; //NON-NLS
+    private static final QuiescenceTracker DEFAULT_INSTANCE = new QuiescenceTracker();
+
+    /**
+     * The tracked {@link Timer}s. A timer is pending while it is running.
+     * <p>
+     * Guarded by {@code this}.
+     */
+    private final Set<Timer> timers = Collections.newSetFromMap(new WeakHashMap<>());
+    /**
+     * The {@link SwingWorker}s tracked and not yet done.
+     * <p>
+     * Guarded by {@code this}.
+     */
+    private final Set<SwingWorker<?, ?>> pendingWorkers =
+            Collections.newSetFromMap(new WeakHashMap<>());
+    private final ActionListener timerListener = e -> signal();
+
+    private QuiescenceTracker() {
+    }
+
+    public static QuiescenceTracker getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    private static void waitUntilPostedEventsAreProcessed() {
+        if (EventQueue.isDispatchThread()) {
+            throw new GuiTestingException(
+                    "Must not wait for quiescence in the Event Dispatch Thread"); //NON-NLS
+        }
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GuiTestingException("Interrupted while waiting for quiescence", e); //NON-NLS
+        } catch (InvocationTargetException e) {
+            throw new GuiTestingException("Error when waiting for quiescence", e); //NON-NLS
+        }
+    }
+
+    private static boolean isEventQueueEmpty() {
+        return Toolkit.getDefaultToolkit().getSystemEventQueue().peekEvent() == null;
+    }
+
+    /**
+     * Tracks the {@code timer}, i.e. the {@code timer} is a pending activity
+     * while it is running.
+     */
+    public synchronized void track(Timer timer) {
+        if (timers.add(timer)) {
+            timer.addActionListener(timerListener);
+        }
+    }
+
+    /**
+     * Tracks the {@code worker}, i.e. the {@code worker} is a pending
+     * activity until it is done, including its {@link SwingWorker#done()}
+     * method.
+     *
+     * <p>Call this method before the {@code worker} is executed. A worker
+     * already done is not tracked.</p>
+     */
+    public void trackBeforeExecute(SwingWorker<?, ?> worker) {
+        if (worker.getState() == SwingWorker.StateValue.DONE) {
+            return;
+        }
+        synchronized (this) {
+            pendingWorkers.add(worker);
+        }
+        // SwingWorker notifies the "state" listeners after calling "done()"
+        PropertyChangeListener listener = new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent e) {
+                if (STATE_PROPERTY_NAME.equals(e.getPropertyName())
+                        && e.getNewValue() == SwingWorker.StateValue.DONE) {
+                    worker.removePropertyChangeListener(this);
+                    workerDone(worker);
+                }
+            }
+        };
+        worker.addPropertyChangeListener(listener);
+        // The worker may have completed before the listener was added, i.e.
+        // the listener will never see the DONE state
+        if (worker.getState() == SwingWorker.StateValue.DONE) {
+            worker.removePropertyChangeListener(listener);
+            workerDone(worker);
+        }
+    }
+
+    public synchronized boolean hasPendingActivities() {
+        if (!pendingWorkers.isEmpty()) {
+            return true;
+        }
+        for (Timer timer : timers) {
+            if (timer.isRunning()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits until the UI is quiescent, i.e. no tracked activity is pending
+     * and all events posted to the event queue are processed.
+     *
+     * <p>Throws a {@link org.abego.commons.timeout.TimeoutUncheckedException}
+     * when the UI did not become quiescent within the {@code timeout}.</p>
+     */
+    public void waitForQuiescence(Duration timeout) {
+        if (!waitForQuiescenceAtMost(timeout)) {
+            // fails with the same exception as other timeouts
+            PollingUtil.poll(this::isQuiescent, b -> b, Duration.ZERO);
+        }
+    }
+
+    /**
+     * Waits at most {@code maxDuration} until the UI is quiescent (see
+     * {@link #waitForQuiescence(Duration)}) and returns {@code true} when
+     * it is quiescent, or {@code false} when it did not become quiescent
+     * within the {@code maxDuration}, e.g. because of a repeating
+     * {@link Timer} running for a blinking caret.
+     */
+    public boolean waitForQuiescenceAtMost(Duration maxDuration) {
+        long end = System.nanoTime() + maxDuration.toNanos();
+        while (true) {
+            if (!waitUntilNoPendingActivities(end)) {
+                return false;
+            }
+            // processing the posted events may start new activities,
+            // so check again afterwards
+            waitUntilPostedEventsAreProcessed();
+            if (isQuiescent()) {
+                return true;
+            }
+            if (System.nanoTime() - end >= 0) {
+                return false;
+            }
+        }
+    }
+
+    private boolean isQuiescent() {
+        return !hasPendingActivities() && isEventQueueEmpty();
+    }
+
+    /**
+     * Waits until no activity is pending and returns {@code true}, or
+     * returns {@code false} when activities are still pending at
+     * {@code end} (a {@link System#nanoTime()} value).
+     */
+    private synchronized boolean waitUntilNoPendingActivities(long end) {
+        while (hasPendingActivities()) {
+            long remainingNanos = end - System.nanoTime();
+            if (remainingNanos <= 0) {
+                return false;
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(
+                        this, Math.min(remainingNanos, MAX_WAIT_NANOS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GuiTestingException("Interrupted while waiting for quiescence", e); //NON-NLS
+            }
+        }
+        return true;
+    }
+
+    private synchronized void workerDone(SwingWorker<?, ?> worker) {
+        pendingWorkers.remove(worker);
+        notifyAll();
+    }
+
+    private synchronized void signal() {
+        notifyAll();
+    }
+}
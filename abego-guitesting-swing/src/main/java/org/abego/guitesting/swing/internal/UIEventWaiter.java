@@ -0,0 +1,230 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal;
+
+import org.abego.commons.polling.PollingUtil;
+import org.abego.guitesting.swing.GuiTestingException;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.AWTEventListener;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Waits for a condition on the UI state, re-evaluating the condition after
+ * UI events rather than in a fixed cadence.
+ *
+ * <p>A single {@link AWTEventListener} is notified about UI events like
+ * window, component hierarchy, focus, keyboard or mouse events. When such
+ * an event occurs the waiting threads are signalled, once the event and
+ * the events already in the event queue are dispatched. So a wait
+ * completes within one event dispatch of the condition becoming true.</p>
+ *
+ * <p>The listener is only registered with the {@link Toolkit} while a
+ * thread is waiting, i.e. the application under test is not affected
+ * when no thread waits.</p>
+ *
+ * <p>Not all state changes create UI events, e.g. changing the text of a
+ * label. Therefore the condition is also re-evaluated after
+ * {@link #FALLBACK_POLL_INTERVAL_DEFAULT} without an event.</p>
+ */
+final class UIEventWaiter {
+    static final Duration FALLBACK_POLL_INTERVAL_DEFAULT = Duration.ofMillis(50);
+    /**
+     * The events that may indicate a change of the UI state.
+     *
+     * <p>Mouse motion and paint events are not included, as they occur very
+     * often and hardly ever change the state.</p>
+     */
+    private static final long EVENT_MASK = AWTEvent.WINDOW_EVENT_MASK
+            | AWTEvent.WINDOW_STATE_EVENT_MASK
+            | AWTEvent.WINDOW_FOCUS_EVENT_MASK
+            | AWTEvent.COMPONENT_EVENT_MASK
+            | AWTEvent.CONTAINER_EVENT_MASK
+            | AWTEvent.HIERARCHY_EVENT_MASK
+            | AWTEvent.FOCUS_EVENT_MASK
+            | AWTEvent.KEY_EVENT_MASK
+            | AWTEvent.MOUSE_EVENT_MASK
+            | AWTEvent.MOUSE_WHEEL_EVENT_MASK
+            | AWTEvent.ACTION_EVENT_MASK
+            | AWTEvent.ITEM_EVENT_MASK
+            | AWTEvent.ADJUSTMENT_EVENT_MASK
+            | AWTEvent.TEXT_EVENT_MASK
+            | AWTEvent.INPUT_METHOD_EVENT_MASK;
+    private static final UIEventWaiter DEFAULT =
+            newUIEventWaiter(FALLBACK_POLL_INTERVAL_DEFAULT);
+
+    private final long fallbackPollIntervalMillis;
+    private final Object lock = new Object();
+    private final AWTEventListener listener = event -> onUIEvent();
+    private final AtomicBoolean signalPending = new AtomicBoolean();
+    /**
+     * The number of threads waiting, guarded by {@link #listenerLock}.
+     */
+    private int waitingThreadsCount = 0;
+    private final Object listenerLock = new Object();
+    /**
+     * Incremented with every signal, guarded by {@link #lock}.
+     */
+    private long signalCount = 0;
+
+    private UIEventWaiter(Duration fallbackPollInterval) {
+        this.fallbackPollIntervalMillis = Math.max(1, fallbackPollInterval.toMillis());
+    }
+
+    static UIEventWaiter newUIEventWaiter(Duration fallbackPollInterval) {
+        return new UIEventWaiter(fallbackPollInterval);
+    }
+
+    static UIEventWaiter getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Waits until {@code condition} becomes true.
+     *
+     * <p>Throws a {@link org.abego.commons.timeout.TimeoutUncheckedException}
+     * when the condition is not true within the {@code timeout}.</p>
+     */
+    void waitUntil(BooleanSupplier condition, Duration timeout) {
+        poll(condition::getAsBoolean, b -> b, timeout);
+    }
+
+    /**
+     * Returns the first value of {@code functionToPoll} matching
+     * {@code isResult}, re-evaluating {@code functionToPoll} after UI events.
+     *
+     * <p>Throws a {@link org.abego.commons.timeout.TimeoutUncheckedException}
+     * when no result is found within the {@code timeout}.</p>
+     */
+    <T> T poll(Supplier<T> functionToPoll, Predicate<T> isResult, Duration timeout) {
+        return poll(functionToPoll, isResult, timeout, true);
+    }
+
+    /**
+     * Returns the first value of {@code functionToPoll} matching
+     * {@code isResult}, re-evaluating {@code functionToPoll} after UI events,
+     * or the last value of {@code functionToPoll} when no result is found
+     * within the {@code timeout}.
+     */
+    <T> T pollNoFail(Supplier<T> functionToPoll, Predicate<T> isResult, Duration timeout) {
+        return poll(functionToPoll, isResult, timeout, false);
+    }
+
+    private <T> T poll(Supplier<T> functionToPoll,
+                       Predicate<T> isResult,
+                       Duration timeout,
+                       boolean failOnTimeout) {
+        Instant end = Instant.now().plus(timeout);
+        T value;
+        startWaiting();
+        try {
+            while (true) {
+                long count = getSignalCount();
+                value = functionToPoll.get();
+                if (isResult.test(value)) {
+                    return value;
+                }
+                long remainingMillis = Duration.between(Instant.now(), end).toMillis();
+                if (remainingMillis <= 0) {
+                    break;
+                }
+                waitForSignal(count, Math.min(remainingMillis, fallbackPollIntervalMillis));
+            }
+        } finally {
+            stopWaiting();
+        }
+
+        // Timeout: a last try, failing with the same exception as the
+        // regular polling.
+        return failOnTimeout
+                ? PollingUtil.poll(functionToPoll, isResult, Duration.ZERO)
+                : value;
+    }
+
+    private long getSignalCount() {
+        synchronized (lock) {
+            return signalCount;
+        }
+    }
+
+    /**
+     * Waits until the next signal after the signal with the given
+     * {@code count}, or until {@code timeoutMillis} passed.
+     */
+    private void waitForSignal(long count, long timeoutMillis) {
+        synchronized (lock) {
+            if (signalCount == count) {
+                try {
+                    lock.wait(timeoutMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GuiTestingException("Interrupted while waiting for UI events", e); //NON-NLS
+                }
+            }
+        }
+    }
+
+    private void startWaiting() {
+        synchronized (listenerLock) {
+            if (waitingThreadsCount++ == 0) {
+                Toolkit.getDefaultToolkit().addAWTEventListener(listener, EVENT_MASK);
+            }
+        }
+    }
+
+    private void stopWaiting() {
+        synchronized (listenerLock) {
+            if (--waitingThreadsCount == 0) {
+                Toolkit.getDefaultToolkit().removeAWTEventListener(listener);
+            }
+        }
+    }
+
+    private void onUIEvent() {
+        // The listener is called before the event is dispatched. So signal
+        // the waiting threads only when the event (and the events already
+        // in the queue) are dispatched, using one pending signal for all
+        // events in between.
+        // (the listener is only registered while threads are waiting)
+        if (signalPending.compareAndSet(false, true)) {
+            EventQueue.invokeLater(this::signal);
+        }
+    }
+
+    private void signal() {
+        signalPending.set(false);
+        synchronized (lock) {
+            signalCount++;
+            lock.notifyAll();
+        }
+    }
+}
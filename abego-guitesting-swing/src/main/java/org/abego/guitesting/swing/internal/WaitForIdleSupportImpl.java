@@ -24,15 +24,30 @@
 
 package org.abego.guitesting.swing.internal;
 
+import org.abego.guitesting.swing.GuiTestingException;
 import org.abego.guitesting.swing.WaitForIdleSupport;
 import org.eclipse.jdt.annotation.Nullable;
 
 import javax.swing.SwingUtilities;
+import java.awt.EventQueue;
 import java.awt.Robot;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.awt.Toolkit;
+import java.util.concurrent.CountDownLatch;
 
 final class WaitForIdleSupportImpl implements WaitForIdleSupport {
+    /**
+     * The maximal number of stack frames (of locking and parking) above
+     * {@link EventQueue}{@code .getNextEvent} when the event dispatch
+     * thread waits for the next event.
+     */
+    private static final int MAX_FRAMES_ABOVE_GET_NEXT_EVENT = 16;
     private final Robot robot;
+    private volatile boolean waitForIdleFastPath = false;
+    /**
+     * The event dispatch thread, as seen by the last event posted by
+     * {@link #waitForIdle()}, or {@code null} when not yet known.
+     */
+    private volatile @Nullable Thread eventDispatchThread;
 
     private WaitForIdleSupportImpl(Robot robot) {
         this.robot = robot;
@@ -42,23 +57,44 @@ final class WaitForIdleSupportImpl implements WaitForIdleSupport {
         return new WaitForIdleSupportImpl(robot);
     }
 
-    private static void runIfNotNull(@Nullable Runnable runnable) {
-        if (runnable != null) {
-            runnable.run();
+    /**
+     * Returns {@code true} when the {@code thread} is parked in
+     * {@link EventQueue}{@code .getNextEvent}, i.e. waits for the next event
+     * and does not process an event.
+     *
+     * <p>A thread waiting in application code (e.g. in {@code Future.get},
+     * {@code Object.wait}) is also {@link Thread.State#WAITING}, so the
+     * thread's state alone is not sufficient.</p>
+     */
+    private static boolean isWaitingForNextEvent(Thread thread) {
+        if (thread.getState() != Thread.State.WAITING) {
+            return false;
         }
+        // Only the top frames are relevant: the thread is parked in
+        // "getNextEvent" (directly or via the event queue's lock/condition).
+        StackTraceElement[] stack = thread.getStackTrace();
+        for (int i = 0; i < Math.min(stack.length, MAX_FRAMES_ABOVE_GET_NEXT_EVENT); i++) {
+            //noinspection CallToSuspiciousStringMethod
+            if (stack[i].getClassName().equals(EventQueue.class.getName())
+                    && stack[i].getMethodName().equals("getNextEvent")) { //NON-NLS
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
-    public void waitForIdle() {
-        // Just using "Robot.waitForIdle" and "realSync" is not always sufficient.
-        // E.g. the Event queue may be empty but the EventThread may still be busy
-        // processing the last Event just grabbed from the queue. To make the
-        // "waitForIdle" more reliable we want to wait until we are fairly sure the
-        // EventThread is not busy. Therefore, we add an own event now and wait until
-        // this event is processed. Then all "previous" events are also processed.
-        AtomicBoolean done = new AtomicBoolean(false);
-        SwingUtilities.invokeLater(() -> done.set(true));
+    public boolean getWaitForIdleFastPath() {
+        return waitForIdleFastPath;
+    }
 
+    @Override
+    public void setWaitForIdleFastPath(boolean value) {
+        waitForIdleFastPath = value;
+    }
+
+    @Override
+    public void waitForIdle() {
         robot.waitForIdle();
         // HISTORIC NOTE:
         // This method used to also call "realSync" as the original
@@ -75,14 +111,51 @@ final class WaitForIdleSupportImpl implements WaitForIdleSupport {
         // it more reliable. Therefore we now rely on Robot.waitForIdle and no
         // longer coll realSync.
 
-        while (!done.get()) {
-            try {
-                //noinspection BusyWait
-                Thread.sleep(1);
-            } catch (InterruptedException e) {
-                done.set(true);
-            }
+        // The native events the robot waited for are now on the event queue,
+        // so an empty queue and an event dispatch thread waiting for the next
+        // event mean "idle".
+        if (waitForIdleFastPath && isAlreadyIdle()) {
+            return;
+        }
+
+        // Just using "Robot.waitForIdle" and "realSync" is not always sufficient.
+        // E.g. the Event queue may be empty but the EventThread may still be busy
+        // processing the last Event just grabbed from the queue. To make the
+        // "waitForIdle" more reliable we want to wait until we are fairly sure the
+        // EventThread is not busy. Therefore, we add an own event now and wait until
+        // this event is processed. Then all "previous" events are also processed.
+        CountDownLatch eventProcessed = new CountDownLatch(1);
+        SwingUtilities.invokeLater(() -> {
+            eventDispatchThread = Thread.currentThread();
+            eventProcessed.countDown();
+        });
+        try {
+            eventProcessed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GuiTestingException("Interrupted while waiting for idle", e); //NON-NLS
+        }
+    }
+
+    /**
+     * Returns {@code true} when the event queue is empty and the event
+     * dispatch thread is waiting for the next event, i.e. is not processing
+     * an event.
+     *
+     * <p>Returns {@code false} when this cannot be verified, e.g. when the
+     * event dispatch thread is not yet known.</p>
+     */
+    private boolean isAlreadyIdle() {
+        @Nullable Thread thread = eventDispatchThread;
+        if (thread == null || !thread.isAlive()) {
+            return false;
         }
+        EventQueue eventQueue = Toolkit.getDefaultToolkit().getSystemEventQueue();
+        // check the thread both before and after checking the queue, so an
+        // event taken from the queue in between is noticed.
+        return isWaitingForNextEvent(thread)
+                && eventQueue.peekEvent() == null
+                && isWaitingForNextEvent(thread);
     }
 
 }
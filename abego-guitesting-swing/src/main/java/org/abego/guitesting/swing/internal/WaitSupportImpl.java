@@ -24,8 +24,9 @@
 
 package org.abego.guitesting.swing.internal;
 
-import org.abego.commons.polling.PollingUtil;
 import org.abego.commons.timeout.TimeoutSupplier;
+import org.abego.guitesting.swing.PollingSupport;
+import org.abego.guitesting.swing.PollingSupport.PollingStrategy;
 import org.abego.guitesting.swing.WaitSupport;
 import org.eclipse.jdt.annotation.Nullable;
 
@@ -45,17 +46,21 @@ import static org.abego.guitesting.swing.internal.PauseUI.pauseUI;
 final class WaitSupportImpl implements WaitSupport {
 
     private final TimeoutSupplier timeoutProvider;
+    private final PollingSupport pollingSupport;
 
-    private WaitSupportImpl(TimeoutSupplier timeoutProvider) {
+    private WaitSupportImpl(TimeoutSupplier timeoutProvider, PollingSupport pollingSupport) {
         this.timeoutProvider = timeoutProvider;
+        this.pollingSupport = pollingSupport;
     }
 
     /**
      * Return a Pause object with a timeout defined by the given
-     * {@code timeoutSupplier}.
+     * {@code timeoutSupplier}, waiting for conditions with the
+     * {@code pollingSupport}.
      */
-    static WaitSupport newWaitSupport(TimeoutSupplier timeoutProvider) {
-        return new WaitSupportImpl(timeoutProvider);
+    static WaitSupport newWaitSupport(
+            TimeoutSupplier timeoutProvider, PollingSupport pollingSupport) {
+        return new WaitSupportImpl(timeoutProvider, pollingSupport);
     }
 
     @Override
@@ -63,9 +68,19 @@ final class WaitSupportImpl implements WaitSupport {
         return timeoutProvider.timeout();
     }
 
+    /**
+     * Waits until {@code condition} becomes true, re-evaluating the
+     * condition after UI events (see {@link PollingStrategy#UI_EVENTS}).
+     */
     @Override
     public void waitUntil(BooleanSupplier condition) {
-        PollingUtil.poll(condition::getAsBoolean, b -> b, timeout());
+        pollingSupport.poll(condition::getAsBoolean, b -> b, timeout(),
+                PollingStrategy.UI_EVENTS);
+    }
+
+    @Override
+    public void waitForQuiescence() {
+        QuiescenceTracker.getDefault().waitForQuiescence(timeout());
     }
 
     @Override
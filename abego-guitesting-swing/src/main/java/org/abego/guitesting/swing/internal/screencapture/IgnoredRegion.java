@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal.screencapture;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The pixels ignored when comparing an image of size {@code sizeA} with an
+ * image of size {@code sizeB}.
+ *
+ * <p>The region is computed once, when the object is created, and stored
+ * as "spans" per row. The spans of a row are returned as an array
+ * {@code [start0, end0, start1, end1, ...]}, sorted by position and not
+ * overlapping. Span {@code i} covers the columns {@code start_i}
+ * (inclusive) to {@code end_i} (exclusive).</p>
+ *
+ * <p>Rows with the same spans share the same array, so the region is
+ * compact even for large images.</p>
+ */
+final class IgnoredRegion {
+    private static final int[] NO_SPANS = new int[0];
+    static final IgnoredRegion NO_IGNORED_PIXELS =
+            new IgnoredRegion(new Dimension(), new Dimension(), new int[0][]);
+
+    private final Dimension sizeA;
+    private final Dimension sizeB;
+    private final int[][] rowSpans;
+
+    private IgnoredRegion(Dimension sizeA, Dimension sizeB, int[][] rowSpans) {
+        this.sizeA = sizeA;
+        this.sizeB = sizeB;
+        this.rowSpans = rowSpans;
+    }
+
+    /**
+     * Returns the region ignored when comparing an image of size
+     * {@code sizeA} with an image of size {@code sizeB}.
+     *
+     * <p>See {@link ImageCompare.Options} for the meaning of the other
+     * parameters.</p>
+     */
+    static IgnoredRegion newIgnoredRegion(
+            Dimension sizeA,
+            Dimension sizeB,
+            int ignoredBorderSize,
+            int ignoredCornerSize,
+            List<Rectangle> ignoredRectangles) {
+
+        int h = Math.max(sizeA.height, sizeB.height);
+        int[][] rowSpans = new int[h][];
+        SpansBuilder builder = new SpansBuilder(Math.max(sizeA.width, sizeB.width));
+        int[] previousSpans = NO_SPANS;
+        for (int y = 0; y < h; y++) {
+            builder.clear();
+            addBorderAndCornerSpans(builder, y, sizeA, sizeB,
+                    ignoredBorderSize, ignoredCornerSize);
+            for (Rectangle r : ignoredRectangles) {
+                if (y >= r.y && y - r.y < r.height) {
+                    builder.add(r.x, r.x + r.width);
+                }
+            }
+            int[] spans = builder.build();
+            // share the spans with the previous row, if possible
+            if (Arrays.equals(spans, previousSpans)) {
+                spans = previousSpans;
+            }
+            rowSpans[y] = spans;
+            previousSpans = spans;
+        }
+        return new IgnoredRegion(
+                new Dimension(sizeA), new Dimension(sizeB), rowSpans);
+    }
+
+    private static void addBorderAndCornerSpans(
+            SpansBuilder builder,
+            int y,
+            Dimension sizeA,
+            Dimension sizeB,
+            int ignoredBorderSize,
+            int ignoredCornerSize) {
+
+        int minWidth = Math.min(sizeA.width, sizeB.width);
+        int minHeight = Math.min(sizeA.height, sizeB.height);
+
+        // ignored border pixels
+        if (ignoredBorderSize > 0) {
+            if (y < ignoredBorderSize || // top border
+                    y >= minHeight - ignoredBorderSize) { // bottom border of A or B
+                builder.addAll();
+                return;
+            }
+            builder.add(0, ignoredBorderSize); // left border
+            builder.add(minWidth - ignoredBorderSize, Integer.MAX_VALUE); // right border of A or B
+        }
+
+        // ignored corner pixels
+        if (ignoredCornerSize > 0) {
+            // (Also covers the rows "below the width" of A or B, as the
+            // comparison always did for ignored corners.)
+            if (y < ignoredBorderSize ||
+                    y >= minWidth - ignoredBorderSize) {
+                builder.addAll();
+                return;
+            }
+            builder.add(0, ignoredBorderSize);
+            builder.add(minWidth - ignoredBorderSize, Integer.MAX_VALUE);
+
+            if (y < ignoredCornerSize) {
+                builder.add(0, ignoredCornerSize); // top left corner
+                builder.add(minWidth - ignoredCornerSize, Integer.MAX_VALUE); // top right corner of A or B
+            }
+            if (y >= sizeA.height - ignoredCornerSize) {
+                builder.add(0, ignoredCornerSize); // bottom left corner of A
+                builder.add(sizeA.width - ignoredCornerSize, Integer.MAX_VALUE); // bottom right corner of A
+            }
+            if (y >= sizeB.height - ignoredCornerSize) {
+                builder.add(0, ignoredCornerSize); // bottom left corner of B
+                builder.add(sizeB.width - ignoredCornerSize, Integer.MAX_VALUE); // bottom right corner of B
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} when this region is for comparing an image of
+     * size {@code sizeA} with an image of size {@code sizeB}.
+     */
+    boolean isForSizes(Dimension sizeA, Dimension sizeB) {
+        return this.sizeA.equals(sizeA) && this.sizeB.equals(sizeB);
+    }
+
+    /**
+     * Returns the spans of ignored pixels in row {@code y}.
+     *
+     * <p>The array must not be modified.</p>
+     */
+    int[] getSpans(int y) {
+        return y < rowSpans.length ? rowSpans[y] : NO_SPANS;
+    }
+
+    /**
+     * Collects the spans of a row, clipped to the row's width, and merges
+     * them into a sorted array of non-overlapping spans.
+     */
+    private static final class SpansBuilder {
+        private final int width;
+        private int[] spans = new int[16];
+        private int length;
+
+        private SpansBuilder(int width) {
+            this.width = width;
+        }
+
+        private void clear() {
+            length = 0;
+        }
+
+        private void addAll() {
+            add(0, width);
+        }
+
+        private void add(int start, int end) {
+            int s = Math.max(0, start);
+            int e = Math.min(width, end);
+            if (s >= e) {
+                return;
+            }
+            if (length == spans.length) {
+                spans = Arrays.copyOf(spans, 2 * length);
+            }
+            spans[length++] = s;
+            spans[length++] = e;
+        }
+
+        private int[] build() {
+            if (length == 0) {
+                return NO_SPANS;
+            }
+
+            // sort the spans by their start (insertion sort, as we
+            // typically only have a few spans per row)
+            for (int i = 2; i < length; i += 2) {
+                int s = spans[i];
+                int e = spans[i + 1];
+                int j = i - 2;
+                while (j >= 0 && spans[j] > s) {
+                    spans[j + 2] = spans[j];
+                    spans[j + 3] = spans[j + 1];
+                    j -= 2;
+                }
+                spans[j + 2] = s;
+                spans[j + 3] = e;
+            }
+
+            // merge overlapping or adjacent spans
+            int n = 0;
+            for (int i = 0; i < length; i += 2) {
+                if (n > 0 && spans[i] <= spans[n - 1]) {
+                    spans[n - 1] = Math.max(spans[n - 1], spans[i + 1]);
+                } else {
+                    spans[n++] = spans[i];
+                    spans[n++] = spans[i + 1];
+                }
+            }
+            return Arrays.copyOf(spans, n);
+        }
+    }
+}
@@ -29,14 +29,46 @@ import org.eclipse.jdt.annotation.Nullable;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.awt.image.PixelGrabber;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import static org.abego.guitesting.swing.internal.GuiTestingUtil.getSize;
 
 public final class ImageCompare {
+    /**
+     * The default for {@link Options#getParallelismThreshold()}, in pixels.
+     */
+    public static final int PARALLELISM_THRESHOLD_DEFAULT = 1024 * 1024;
+    /**
+     * The minimal number of pixels compared by a single task of a parallel
+     * comparison.
+     */
+    private static final int MIN_PIXELS_PER_TASK = 64 * 1024;
+    /**
+     * The number of pixels compared "in a block" when comparing with
+     * tolerance.
+     */
+    private static final int COMPARE_BLOCK_SIZE = 64;
+    /**
+     * The maximal number of {@link IgnoredRegion}s cached by an
+     * {@link ImageCompare}.
+     */
+    private static final int MAX_CACHED_IGNORED_REGIONS = 4;
     private static final ImageCompare.Options DEFAULT_COMPARE_OPTIONS = new Options() {};
     private static final ImageCompare DEFAULT_COMPARE = newImageCompare(DEFAULT_COMPARE_OPTIONS);
+    private static final int WHITE_TRANSPARENT_PIXEL = getPixel(new Color(255, 255, 255, 0));
+    private static final int BLACK_PIXEL = getPixel(Color.black);
 
     public interface Options {
         default int getTolerancePercentage() {return 0;}
@@ -44,16 +76,68 @@ public final class ImageCompare {
         default int getIgnoredBorderSize() {return 0;}
 
         default int getIgnoredCornerSize() {return 0;}
+
+        /**
+         * Returns the rectangles of pixels to ignore when comparing images,
+         * in image coordinates.
+         *
+         * <p>Use this e.g. for parts of an image that change all the time,
+         * like clocks or spinners.</p>
+         *
+         * @return the rectangles of pixels to ignore when comparing images
+         */
+        default List<Rectangle> getIgnoredRectangles() {return Collections.emptyList();}
+
+        /**
+         * Returns the number of pixels an image comparison must at least
+         * cover to compare the images in parallel, i.e. with multiple threads.
+         *
+         * <p>Smaller images are compared sequentially. Both ways produce
+         * the same results.</p>
+         *
+         * @return the number of pixels an image comparison must at least
+         * cover to compare the images in parallel
+         */
+        default int getParallelismThreshold() {return PARALLELISM_THRESHOLD_DEFAULT;}
     }
 
     private final int tolerancePercentage;
+    /**
+     * The largest total difference of two pixels considered equal, derived
+     * from the {@code tolerancePercentage}.
+     *
+     * <p>Allows checking the tolerance without computing percentages.</p>
+     */
+    private final int maxTolerableTotalDifference;
+    /**
+     * The bits of two pixels compared in an exact comparison, i.e. without
+     * tolerance.
+     *
+     * <p>Differences only in the alpha channel are within any (non-negative)
+     * tolerance.</p>
+     */
+    private final int exactlyComparedBits;
     private final int ignoredBorderSize;
     private final int ignoredCornerSize;
+    private final List<Rectangle> ignoredRectangles;
+    private final int parallelismThreshold;
+    /**
+     * The most recently used {@link IgnoredRegion}s, the most recent one
+     * first.
+     *
+     * <p>Typically the same image sizes are compared over and over again
+     * (e.g. when polling for a screenshot to match a snapshot).</p>
+     */
+    private final List<IgnoredRegion> recentIgnoredRegions = new ArrayList<>();
 
     private ImageCompare(Options options) {
         this.tolerancePercentage = options.getTolerancePercentage();
+        this.maxTolerableTotalDifference = maxTolerableTotalDifference(tolerancePercentage);
+        this.exactlyComparedBits = maxTolerableTotalDifference < 0 ? 0xFFFFFFFF : 0xFFFFFF;
         this.ignoredBorderSize = options.getIgnoredBorderSize();
         this.ignoredCornerSize = options.getIgnoredCornerSize();
+        this.ignoredRectangles = copyOf(options.getIgnoredRectangles());
+        this.parallelismThreshold = options.getParallelismThreshold();
     }
 
     public static ImageCompare newImageCompare() {
@@ -71,44 +155,31 @@ public final class ImageCompare {
 
     public static boolean imagesAreEqual(
             BufferedImage imageA, BufferedImage imageB, Options options) {
-        return newImageCompare(options).differenceMask(imageA, imageB) == null;
+        return !newImageCompare(options).imagesAreDifferent(imageA, imageB);
     }
 
-    /**
-     * @param pixels array of pixels in INT_ARGB format (e.g. as returned by
-     *               PixelGrabber.getPixels())
-     */
-    private static BufferedImage getImageFromPixels(
-            int[] pixels, int width, int height) {
-
-        if (pixels.length != width * height) {
-            throw new IllegalArgumentException(
-                    String.format(
-                            "pixels must contain width*height items (%d != %d*%d)",  //NON-NLS
-                            pixels.length, width, height));
+    private static List<Rectangle> copyOf(List<Rectangle> rectangles) {
+        List<Rectangle> result = new ArrayList<>();
+        for (Rectangle r : rectangles) {
+            result.add(new Rectangle(r));
         }
+        return result;
+    }
+
+    private static BufferedImage newTransparentImage(int width, int height) {
         BufferedImage image = new BufferedImage(
                 width, height, BufferedImage.TYPE_INT_ARGB);
-        image.setRGB(0, 0, width, height, pixels, 0, width);
+        Arrays.fill(getData(image), WHITE_TRANSPARENT_PIXEL);
         return image;
     }
 
     /**
-     * @param image [must be loaded completely]
-     * @return array of pixels in INT_ARGB format
+     * @param image a {@link BufferedImage} of type
+     *              {@link BufferedImage#TYPE_INT_ARGB}, not a sub-image
+     * @return the array of pixels of the image in INT_ARGB format
      */
-    private static int[] getPixels(Image image) {
-        Dimension size = getSize(image);
-        int[] pixels = new int[size.width * size.height];
-        PixelGrabber pg = new PixelGrabber(
-                image, 0, 0, size.width, size.height, pixels, 0, size.width);
-        try {
-            pg.grabPixels();
-        } catch (InterruptedException e) {
-            throw new IllegalStateException(
-                    "Unexpected interrupt when retrieving image pixels", e); //NON-NLS
-        }
-        return pixels;
+    private static int[] getData(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
     }
 
     /**
@@ -131,26 +202,56 @@ public final class ImageCompare {
      * @return difference between pixelA and pixelB, in percent
      */
     private static int getDifferenceInPercent(int pixelA, int pixelB) {
+        return toPercent(getTotalDifference(pixelA, pixelB));
+    }
+
+    /**
+     * Returns the sum of the (absolute) differences of the red, green and
+     * blue channels of pixelA and pixelB, i.e. a value between 0 and 765.
+     *
+     * @param pixelA in INT_ARGB format
+     * @param pixelB in INT_ARGB format
+     * @return the sum of the differences of the color channels of pixelA
+     * and pixelB
+     */
+    private static int getTotalDifference(int pixelA, int pixelB) {
         int redDiff = ((pixelA >> 16) & 0xff) - ((pixelB >> 16) & 0xff);
         int greenDiff = ((pixelA >> 8) & 0xff) - ((pixelB >> 8) & 0xff);
         int blueDiff = ((pixelA) & 0xff) - ((pixelB) & 0xff);
 
-        // "absolute" values
-        if (redDiff < 0) redDiff = -redDiff;
-        if (greenDiff < 0) greenDiff = -greenDiff;
-        if (blueDiff < 0) blueDiff = -blueDiff;
+        // "absolute" values (without branches)
+        redDiff = (redDiff ^ (redDiff >> 31)) - (redDiff >> 31);
+        greenDiff = (greenDiff ^ (greenDiff >> 31)) - (greenDiff >> 31);
+        blueDiff = (blueDiff ^ (blueDiff >> 31)) - (blueDiff >> 31);
 
-        int totalDiff = redDiff + greenDiff + blueDiff;
+        return redDiff + greenDiff + blueDiff;
+    }
 
+    /**
+     * Returns the {@code totalDifference} of two pixels (see
+     * {@link #getTotalDifference(int, int)}) in percent.
+     */
+    private static int toPercent(int totalDifference) {
         // return a 0 percentage only when there are really no differences,
         // otherwise a number between 1 and 100.
         // (765 is the maximum difference possible: 3 * 255)
-        return totalDiff == 0 ? 0 : 1 + totalDiff * 99 / 765;
+        return totalDifference == 0 ? 0 : 1 + totalDifference * 99 / 765;
     }
 
-    private boolean arePixelsSimilar(int pixelA, int pixelB) {
-        return pixelA == pixelB ||
-                getDifferenceInPercent(pixelA, pixelB) <= tolerancePercentage;
+    /**
+     * Returns the largest total difference of two pixels (see
+     * {@link #getTotalDifference(int, int)}) that is within the
+     * {@code tolerancePercentage}, or -1 when no difference is within the
+     * tolerance.
+     */
+    private static int maxTolerableTotalDifference(int tolerancePercentage) {
+        int result = -1;
+        for (int totalDifference = 0; totalDifference <= 765; totalDifference++) {
+            if (toPercent(totalDifference) <= tolerancePercentage) {
+                result = totalDifference;
+            }
+        }
+        return result;
     }
 
     private static Dimension max(Dimension size1, Dimension size2) {
@@ -190,79 +291,394 @@ public final class ImageCompare {
      */
     @Nullable
     public BufferedImage differenceMask(Image imageA, Image imageB) {
+        return differenceMask(ImagePixels.of(imageA), ImagePixels.of(imageB));
+    }
+
+    @Nullable
+    BufferedImage differenceMask(ImagePixels pixelsA, ImagePixels pixelsB) {
+        return differenceMask(differences(pixelsA, pixelsB));
+    }
+
+    /**
+     * Returns an image marking the {@code differences} with
+     * {@link Color#black} pixels on a (transparent) white canvas,
+     * or {@code null} when there are no different pixels.
+     */
+    @Nullable
+    BufferedImage differenceMask(PixelDifferences differences) {
+        if (!differences.hasDifferentPixels()) {
+            return null;
+        }
 
-        Dimension sizeA = getSize(imageA);
-        Dimension sizeB = getSize(imageB);
-        Dimension size = max(sizeA, sizeB);
-        int h = size.height;
-        int w = size.width;
+        BufferedImage result = newTransparentImage(
+                differences.getWidth(), differences.getHeight());
+        int[] data = getData(result);
+        int n = differences.getRunsCount();
+        for (int i = 0; i < n; i++) {
+            int rowOffset = differences.getRunY(i) * differences.getWidth();
+            Arrays.fill(data,
+                    rowOffset + differences.getRunStartX(i),
+                    rowOffset + differences.getRunEndX(i),
+                    BLACK_PIXEL);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the differences between imageA and imageB.
+     *
+     * <p>Uses the same criteria as {@link #differenceMask(Image, Image)},
+     * in a single pass over the images.</p>
+     *
+     * @param imageA an {@link Image} to compare with the other
+     * @param imageB an {@link Image} to compare with the other
+     * @return the differences between imageA and imageB
+     */
+    PixelDifferences differences(Image imageA, Image imageB) {
+        return differences(ImagePixels.of(imageA), ImagePixels.of(imageB));
+    }
 
-        int whiteTransparentPixel = getWhiteTransparentPixel();
-        int blackPixel = getPixel(Color.black);
-        int[] pixelsA = getPixels(imageA);
-        int[] pixelsB = getPixels(imageB);
-        int[] pixelsResult = new int[w * h];
+    PixelDifferences differences(ImagePixels pixelsA, ImagePixels pixelsB) {
+        PixelDifferences differences = new PixelDifferences(
+                Math.max(pixelsA.getWidth(), pixelsB.getWidth()),
+                Math.max(pixelsA.getHeight(), pixelsB.getHeight()));
+        compare(pixelsA, pixelsB, differences);
+        return differences;
+    }
 
-        boolean imagesDiffer = false;
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int color;
-                boolean hasPixelA = x < sizeA.width && y < sizeA.height;
-                boolean hasPixelB = x < sizeB.width && y < sizeB.height;
-                int pixelA = hasPixelA ? pixelsA[y * sizeA.width + x] : 0;
-                int pixelB = hasPixelB ? pixelsB[y * sizeB.width + x] : 0;
-                if (isIgnoredPixel(x, y, sizeA, sizeB) ||
-                        (hasPixelA && hasPixelB && arePixelsSimilar(pixelA, pixelB))) {
-                    color = whiteTransparentPixel;
-                } else {
-                    imagesDiffer = true;
-                    color = blackPixel;
+    /**
+     * Returns {@code true} when imageA and imageB are different,
+     * {@code false} otherwise.
+     *
+     * <p>Uses the same criteria as {@link #differenceMask(Image, Image)} but
+     * stops at the first difference and does not create a difference mask.
+     * </p>
+     *
+     * @param imageA an {@link Image} to compare with the other
+     * @param imageB an {@link Image} to compare with the other
+     * @return {@code true} when imageA and imageB are different,
+     * {@code false} otherwise
+     */
+    public boolean imagesAreDifferent(Image imageA, Image imageB) {
+        return imagesAreDifferent(ImagePixels.of(imageA), ImagePixels.of(imageB));
+    }
+
+    boolean imagesAreDifferent(ImagePixels pixelsA, ImagePixels pixelsB) {
+        return compare(pixelsA, pixelsB, null);
+    }
+
+    /**
+     * Returns {@code true} when images with the same size and the same RGB
+     * values are never different, i.e. differences in the alpha channel
+     * are ignored.
+     *
+     * <p>This is the case for any non-negative tolerance.</p>
+     */
+    boolean ignoresAlpha() {
+        return exactlyComparedBits == 0xFFFFFF;
+    }
+
+    /**
+     * Returns the index of the first image in {@code expectedImages} that is
+     * not different from {@code image}, or -1 when {@code image} is different
+     * from all {@code expectedImages}.
+     *
+     * <p>Uses the same criteria as {@link #imagesAreDifferent(Image, Image)},
+     * but compares {@code image} with all {@code expectedImages} in a single
+     * pass, row by row, i.e. every row of {@code image} is read once
+     * for all expected images. An expected image is no longer compared once a
+     * difference was found, and the comparison stops when all expected images
+     * are different.</p>
+     */
+    int indexOfMatchingImage(ImagePixels image, ImagePixels[] expectedImages) {
+        int n = expectedImages.length;
+        if (n == 0) {
+            return -1;
+        }
+        if (n == 1) {
+            return imagesAreDifferent(image, expectedImages[0]) ? -1 : 0;
+        }
+
+        IgnoredRegion[] ignoredRegions = new IgnoredRegion[n];
+        int[] heights = new int[n];
+        int h = 0;
+        long pixelsCount = 0;
+        for (int i = 0; i < n; i++) {
+            ImagePixels expectedImage = expectedImages[i];
+            ignoredRegions[i] = getIgnoredRegion(
+                    new Dimension(image.getWidth(), image.getHeight()),
+                    new Dimension(expectedImage.getWidth(), expectedImage.getHeight()));
+            heights[i] = Math.max(image.getHeight(), expectedImage.getHeight());
+            h = Math.max(h, heights[i]);
+            pixelsCount += (long) heights[i]
+                    * Math.max(image.getWidth(), expectedImage.getWidth());
+        }
+
+        StillMatchingImages stillMatching = new StillMatchingImages(n);
+        if (pixelsCount < parallelismThreshold
+                || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            matchRows(image, expectedImages, ignoredRegions, heights,
+                    0, h, stillMatching);
+        } else {
+            int minRowsPerTask = (int) Math.max(1, MIN_PIXELS_PER_TASK * (long) h / pixelsCount);
+            ForkJoinPool.commonPool().invoke(new MatchRowsTask(
+                    image, expectedImages, ignoredRegions, heights,
+                    0, h, minRowsPerTask, stillMatching));
+        }
+        return stillMatching.firstIndex();
+    }
+
+    /**
+     * Compares the rows {@code startRow} (inclusive) to {@code endRow}
+     * (exclusive) of {@code image} with the corresponding rows of the
+     * {@code expectedImages} still matching and clears the expected images
+     * found to be different in {@code stillMatching}.
+     */
+    private void matchRows(
+            ImagePixels image,
+            ImagePixels[] expectedImages,
+            IgnoredRegion[] ignoredRegions,
+            int[] heights,
+            int startRow,
+            int endRow,
+            StillMatchingImages stillMatching) {
+        for (int y = startRow; y < endRow; y++) {
+            if (stillMatching.isEmpty()) {
+                return;
+            }
+            for (int i = stillMatching.nextIndex(0); i >= 0; i = stillMatching.nextIndex(i + 1)) {
+                if (y < heights[i] && compareRows(image, expectedImages[i],
+                        y, y + 1, ignoredRegions[i], null, null)) {
+                    stillMatching.remove(i);
                 }
-                pixelsResult[y * w + x] = color;
             }
         }
+    }
 
-        return imagesDiffer ? getImageFromPixels(pixelsResult, w, h) : null;
+    /**
+     * Compares the pixels of A and B and returns {@code true} when they are
+     * different.
+     *
+     * <p>When {@code differences} is {@code null} the method returns at the
+     * first difference, otherwise all differences are added to
+     * {@code differences}.</p>
+     *
+     * <p>Large images are compared in parallel, in bands of rows.</p>
+     */
+    private boolean compare(
+            ImagePixels pixelsA,
+            ImagePixels pixelsB,
+            @Nullable PixelDifferences differences) {
+
+        int w = Math.max(pixelsA.getWidth(), pixelsB.getWidth());
+        int h = Math.max(pixelsA.getHeight(), pixelsB.getHeight());
+        IgnoredRegion ignoredRegion = getIgnoredRegion(
+                new Dimension(pixelsA.getWidth(), pixelsA.getHeight()),
+                new Dimension(pixelsB.getWidth(), pixelsB.getHeight()));
+        if ((long) w * h < parallelismThreshold
+                || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            return compareRows(
+                    pixelsA, pixelsB, 0, h, ignoredRegion, differences, null);
+        }
+
+        int minRowsPerTask = Math.max(1, MIN_PIXELS_PER_TASK / Math.max(1, w));
+        CompareRowsTask task = new CompareRowsTask(
+                pixelsA, pixelsB, 0, h, minRowsPerTask, ignoredRegion,
+                differences != null, new AtomicBoolean());
+        boolean imagesDiffer = ForkJoinPool.commonPool().invoke(task);
+        @Nullable PixelDifferences taskDifferences = task.getDifferences();
+        if (differences != null && taskDifferences != null) {
+            differences.append(taskDifferences);
+        }
+        return imagesDiffer;
     }
 
-    private boolean isIgnoredPixel(int x, int y, Dimension sizeA, Dimension sizeB) {
-        // check for ignored border pixels
-        if (ignoredBorderSize > 0 && (
-                (x < ignoredBorderSize) || // left border
-                        (y < ignoredBorderSize) || // top border
-                        (x >= sizeA.width - ignoredBorderSize) ||  // right border of A
-                        (x >= sizeB.width - ignoredBorderSize) ||  // right border of B
-                        (y >= sizeA.height - ignoredBorderSize) ||  // bottom border of A
-                        (y >= sizeB.height - ignoredBorderSize))) {  // bottom border of B
-            return true;
+    private IgnoredRegion getIgnoredRegion(Dimension sizeA, Dimension sizeB) {
+        if (ignoredBorderSize <= 0 && ignoredCornerSize <= 0
+                && ignoredRectangles.isEmpty()) {
+            return IgnoredRegion.NO_IGNORED_PIXELS;
         }
 
-        // check for ignored corner pixels
-        if (ignoredCornerSize > 0) {
-            int rightA = sizeA.width - ignoredCornerSize;
-            int rightB = sizeB.width - ignoredCornerSize;
-            int bottomA = sizeA.height - ignoredCornerSize;
-            int bottomB = sizeB.height - ignoredCornerSize;
-            return (x < ignoredBorderSize) || // left border
-                    (y < ignoredBorderSize) || // top border
-                    (x >= sizeA.width - ignoredBorderSize) ||  // right border of A
-                    (x >= sizeB.width - ignoredBorderSize) ||  // right border of B
-                    (y >= sizeA.width - ignoredBorderSize) ||  // right border of A
-                    (y >= sizeB.width - ignoredBorderSize) ||  // right border of B
-                    (x < ignoredCornerSize && y < ignoredCornerSize) || // top left corner
-                    (x >= rightA && y < ignoredCornerSize) || // top right corner of A
-                    (x >= rightB && y < ignoredCornerSize) || // top right corner of B
-                    (x < ignoredCornerSize && y >= bottomA) || // bottom left corner of A
-                    (x < ignoredCornerSize && y >= bottomB) || // bottom left corner of B
-                    (x >= rightA && y >= bottomA) || // bottom right corner of A
-                    (x >= rightB && y >= bottomB) // bottom right corner of B
-                    ;
+        synchronized (recentIgnoredRegions) {
+            for (int i = 0; i < recentIgnoredRegions.size(); i++) {
+                IgnoredRegion region = recentIgnoredRegions.get(i);
+                if (region.isForSizes(sizeA, sizeB)) {
+                    if (i > 0) {
+                        recentIgnoredRegions.remove(i);
+                        recentIgnoredRegions.add(0, region);
+                    }
+                    return region;
+                }
+            }
+
+            IgnoredRegion region = IgnoredRegion.newIgnoredRegion(
+                    sizeA, sizeB, ignoredBorderSize, ignoredCornerSize,
+                    ignoredRectangles);
+            recentIgnoredRegions.add(0, region);
+            if (recentIgnoredRegions.size() > MAX_CACHED_IGNORED_REGIONS) {
+                recentIgnoredRegions.remove(MAX_CACHED_IGNORED_REGIONS);
+            }
+            return region;
         }
+    }
+
+    /**
+     * Compares the rows {@code startRow} (inclusive) to {@code endRow}
+     * (exclusive) of A and B and returns {@code true} when they are different.
+     *
+     * <p>When {@code differences} is {@code null} the method returns at the
+     * first difference, otherwise all differences are added to
+     * {@code differences}.</p>
+     *
+     * <p>When {@code differenceFound} is not {@code null} it is shared with
+     * other comparisons running in parallel. In that case, when
+     * {@code differences} is {@code null}, it is set when a difference is
+     * found and the comparison stops early when some other comparison
+     * already found a difference.</p>
+     */
+    private boolean compareRows(
+            ImagePixels pixelsA,
+            ImagePixels pixelsB,
+            int startRow,
+            int endRow,
+            IgnoredRegion ignoredRegion,
+            @Nullable PixelDifferences differences,
+            @Nullable AtomicBoolean differenceFound) {
+
+        int w = Math.max(pixelsA.getWidth(), pixelsB.getWidth());
 
-        return false;
+        int[] dataA = pixelsA.getData();
+        int[] dataB = pixelsB.getData();
+        boolean stopEarly = differences == null && differenceFound != null;
 
+        boolean imagesDiffer = false;
+        for (int y = startRow; y < endRow; y++) {
+            if (stopEarly && differenceFound.get()) {
+                return false;
+            }
+            boolean rowInBoth = y < pixelsA.getHeight() && y < pixelsB.getHeight();
+            // pixels in the common width exist in both images, pixels right
+            // of it only in one image (and are always different)
+            int commonWidth = rowInBoth
+                    ? Math.min(pixelsA.getWidth(), pixelsB.getWidth()) : 0;
+            int rowOffsetA = rowInBoth ? pixelsA.getRowOffset(y) : 0;
+            int rowOffsetB = rowInBoth ? pixelsB.getRowOffset(y) : 0;
+            int[] ignoredSpans = ignoredRegion.getSpans(y);
+            int x = 0;
+            // compare the pixels between the ignored spans
+            for (int i = 0; x < w; i += 2) {
+                int end = i < ignoredSpans.length ? ignoredSpans[i] : w;
+                int commonEnd = Math.min(end, commonWidth);
+                while (x < end) {
+                    int difference = 100;
+                    if (x < commonEnd) {
+                        x = indexOfDifferentPixel(dataA, rowOffsetA,
+                                dataB, rowOffsetB, x, commonEnd, differences);
+                        if (x == commonEnd) {
+                            continue;
+                        }
+                        if (differences != null) {
+                            difference = getDifferenceInPercent(
+                                    dataA[rowOffsetA + x], dataB[rowOffsetB + x]);
+                        }
+                    }
+                    if (differences == null) {
+                        if (differenceFound != null) {
+                            differenceFound.set(true);
+                        }
+                        return true;
+                    }
+                    imagesDiffer = true;
+                    differences.addPixelDifference(difference);
+                    differences.addDifferentPixel(x, y);
+                    x++;
+                }
+                if (i < ignoredSpans.length) {
+                    x = ignoredSpans[i + 1];
+                }
+            }
+        }
+
+        return imagesDiffer;
     }
 
+    /**
+     * Returns the index of the first pixel in {@code start} (inclusive) to
+     * {@code end} (exclusive) that is different in A and B, or {@code end}
+     * when all pixels in that range are equal or within the tolerance.
+     *
+     * <p>Pixel {@code x} of A is {@code dataA[offsetA + x]}, of B
+     * {@code dataB[offsetB + x]}.</p>
+     *
+     * <p>When {@code differences} is not {@code null} the differences within
+     * the tolerance are added to it.</p>
+     *
+     * <p>This is the "inner loop" of the comparison, so it is written to be
+     * fast: the tolerance is checked on the total difference of the color
+     * channels, without computing percentages. When there is no tolerance
+     * the pixels are just compared bitwise.</p>
+     */
+    private int indexOfDifferentPixel(
+            int[] dataA,
+            int offsetA,
+            int[] dataB,
+            int offsetB,
+            int start,
+            int end,
+            @Nullable PixelDifferences differences) {
+
+        int mask = exactlyComparedBits;
+        if (maxTolerableTotalDifference <= 0) {
+            // exact comparison
+            for (int x = start; x < end; x++) {
+                if (((dataA[offsetA + x] ^ dataB[offsetB + x]) & mask) != 0) {
+                    return x;
+                }
+            }
+            return end;
+        }
+
+        // comparison with tolerance
+        //
+        // Pixels are compared in blocks. The loops over a block have no
+        // early exits, i.e. no (badly predictable) branches, and may be
+        // vectorized by the JIT. Blocks with equal pixels are skipped
+        // without computing total differences.
+        int maxTolerable = maxTolerableTotalDifference;
+        int maxTolerated = 0;
+        int x = start;
+        for (; x + COMPARE_BLOCK_SIZE <= end; x += COMPARE_BLOCK_SIZE) {
+            int differentBits = 0;
+            for (int k = x; k < x + COMPARE_BLOCK_SIZE; k++) {
+                differentBits |= dataA[offsetA + k] ^ dataB[offsetB + k];
+            }
+            if ((differentBits & mask) == 0) {
+                continue;
+            }
+            int blockMax = 0;
+            for (int k = x; k < x + COMPARE_BLOCK_SIZE; k++) {
+                blockMax = Math.max(blockMax, getTotalDifference(
+                        dataA[offsetA + k], dataB[offsetB + k]));
+            }
+            if (blockMax > maxTolerable) {
+                // the block contains a different pixel, find it below
+                break;
+            }
+            maxTolerated = Math.max(maxTolerated, blockMax);
+        }
+        for (; x < end; x++) {
+            int totalDifference = getTotalDifference(
+                    dataA[offsetA + x], dataB[offsetB + x]);
+            if (totalDifference > maxTolerable) {
+                break;
+            }
+            maxTolerated = Math.max(maxTolerated, totalDifference);
+        }
+        if (differences != null && maxTolerated > 0) {
+            differences.addPixelDifference(toPercent(maxTolerated));
+        }
+        return x;
+    }
 
     /**
      * Returns a new image of transparent white pixels with the same size as
@@ -273,24 +689,202 @@ public final class ImageCompare {
      * originalImage
      */
     public BufferedImage transparentImage(Image originalImage) {
-
         Dimension size = getSize(originalImage);
-        int h = size.height;
-        int w = size.width;
+        return newTransparentImage(size.width, size.height);
+    }
+
+    /**
+     * Matches a band of rows of an image with the rows of the expected images,
+     * splitting it into smaller bands running in parallel as long as the bands
+     * are large enough.
+     */
+    private final class MatchRowsTask extends RecursiveAction {
+        private final ImagePixels image;
+        private final ImagePixels[] expectedImages;
+        private final IgnoredRegion[] ignoredRegions;
+        private final int[] heights;
+        private final int startRow;
+        private final int endRow;
+        private final int minRowsPerTask;
+        private final StillMatchingImages stillMatching;
+
+        private MatchRowsTask(
+                ImagePixels image,
+                ImagePixels[] expectedImages,
+                IgnoredRegion[] ignoredRegions,
+                int[] heights,
+                int startRow,
+                int endRow,
+                int minRowsPerTask,
+                StillMatchingImages stillMatching) {
+            this.image = image;
+            this.expectedImages = expectedImages;
+            this.ignoredRegions = ignoredRegions;
+            this.heights = heights;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.minRowsPerTask = minRowsPerTask;
+            this.stillMatching = stillMatching;
+        }
 
-        int whiteTransparentPixel = getWhiteTransparentPixel();
-        int[] pixelsResult = new int[size.width * size.height];
+        @Override
+        protected void compute() {
+            int rowCount = endRow - startRow;
+            if (rowCount < 2 * minRowsPerTask) {
+                matchRows(image, expectedImages, ignoredRegions, heights,
+                        startRow, endRow, stillMatching);
+                return;
+            }
+
+            int middleRow = startRow + rowCount / 2;
+            invokeAll(
+                    new MatchRowsTask(image, expectedImages, ignoredRegions,
+                            heights, startRow, middleRow, minRowsPerTask, stillMatching),
+                    new MatchRowsTask(image, expectedImages, ignoredRegions,
+                            heights, middleRow, endRow, minRowsPerTask, stillMatching));
+        }
+    }
 
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                pixelsResult[y * w + x] = whiteTransparentPixel;
+    /**
+     * The set of (the indices of) the expected images still matching an image,
+     * i.e. of the expected images no difference was found for yet.
+     *
+     * <p>The set is a bit set, shared by comparisons running in parallel.</p>
+     */
+    private static final class StillMatchingImages {
+        private final AtomicLongArray bits;
+        private final AtomicInteger size;
+
+        private StillMatchingImages(int n) {
+            bits = new AtomicLongArray((n + 63) / 64);
+            for (int i = 0; i < n; i++) {
+                bits.set(i / 64, bits.get(i / 64) | (1L << (i % 64)));
             }
+            size = new AtomicInteger(n);
+        }
+
+        private boolean isEmpty() {
+            return size.get() == 0;
         }
 
-        return getImageFromPixels(pixelsResult, w, h);
+        /**
+         * Returns the first index in the set that is greater than or equal to
+         * {@code fromIndex}, or -1 when there is no such index.
+         */
+        private int nextIndex(int fromIndex) {
+            int wordIndex = fromIndex / 64;
+            if (wordIndex >= bits.length()) {
+                return -1;
+            }
+            long word = bits.get(wordIndex) & (-1L << (fromIndex % 64));
+            while (word == 0) {
+                wordIndex++;
+                if (wordIndex >= bits.length()) {
+                    return -1;
+                }
+                word = bits.get(wordIndex);
+            }
+            return wordIndex * 64 + Long.numberOfTrailingZeros(word);
+        }
+
+        private int firstIndex() {
+            return nextIndex(0);
+        }
+
+        private void remove(int index) {
+            int wordIndex = index / 64;
+            long mask = 1L << (index % 64);
+            while (true) {
+                long word = bits.get(wordIndex);
+                if ((word & mask) == 0) {
+                    // already removed (by another thread)
+                    return;
+                }
+                if (bits.compareAndSet(wordIndex, word, word & ~mask)) {
+                    size.decrementAndGet();
+                    return;
+                }
+            }
+        }
     }
 
-    private int getWhiteTransparentPixel() {
-        return getPixel(new Color(255, 255, 255, 0));
+    /**
+     * Compares a band of rows, splitting it into smaller bands running in
+     * parallel as long as the bands are large enough.
+     *
+     * <p>When {@code collectDifferences} is {@code true} the differences
+     * of the band are available via {@link #getDifferences()} after the
+     * task completed.</p>
+     */
+    private final class CompareRowsTask extends RecursiveTask<Boolean> {
+        private final ImagePixels pixelsA;
+        private final ImagePixels pixelsB;
+        private final int startRow;
+        private final int endRow;
+        private final int minRowsPerTask;
+        private final IgnoredRegion ignoredRegion;
+        private final boolean collectDifferences;
+        private final AtomicBoolean differenceFound;
+        private @Nullable PixelDifferences differences;
+
+        private CompareRowsTask(
+                ImagePixels pixelsA,
+                ImagePixels pixelsB,
+                int startRow,
+                int endRow,
+                int minRowsPerTask,
+                IgnoredRegion ignoredRegion,
+                boolean collectDifferences,
+                AtomicBoolean differenceFound) {
+            this.pixelsA = pixelsA;
+            this.pixelsB = pixelsB;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.minRowsPerTask = minRowsPerTask;
+            this.ignoredRegion = ignoredRegion;
+            this.collectDifferences = collectDifferences;
+            this.differenceFound = differenceFound;
+        }
+
+        @Nullable
+        private PixelDifferences getDifferences() {
+            return differences;
+        }
+
+        @Override
+        protected Boolean compute() {
+            int rowCount = endRow - startRow;
+            if (rowCount < 2 * minRowsPerTask) {
+                @Nullable PixelDifferences bandDifferences = collectDifferences
+                        ? new PixelDifferences(
+                        Math.max(pixelsA.getWidth(), pixelsB.getWidth()),
+                        Math.max(pixelsA.getHeight(), pixelsB.getHeight()))
+                        : null;
+                differences = bandDifferences;
+                return compareRows(
+                        pixelsA, pixelsB, startRow, endRow, ignoredRegion,
+                        bandDifferences, differenceFound);
+            }
+
+            int middleRow = startRow + rowCount / 2;
+            CompareRowsTask upperTask = new CompareRowsTask(
+                    pixelsA, pixelsB, startRow, middleRow, minRowsPerTask,
+                    ignoredRegion, collectDifferences, differenceFound);
+            CompareRowsTask lowerTask = new CompareRowsTask(
+                    pixelsA, pixelsB, middleRow, endRow, minRowsPerTask,
+                    ignoredRegion, collectDifferences, differenceFound);
+            lowerTask.fork();
+            boolean upperDiffers = upperTask.compute();
+            boolean lowerDiffers = lowerTask.join();
+
+            @Nullable PixelDifferences upperDifferences = upperTask.getDifferences();
+            @Nullable PixelDifferences lowerDifferences = lowerTask.getDifferences();
+            if (upperDifferences != null && lowerDifferences != null) {
+                upperDifferences.append(lowerDifferences);
+            }
+            differences = upperDifferences;
+
+            return upperDiffers || lowerDiffers;
+        }
     }
 }
@@ -24,34 +24,53 @@
 
 package org.abego.guitesting.swing.internal.screencapture;
 
+import org.abego.commons.seq.Seq;
 import org.abego.guitesting.swing.ScreenCaptureSupport;
 
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.abego.commons.seq.SeqUtil.newSeq;
 
 class ImageDifferenceImpl implements ScreenCaptureSupport.ImageDifference {
     private final boolean imagesAreDifferent;
     private final BufferedImage imageA;
     private final BufferedImage imageB;
-    private final BufferedImage differenceMask;
+    private final PixelDifferences differences;
+    private final Supplier<BufferedImage> differenceMaskSupplier;
+    private @Nullable BufferedImage differenceMask;
+    private @Nullable List<Rectangle> differenceRectangles;
 
     private ImageDifferenceImpl(
-            boolean imagesAreDifferent,
             BufferedImage imageA,
             BufferedImage imageB,
-            BufferedImage differenceMask) {
+            PixelDifferences differences,
+            Supplier<BufferedImage> differenceMaskSupplier) {
 
-        this.imagesAreDifferent = imagesAreDifferent;
+        this.imagesAreDifferent = differences.hasDifferentPixels();
         this.imageA = imageA;
         this.imageB = imageB;
-        this.differenceMask = differenceMask;
+        this.differences = differences;
+        this.differenceMaskSupplier = differenceMaskSupplier;
     }
 
+    /**
+     * Returns a new {@link ImageDifferenceImpl}.
+     *
+     * <p>The (possibly expensive) difference mask is only created
+     * on first access, using the {@code differenceMaskSupplier}.</p>
+     */
     static ImageDifferenceImpl of(
-            boolean imagesAreDifferent,
             BufferedImage imageA,
             BufferedImage imageB,
-            BufferedImage differenceMask) {
-        return new ImageDifferenceImpl(imagesAreDifferent, imageA, imageB, differenceMask);
+            PixelDifferences differences,
+            Supplier<BufferedImage> differenceMaskSupplier) {
+        return new ImageDifferenceImpl(
+                imageA, imageB, differences, differenceMaskSupplier);
     }
 
     @Override
@@ -70,7 +89,37 @@ class ImageDifferenceImpl implements ScreenCaptureSupport.ImageDifference {
     }
 
     @Override
-    public BufferedImage getDifferenceMask() {
-        return differenceMask;
+    public synchronized BufferedImage getDifferenceMask() {
+        BufferedImage result = differenceMask;
+        if (result == null) {
+            result = differenceMaskSupplier.get();
+            differenceMask = result;
+        }
+        return result;
+    }
+
+    @Override
+    public long getDifferentPixelsCount() {
+        return differences.getDifferentPixelsCount();
+    }
+
+    @Override
+    public double getDifferentPixelsPercentage() {
+        return differences.getDifferentPixelsPercentage();
+    }
+
+    @Override
+    public int getMaxPixelDifferencePercentage() {
+        return differences.getMaxDifferencePercentage();
+    }
+
+    @Override
+    public synchronized Seq<Rectangle> getDifferenceRectangles() {
+        List<Rectangle> result = differenceRectangles;
+        if (result == null) {
+            result = differences.getDifferenceRectangles();
+            differenceRectangles = result;
+        }
+        return newSeq(result);
     }
 }
@@ -0,0 +1,302 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal.screencapture;
+
+import java.awt.Dimension;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelGrabber;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+import static org.abego.guitesting.swing.internal.GuiTestingUtil.getSize;
+
+/**
+ * The pixels of an {@link Image}, as an {@code int} array in INT_ARGB format.
+ *
+ * <p>For {@link BufferedImage}s of type {@link BufferedImage#TYPE_INT_RGB}
+ * or {@link BufferedImage#TYPE_INT_ARGB} (the typical result of a screen
+ * capture) the pixels are accessed directly in the image's
+ * {@link DataBufferInt}, i.e. without copying them. Images of other types
+ * are converted once, when the {@link ImagePixels} object is created. Keep
+ * the object when comparing the same image over and over again
+ * (e.g. an expected image) to avoid repeated conversions.</p>
+ *
+ * <p>Pixel {@code (x,y)} is stored at
+ * {@code getData()[getOffset() + y * getScanlineStride() + x]}.</p>
+ *
+ * <p>For {@link BufferedImage#TYPE_INT_RGB} images the alpha bits of the
+ * pixels are undefined. Code using the pixels must ignore the alpha
+ * channel (as the image comparison does).</p>
+ */
+final class ImagePixels {
+    private static final long HASH_SEED = 0xcbf29ce484222325L;
+    private static final long HASH_MULTIPLIER = 0x100000001b3L;
+
+    private final int width;
+    private final int height;
+    private final int[] data;
+    private final int offset;
+    private final int scanlineStride;
+    /**
+     * The alpha bits to set in every pixel of {@link #getData()} to get the
+     * pixel's actual ARGB value: {@code 0xFF000000} when the alpha bits in
+     * {@link #getData()} are undefined (as the image is opaque), 0
+     * otherwise.
+     */
+    private final int alphaFill;
+    /**
+     * The {@link #getContentHash()}, or 0 when not yet computed.
+     */
+    private long contentHash;
+    /**
+     * The {@link #getFullContentHash()}, or 0 when not yet computed.
+     */
+    private long fullContentHash;
+
+    private ImagePixels(
+            int width, int height, int[] data, int offset, int scanlineStride,
+            int alphaFill) {
+        this.width = width;
+        this.height = height;
+        this.data = data;
+        this.offset = offset;
+        this.scanlineStride = scanlineStride;
+        this.alphaFill = alphaFill;
+    }
+
+    static ImagePixels of(Image image) {
+        if (image instanceof BufferedImage) {
+            BufferedImage bufferedImage = (BufferedImage) image;
+            return canAccessDirectly(bufferedImage)
+                    ? ofIntImage(bufferedImage)
+                    : ofConvertedImage(bufferedImage);
+        }
+        return ofGrabbedImage(image);
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the array holding the pixels (in INT_ARGB format).
+     *
+     * <p>The array may be shared with the image and may contain more items
+     * than {@code width * height}. Use {@link #getOffset()} and
+     * {@link #getScanlineStride()} to locate the pixels. The array must not
+     * be modified.</p>
+     *
+     * @return the array holding the pixels (in INT_ARGB format)
+     */
+    int[] getData() {
+        return data;
+    }
+
+    /**
+     * Returns the index of pixel {@code (0,0)} in {@link #getData()}.
+     *
+     * @return the index of pixel {@code (0,0)} in {@link #getData()}
+     */
+    int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the distance (in array items) between the first pixels of two
+     * adjacent rows in {@link #getData()}.
+     *
+     * @return the distance between the first pixels of two adjacent rows
+     */
+    int getScanlineStride() {
+        return scanlineStride;
+    }
+
+    /**
+     * Returns a 64 bit hash value of the size and the RGB values of the
+     * pixels (i.e. ignoring the alpha channel).
+     *
+     * <p>Images with the same size and RGB values have the same hash value.
+     * The hash is computed on the first call, in a single pass over the
+     * pixels, and then cached. As {@link ImagePixels} may share the pixels
+     * with the image the hash value is undefined when the image is modified
+     * after the first call.</p>
+     *
+     * @return a 64 bit hash value of the size and the RGB values of the pixels
+     */
+    long getContentHash() {
+        long result = contentHash;
+        if (result == 0) {
+            result = computeContentHash(0xFFFFFF, 0);
+            contentHash = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a 64 bit hash value of the size and the ARGB values of the
+     * pixels (i.e. including the alpha channel).
+     *
+     * <p>Use this hash to address images by their content, i.e. when images
+     * differing only in their alpha channel must be distinguished. To
+     * match images use {@link #getContentHash()}.</p>
+     *
+     * <p>The pixels of opaque images (e.g. {@link BufferedImage#TYPE_INT_RGB})
+     * have the alpha value {@code 0xFF}. Like {@link #getContentHash()} the
+     * hash is cached.</p>
+     *
+     * @return a 64 bit hash value of the size and the ARGB values of the
+     * pixels
+     */
+    long getFullContentHash() {
+        long result = fullContentHash;
+        if (result == 0) {
+            result = computeContentHash(0xFFFFFFFF, alphaFill);
+            fullContentHash = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the hash of the pixels, using the bits {@code pixelMask} of
+     * every pixel, after setting the bits {@code pixelFill}.
+     */
+    private long computeContentHash(int pixelMask, int pixelFill) {
+        // Four independent "lanes" (for pixels x % 4 == 0, 1, 2, 3), to make
+        // better use of the CPU's pipeline. In each lane every step
+        // ("xor the pixel, multiply by an odd constant") is a bijection, so
+        // a single different pixel always results in a different hash.
+        long h0 = HASH_SEED;
+        long h1 = Long.rotateLeft(HASH_SEED, 16);
+        long h2 = Long.rotateLeft(HASH_SEED, 32);
+        long h3 = Long.rotateLeft(HASH_SEED, 48);
+        for (int y = 0; y < height; y++) {
+            int i = getRowOffset(y);
+            int end = i + width;
+            for (; i + 3 < end; i += 4) {
+                h0 = (h0 ^ ((data[i] | pixelFill) & pixelMask)) * HASH_MULTIPLIER;
+                h1 = (h1 ^ ((data[i + 1] | pixelFill) & pixelMask)) * HASH_MULTIPLIER;
+                h2 = (h2 ^ ((data[i + 2] | pixelFill) & pixelMask)) * HASH_MULTIPLIER;
+                h3 = (h3 ^ ((data[i + 3] | pixelFill) & pixelMask)) * HASH_MULTIPLIER;
+            }
+            for (; i < end; i++) {
+                h0 = (h0 ^ ((data[i] | pixelFill) & pixelMask)) * HASH_MULTIPLIER;
+            }
+        }
+        long h = mix(h0 ^ width);
+        h = mix(h ^ Long.rotateLeft(h1, 17) ^ ((long) height << 32));
+        h = mix(h ^ Long.rotateLeft(h2, 31));
+        h = mix(h ^ Long.rotateLeft(h3, 47));
+        // 0 marks "not yet computed"
+        return h != 0 ? h : 1;
+    }
+
+    /**
+     * The "finalizer" of the MurmurHash3 64 bit hash function, making every
+     * bit of the result depend on every bit of {@code h}.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Returns the index of the first pixel of row {@code y} in
+     * {@link #getData()}.
+     *
+     * @param y the row
+     * @return the index of the first pixel of row {@code y}
+     */
+    int getRowOffset(int y) {
+        return offset + y * scanlineStride;
+    }
+
+    private static boolean canAccessDirectly(BufferedImage image) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB) {
+            return false;
+        }
+        WritableRaster raster = image.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        return dataBuffer instanceof DataBufferInt
+                && dataBuffer.getNumBanks() == 1
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel;
+    }
+
+    private static ImagePixels ofIntImage(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+        SinglePixelPackedSampleModel sampleModel =
+                (SinglePixelPackedSampleModel) raster.getSampleModel();
+
+        // the raster may be a "child" of a larger raster
+        // (e.g. for images created by "getSubimage").
+        int offset = dataBuffer.getOffset() + sampleModel.getOffset(
+                -raster.getSampleModelTranslateX(),
+                -raster.getSampleModelTranslateY());
+        return new ImagePixels(
+                raster.getWidth(),
+                raster.getHeight(),
+                dataBuffer.getData(),
+                offset,
+                sampleModel.getScanlineStride(),
+                // the alpha bits of TYPE_INT_RGB images are undefined
+                image.getType() == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0);
+    }
+
+    private static ImagePixels ofConvertedImage(BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, w, h, null, 0, w);
+        return new ImagePixels(w, h, pixels, 0, w, 0);
+    }
+
+    /**
+     * @param image [must be loaded completely]
+     */
+    private static ImagePixels ofGrabbedImage(Image image) {
+        Dimension size = getSize(image);
+        int[] pixels = new int[size.width * size.height];
+        PixelGrabber pg = new PixelGrabber(
+                image, 0, 0, size.width, size.height, pixels, 0, size.width);
+        try {
+            pg.grabPixels();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(
+                    "Unexpected interrupt when retrieving image pixels", e); //NON-NLS
+        }
+        return new ImagePixels(size.width, size.height, pixels, 0, size.width, 0);
+    }
+}
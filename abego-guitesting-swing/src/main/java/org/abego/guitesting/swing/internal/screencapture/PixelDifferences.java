@@ -0,0 +1,283 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal.screencapture;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The different pixels found when comparing two images, collected while
+ * comparing the images.
+ *
+ * <p>The different pixels are stored as "runs", i.e. horizontal sequences
+ * of adjacent different pixels in a row. This is typically a lot
+ * smaller than a mask image for the full image size. The runs are stored
+ * in the order they are added, i.e. sorted by row and column when the
+ * image is compared from top to bottom and left to right.</p>
+ */
+final class PixelDifferences {
+    private final int width;
+    private final int height;
+    /**
+     * The runs of different pixels, as triples {@code (y, startX, endX)},
+     * with {@code endX} exclusive.
+     */
+    private int[] runs = new int[3 * 16];
+    private int runsLength;
+    private long differentPixelsCount;
+    private int maxDifferencePercentage;
+
+    /**
+     * @param width  the width of the compared area, i.e. the larger width
+     *               of the compared images
+     * @param height the height of the compared area, i.e. the larger height
+     *               of the compared images
+     */
+    PixelDifferences(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Adds the different pixel {@code (x,y)}.
+     *
+     * <p>Pixels must be added row by row, and from left to right within a
+     * row.</p>
+     */
+    void addDifferentPixel(int x, int y) {
+        differentPixelsCount++;
+        // extend the last run when the pixel is right of it
+        int last = runsLength - 3;
+        if (last >= 0 && runs[last] == y && runs[last + 2] == x) {
+            runs[last + 2] = x + 1;
+            return;
+        }
+        if (runsLength == runs.length) {
+            runs = Arrays.copyOf(runs, 2 * runsLength);
+        }
+        runs[runsLength++] = y;
+        runs[runsLength++] = x;
+        runs[runsLength++] = x + 1;
+    }
+
+    /**
+     * Takes note of a pixel difference of {@code differencePercentage},
+     * of a pixel that may or may not be considered different.
+     */
+    void addPixelDifference(int differencePercentage) {
+        if (differencePercentage > maxDifferencePercentage) {
+            maxDifferencePercentage = differencePercentage;
+        }
+    }
+
+    /**
+     * Appends the differences of {@code other} to this object.
+     *
+     * <p>All runs of {@code other} must be "below" the runs of this
+     * object.</p>
+     */
+    void append(PixelDifferences other) {
+        if (runsLength + other.runsLength > runs.length) {
+            runs = Arrays.copyOf(runs, runsLength + other.runsLength);
+        }
+        System.arraycopy(other.runs, 0, runs, runsLength, other.runsLength);
+        runsLength += other.runsLength;
+        differentPixelsCount += other.differentPixelsCount;
+        addPixelDifference(other.maxDifferencePercentage);
+    }
+
+    boolean hasDifferentPixels() {
+        return differentPixelsCount > 0;
+    }
+
+    long getDifferentPixelsCount() {
+        return differentPixelsCount;
+    }
+
+    /**
+     * Returns the percentage of different pixels of all pixels of the
+     * compared area.
+     */
+    double getDifferentPixelsPercentage() {
+        long pixelsCount = (long) width * height;
+        return pixelsCount == 0 ? 0 : 100.0 * differentPixelsCount / pixelsCount;
+    }
+
+    /**
+     * Returns the maximal difference between two compared pixels, in
+     * percent, including the differences that are within the tolerance.
+     *
+     * <p>Pixels only existing in one image have a difference of 100%.</p>
+     */
+    int getMaxDifferencePercentage() {
+        return maxDifferencePercentage;
+    }
+
+    int getRunsCount() {
+        return runsLength / 3;
+    }
+
+    int getRunY(int i) {
+        return runs[3 * i];
+    }
+
+    int getRunStartX(int i) {
+        return runs[3 * i + 1];
+    }
+
+    int getRunEndX(int i) {
+        return runs[3 * i + 2];
+    }
+
+    /**
+     * Returns the bounding rectangles of the regions of different pixels.
+     *
+     * <p>Different pixels that are adjacent (horizontally, vertically or
+     * diagonally) belong to the same region. The bounding rectangles of
+     * regions are merged when they intersect, so the rectangles returned
+     * do not overlap.</p>
+     *
+     * <p>The rectangles are sorted by their top and left position.</p>
+     */
+    List<Rectangle> getDifferenceRectangles() {
+        int n = getRunsCount();
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+
+        // Join the runs of a row with the touching runs of the row above
+        // (runs are sorted by row and column)
+        int previousRowStart = 0;
+        int previousRowEnd = 0;
+        int rowStart = 0;
+        while (rowStart < n) {
+            int y = getRunY(rowStart);
+            int rowEnd = rowStart;
+            while (rowEnd < n && getRunY(rowEnd) == y) {
+                rowEnd++;
+            }
+            if (previousRowEnd > previousRowStart
+                    && getRunY(previousRowStart) == y - 1) {
+                int j = previousRowStart;
+                for (int i = rowStart; i < rowEnd; i++) {
+                    // skip the runs above that end left of run i
+                    while (j < previousRowEnd && getRunEndX(j) < getRunStartX(i)) {
+                        j++;
+                    }
+                    // join with all runs above that touch run i
+                    for (int k = j; k < previousRowEnd
+                            && getRunStartX(k) <= getRunEndX(i); k++) {
+                        union(parent, i, k);
+                    }
+                }
+            }
+            previousRowStart = rowStart;
+            previousRowEnd = rowEnd;
+            rowStart = rowEnd;
+        }
+
+        // the bounding rectangles of the regions
+        // (the root of a region is its first run)
+        List<Rectangle> rectangles = new ArrayList<>();
+        int[] rectangleIndexOfRoot = new int[n];
+        for (int i = 0; i < n; i++) {
+            int root = find(parent, i);
+            Rectangle runRectangle = new Rectangle(
+                    getRunStartX(i), getRunY(i),
+                    getRunEndX(i) - getRunStartX(i), 1);
+            if (root == i) {
+                rectangleIndexOfRoot[i] = rectangles.size();
+                rectangles.add(runRectangle);
+            } else {
+                rectangles.get(rectangleIndexOfRoot[root]).add(runRectangle);
+            }
+        }
+
+        return mergeIntersectingRectangles(rectangles);
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int i, int j) {
+        int rootI = find(parent, i);
+        int rootJ = find(parent, j);
+        if (rootI != rootJ) {
+            // keep the smaller index as the root, i.e. the first run of a
+            // region is its root
+            parent[Math.max(rootI, rootJ)] = Math.min(rootI, rootJ);
+        }
+    }
+
+    private static List<Rectangle> mergeIntersectingRectangles(
+            List<Rectangle> rectangles) {
+        List<Rectangle> result = new ArrayList<>(rectangles);
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            result.sort(Comparator.comparingInt((Rectangle r) -> r.x));
+            List<Rectangle> next = new ArrayList<>();
+            boolean[] done = new boolean[result.size()];
+            for (int i = 0; i < result.size(); i++) {
+                if (done[i]) {
+                    continue;
+                }
+                Rectangle r = new Rectangle(result.get(i));
+                // (as the rectangles are sorted by x we can stop as soon
+                // as a rectangle starts right of r)
+                for (int j = i + 1; j < result.size()
+                        && result.get(j).x < r.x + r.width; j++) {
+                    if (!done[j] && r.intersects(result.get(j))) {
+                        r.add(result.get(j));
+                        done[j] = true;
+                        merged = true;
+                    }
+                }
+                next.add(r);
+            }
+            result = next;
+        }
+        result.sort(Comparator.comparingInt((Rectangle r) -> r.y)
+                .thenComparingInt(r -> r.x));
+        return result;
+    }
+}
@@ -0,0 +1,439 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.abego.guitesting.swing.GuiTestingException;
+import org.abego.guitesting.swing.ScreenCaptureSupport.PngEncoding;
+import org.abego.guitesting.swing.ScreenCaptureSupport.PngEncodingStatistics;
+import org.abego.guitesting.swing.internal.GuiTestingUtil;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static java.util.logging.Logger.getLogger;
+
+/**
+ * Writes images to PNG files, using a {@link PngEncoding}.
+ *
+ * <p>{@link PngEncoding#DEFAULT} uses {@link javax.imageio.ImageIO}. The
+ * other encodings use the encoder implemented here, writing 8 bit RGB or
+ * RGBA images (depending on the image having an alpha channel), with
+ * different compression levels.</p>
+ *
+ * <p>The rows are not filtered. Screenshots of user interfaces have large
+ * areas of the same color and repeating patterns (e.g. text), that deflate
+ * compresses better than the filtered rows (measured with screenshots of
+ * Swing components). For such images {@link PngEncoding#COMPACT} creates
+ * smaller files than {@link javax.imageio.ImageIO}, that always filters
+ * the rows.</p>
+ *
+ * <p>Large images are compressed in parallel: the image is split into
+ * segments of rows that are compressed independently and then concatenated
+ * into a single zlib stream.</p>
+ *
+ * <p>The encoder keeps statistics (number of images, encoding time, size of
+ * the files) per encoding (see
+ * {@link org.abego.guitesting.swing.ScreenCaptureSupport#getPngEncodingStatistics(PngEncoding)}),
+ * and logs them per image (level {@link Level#FINE}).</p>
+ */
+final class PngEncoder {
+    private static final Logger LOGGER = getLogger(PngEncoder.class.getName());
+    private static final byte[] PNG_SIGNATURE =
+            {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final byte FILTER_NONE = 0;
+    /**
+     * The (approximate) number of uncompressed bytes in a segment compressed
+     * in parallel. Images with less bytes are compressed in a single
+     * segment.
+     */
+    private static final int SEGMENT_SIZE = 1 << 20;
+    private static final int MAX_IDAT_CHUNK_SIZE = 1 << 20;
+    private static final int ADLER_BASE = 65521;
+
+    private static final PngEncoder DEFAULT_ENCODER = new PngEncoder(PngEncoding.DEFAULT, 0);
+    private static final PngEncoder FAST_ENCODER = new PngEncoder(PngEncoding.FAST, 1);
+    private static final PngEncoder COMPACT_ENCODER = new PngEncoder(PngEncoding.COMPACT, 9);
+
+    private final PngEncoding encoding;
+    private final int deflateLevel;
+    private final PngEncodingStatisticsImpl statistics = new PngEncodingStatisticsImpl();
+
+    private PngEncoder(PngEncoding encoding, int deflateLevel) {
+        this.encoding = encoding;
+        this.deflateLevel = deflateLevel;
+    }
+
+    static PngEncoder pngEncoder(PngEncoding encoding) {
+        switch (encoding) {
+            case FAST:
+                return FAST_ENCODER;
+            case COMPACT:
+                return COMPACT_ENCODER;
+            default:
+                return DEFAULT_ENCODER;
+        }
+    }
+
+    /**
+     * Writes the {@code image} to the PNG {@code file}.
+     */
+    void writeImage(BufferedImage image, File file) {
+        long start = System.nanoTime();
+        if (encoding == PngEncoding.DEFAULT) {
+            GuiTestingUtil.writeImage(image, file);
+        } else {
+            GuiTestingUtil.checkIsPngFilename(file);
+            //noinspection ResultOfMethodCallIgnored
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                write(image, out);
+            } catch (IOException e) {
+                throw new GuiTestingException(
+                        String.format("Error when writing image to %s", file.getAbsolutePath()), e); //NON-NLS
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        long size = file.length();
+
+        statistics.add(nanos, size);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(String.format("PNG image written (%s, %dx%d, %d ms, %d bytes): %s", //NON-NLS
+                    encoding, image.getWidth(), image.getHeight(),
+                    nanos / 1_000_000, size, file.getAbsolutePath()));
+        }
+    }
+
+    /**
+     * Returns the number of images written by this encoder.
+     */
+    long getImageCount() {
+        return statistics.getImagesCount();
+    }
+
+    /**
+     * Returns the total time spent writing images with this encoder.
+     */
+    Duration getEncodingTime() {
+        return statistics.getEncodingTime();
+    }
+
+    /**
+     * Returns the total size (in bytes) of the files written by this
+     * encoder.
+     */
+    long getOutputSize() {
+        return statistics.getOutputSize();
+    }
+
+    /**
+     * Returns the statistics of the images written by this encoder, as of
+     * now.
+     */
+    PngEncodingStatistics getStatistics() {
+        return statistics.snapshot();
+    }
+
+    /**
+     * Resets the statistics of all encoders.
+     */
+    static void resetAllStatistics() {
+        DEFAULT_ENCODER.statistics.reset();
+        FAST_ENCODER.statistics.reset();
+        COMPACT_ENCODER.statistics.reset();
+    }
+
+    /**
+     * Writes the {@code image} as a PNG to {@code out}.
+     */
+    void write(BufferedImage image, OutputStream out) throws IOException {
+        if (encoding == PngEncoding.DEFAULT) {
+            if (!ImageIO.write(image, "png", out)) { //NON-NLS
+                throw new GuiTestingException("No PNG writer found"); //NON-NLS
+            }
+            return;
+        }
+
+        ImagePixels pixels = ImagePixels.of(image);
+        boolean hasAlpha = image.getColorModel().hasAlpha();
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(PNG_SIGNATURE);
+
+        byte[] header = new byte[13];
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        header[8] = 8; // bit depth
+        header[9] = (byte) (hasAlpha ? 6 : 2); // color type: RGBA or RGB
+        // compression method, filter method, interlace method: all 0
+        writeChunk(data, "IHDR", header, 0, header.length); //NON-NLS
+
+        byte[] zlibData = compress(pixels, hasAlpha);
+        for (int i = 0; i < zlibData.length; i += MAX_IDAT_CHUNK_SIZE) {
+            writeChunk(data, "IDAT", zlibData, i, //NON-NLS
+                    Math.min(MAX_IDAT_CHUNK_SIZE, zlibData.length - i));
+        }
+        writeChunk(data, "IEND", new byte[0], 0, 0); //NON-NLS
+        data.flush();
+    }
+
+    /**
+     * Returns the zlib stream of the rows of the image.
+     */
+    private byte[] compress(ImagePixels pixels, boolean hasAlpha) {
+        int bytesPerPixel = hasAlpha ? 4 : 3;
+        int height = pixels.getHeight();
+        int rowSize = 1 + pixels.getWidth() * bytesPerPixel;
+        int rowsPerSegment = Math.max(1, SEGMENT_SIZE / rowSize);
+        int segmentCount = Math.max(1, (height + rowsPerSegment - 1) / rowsPerSegment);
+
+        IntStream segments = IntStream.range(0, segmentCount);
+        if (segmentCount > 1) {
+            segments = segments.parallel();
+        }
+        Segment[] compressedSegments = segments
+                .mapToObj(i -> compressSegment(
+                        pixels, bytesPerPixel,
+                        i * rowsPerSegment,
+                        Math.min(height, (i + 1) * rowsPerSegment),
+                        i == segmentCount - 1))
+                .toArray(Segment[]::new);
+
+        int size = 2 + 4;
+        for (Segment segment : compressedSegments) {
+            size += segment.compressedSize;
+        }
+        byte[] result = new byte[size];
+        result[0] = 0x78; // deflate, 32K window
+        result[1] = (byte) zlibFlags(deflateLevel);
+        int pos = 2;
+        long adler = 1;
+        for (Segment segment : compressedSegments) {
+            System.arraycopy(segment.compressedData, 0, result, pos, segment.compressedSize);
+            pos += segment.compressedSize;
+            adler = combineAdler32(adler, segment.adler32, segment.uncompressedSize);
+        }
+        writeInt(result, pos, (int) adler);
+        return result;
+    }
+
+    /**
+     * Compresses the rows {@code startRow} (inclusive) to {@code endRow}
+     * (exclusive) ("raw" deflate, without zlib header
+     * and checksum).
+     *
+     * <p>Only the {@code last} segment ends the deflate stream, the others
+     * end with a "sync flush", so the segments can be concatenated.</p>
+     */
+    private Segment compressSegment(
+            ImagePixels pixels, int bytesPerPixel,
+            int startRow, int endRow, boolean last) {
+        int rowSize = 1 + pixels.getWidth() * bytesPerPixel;
+        byte[] uncompressed = new byte[(endRow - startRow) * rowSize];
+        int pos = 0;
+        for (int y = startRow; y < endRow; y++) {
+            uncompressed[pos] = FILTER_NONE;
+            getRowBytes(pixels, y, bytesPerPixel, uncompressed, pos + 1);
+            pos += rowSize;
+        }
+
+        Adler32 adler32 = new Adler32();
+        adler32.update(uncompressed, 0, uncompressed.length);
+
+        Deflater deflater = new Deflater(deflateLevel, true);
+        try {
+            deflater.setInput(uncompressed);
+            if (last) {
+                deflater.finish();
+            }
+            byte[] compressed = new byte[uncompressed.length / 2 + 64];
+            int size = 0;
+            while (true) {
+                if (size == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                size += deflater.deflate(compressed, size, compressed.length - size,
+                        last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                if (last
+                        ? deflater.finished()
+                        : deflater.needsInput() && size < compressed.length) {
+                    break;
+                }
+            }
+            return new Segment(compressed, size, uncompressed.length, adler32.getValue());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Writes the RGB (or RGBA) bytes of row {@code y} to {@code row},
+     * starting at {@code pos}.
+     */
+    private static void getRowBytes(
+            ImagePixels pixels, int y, int bytesPerPixel, byte[] row, int pos) {
+        int[] data = pixels.getData();
+        int i = pixels.getOffset() + y * pixels.getScanlineStride();
+        int end = i + pixels.getWidth();
+        for (; i < end; i++) {
+            int pixel = data[i];
+            row[pos++] = (byte) (pixel >>> 16);
+            row[pos++] = (byte) (pixel >>> 8);
+            row[pos++] = (byte) pixel;
+            if (bytesPerPixel == 4) {
+                row[pos++] = (byte) (pixel >>> 24);
+            }
+        }
+    }
+
+    /**
+     * Returns the second byte of the zlib header (FLG), for the given
+     * compression level.
+     */
+    private static int zlibFlags(int deflateLevel) {
+        int level = deflateLevel <= 1 ? 0 : deflateLevel <= 5 ? 1 : deflateLevel == 6 ? 2 : 3;
+        int flags = level << 6;
+        // the header (CMF * 256 + FLG) must be a multiple of 31
+        return flags + 31 - ((0x78 * 256 + flags) % 31);
+    }
+
+    /**
+     * Returns the Adler-32 checksum of the concatenation of two byte
+     * sequences, given the checksums of both sequences ({@code adler1},
+     * {@code adler2}) and the length of the second one ({@code length2})
+     * (as zlib's "adler32_combine").
+     */
+    static long combineAdler32(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xffff) + ((adler2 >>> 16) & 0xffff) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= (ADLER_BASE << 1)) {
+            sum2 -= (ADLER_BASE << 1);
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    private static void writeChunk(
+            DataOutputStream out, String type, byte[] data, int offset, int length)
+            throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, offset, length);
+
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, offset, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void writeInt(byte[] bytes, int pos, int value) {
+        bytes[pos] = (byte) (value >>> 24);
+        bytes[pos + 1] = (byte) (value >>> 16);
+        bytes[pos + 2] = (byte) (value >>> 8);
+        bytes[pos + 3] = (byte) value;
+    }
+
+    private static final class Segment {
+        private final byte[] compressedData;
+        private final int compressedSize;
+        private final int uncompressedSize;
+        private final long adler32;
+
+        private Segment(byte[] compressedData, int compressedSize, int uncompressedSize, long adler32) {
+            this.compressedData = compressedData;
+            this.compressedSize = compressedSize;
+            this.uncompressedSize = uncompressedSize;
+            this.adler32 = adler32;
+        }
+    }
+
+    private static final class PngEncodingStatisticsImpl implements PngEncodingStatistics {
+        private long imagesCount;
+        private long encodingNanos;
+        private long outputSize;
+
+        synchronized void add(long nanos, long size) {
+            imagesCount++;
+            encodingNanos += nanos;
+            outputSize += size;
+        }
+
+        synchronized void reset() {
+            imagesCount = 0;
+            encodingNanos = 0;
+            outputSize = 0;
+        }
+
+        synchronized PngEncodingStatisticsImpl snapshot() {
+            PngEncodingStatisticsImpl result = new PngEncodingStatisticsImpl();
+            result.imagesCount = imagesCount;
+            result.encodingNanos = encodingNanos;
+            result.outputSize = outputSize;
+            return result;
+        }
+
+        @Override
+        public synchronized long getImagesCount() {
+            return imagesCount;
+        }
+
+        @Override
+        public synchronized Duration getEncodingTime() {
+            return Duration.ofNanos(encodingNanos);
+        }
+
+        @Override
+        public synchronized long getOutputSize() {
+            return outputSize;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.abego.commons.swing.SwingUtilitiesUtil;
+import org.eclipse.jdt.annotation.Nullable;
+
+import javax.swing.JComponent;
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+import java.awt.Component;
+import java.awt.Rectangle;
+import java.awt.Window;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks the areas of a {@link Component} repainted by Swing.
+ *
+ * <p>While the tracker is open it replaces the current {@link RepaintManager}
+ * by a {@link RepaintManager} that records the dirty regions of all
+ * components and reports the regions overlapping the tracked component
+ * after they are painted. The new {@link RepaintManager} takes over the
+ * double buffering configuration of the previous one. Closing the tracker
+ * restores the previous {@link RepaintManager}.</p>
+ *
+ * <p>The {@link RepaintManager}s are swapped in the Event Dispatch Thread,
+ * i.e. never while a {@link RepaintManager} is painting.</p>
+ */
+final class RepaintTracker implements AutoCloseable {
+    private final Component component;
+    private final RepaintManager previousRepaintManager;
+    /**
+     * The dirty regions added since the last {@code paintDirtyRegions},
+     * as pairs of a component and a rectangle in coordinates relative to
+     * that component.
+     * <p>
+     * Guarded by {@code this}.
+     */
+    private List<Component> dirtyComponents = new ArrayList<>();
+    private List<Rectangle> dirtyRegions = new ArrayList<>();
+    /**
+     * The repainted area of the tracked {@code component} not yet reported by
+     * {@link #waitForRepaint(Duration)}, in coordinates relative to the
+     * component, or {@code null} when nothing was repainted.
+     * <p>
+     * Guarded by {@code this}.
+     */
+    private @Nullable Rectangle repaintedArea;
+
+    private RepaintTracker(
+            Component component, RepaintManager previousRepaintManager) {
+        this.component = component;
+        this.previousRepaintManager = previousRepaintManager;
+    }
+
+    /**
+     * Returns a new {@link RepaintTracker} tracking the repainted areas of
+     * the {@code component}, or {@code null} when the repaints of the
+     * component cannot be tracked.
+     *
+     * <p>Repaints can only be tracked for components showing on the screen
+     * and only when Swing's default {@link RepaintManager} is used.</p>
+     */
+    @Nullable
+    static RepaintTracker trackRepaints(Component component) {
+        if (!component.isShowing()) {
+            return null;
+        }
+        RepaintManager repaintManager = RepaintManager.currentManager(component);
+        // We don't replace custom RepaintManagers, as we would lose their
+        // behaviour (this also avoids nested trackers).
+        if (repaintManager.getClass() != RepaintManager.class) {
+            return null;
+        }
+        RepaintTracker tracker = new RepaintTracker(component, repaintManager);
+        RepaintManager trackingRepaintManager =
+                tracker.new TrackingRepaintManager();
+        trackingRepaintManager.setDoubleBufferingEnabled(
+                repaintManager.isDoubleBufferingEnabled());
+        trackingRepaintManager.setDoubleBufferMaximumSize(
+                repaintManager.getDoubleBufferMaximumSize());
+        SwingUtilitiesUtil.runInEDT(
+                () -> RepaintManager.setCurrentManager(trackingRepaintManager));
+        return tracker;
+    }
+
+    @Override
+    public void close() {
+        SwingUtilitiesUtil.runInEDT(
+                () -> RepaintManager.setCurrentManager(previousRepaintManager));
+    }
+
+    /**
+     * Waits until (a part of) the component was repainted, or the
+     * {@code timeout} elapsed.
+     *
+     * <p>Returns the area of the component repainted since the last call
+     * (in coordinates relative to the component), or {@code null} when
+     * nothing was repainted before the timeout.</p>
+     */
+    @Nullable
+    synchronized Rectangle waitForRepaint(Duration timeout) {
+        long end = System.nanoTime() + timeout.toNanos();
+        long remainingMillis = timeout.toMillis();
+        while (repaintedArea == null && remainingMillis > 0) {
+            try {
+                wait(remainingMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            remainingMillis = (end - System.nanoTime()) / 1_000_000;
+        }
+        @Nullable Rectangle result = repaintedArea;
+        repaintedArea = null;
+        return result;
+    }
+
+    private synchronized void addDirtyRegion(
+            Component c, int x, int y, int w, int h) {
+        dirtyComponents.add(c);
+        dirtyRegions.add(new Rectangle(x, y, w, h));
+    }
+
+    /**
+     * Reports the dirty regions overlapping the {@code component}, after
+     * they are painted.
+     *
+     * <p>Must be called in the Event Dispatch Thread.</p>
+     */
+    private void dirtyRegionsPainted() {
+        List<Component> components;
+        List<Rectangle> regions;
+        synchronized (this) {
+            if (dirtyComponents.isEmpty()) {
+                return;
+            }
+            components = dirtyComponents;
+            regions = dirtyRegions;
+            dirtyComponents = new ArrayList<>();
+            dirtyRegions = new ArrayList<>();
+        }
+
+        // Any component of the component's window may paint over the
+        // component, not only the component itself, its ancestors or
+        // descendants (e.g. the glass pane)
+        Component root = SwingUtilities.getRoot(component);
+        Rectangle componentBounds = new Rectangle(component.getSize());
+        @Nullable Rectangle area = null;
+        for (int i = 0; i < components.size(); i++) {
+            Component c = components.get(i);
+            if (SwingUtilities.getRoot(c) != root) {
+                continue;
+            }
+            Rectangle r = SwingUtilities.convertRectangle(
+                    c, regions.get(i), component).intersection(componentBounds);
+            if (!r.isEmpty()) {
+                area = area == null ? r : area.union(r);
+            }
+        }
+        if (area != null) {
+            synchronized (this) {
+                repaintedArea = repaintedArea == null ? area : repaintedArea.union(area);
+                notifyAll();
+            }
+        }
+    }
+
+    private class TrackingRepaintManager extends RepaintManager {
+        @Override
+        public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+            RepaintTracker.this.addDirtyRegion(c, x, y, w, h);
+            super.addDirtyRegion(c, x, y, w, h);
+        }
+
+        @Override
+        public void addDirtyRegion(Window window, int x, int y, int w, int h) {
+            RepaintTracker.this.addDirtyRegion(window, x, y, w, h);
+            super.addDirtyRegion(window, x, y, w, h);
+        }
+
+        @Override
+        public void paintDirtyRegions() {
+            super.paintDirtyRegions();
+            dirtyRegionsPainted();
+        }
+    }
+}
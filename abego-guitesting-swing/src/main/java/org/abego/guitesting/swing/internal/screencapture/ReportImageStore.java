@@ -0,0 +1,283 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.abego.guitesting.swing.GuiTestingException;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * Stores the images of screenshot compare reports content-addressed, i.e.
+ * in files named after the content of the image (its size and
+ * {@link ImagePixels#getFullContentHash()}, i.e. including the alpha
+ * channel, so images differing only in their transparency are stored in
+ * different files).
+ *
+ * <p>The same expected image is often part of many reports, e.g. when the
+ * same snapshot fails in many tests. With the content-addressed storage
+ * every distinct image is written only once. Image files already written
+ * by an earlier run are reused.</p>
+ *
+ * <p>The image files are stored in the {@value #CONTENT_DIRECTORY_NAME}
+ * directory of the images directory, their thumbnails (see
+ * {@link #storeThumbnail(BufferedImage, String, PngEncoder)}) in the
+ * {@value #THUMBNAILS_DIRECTORY_NAME} directory. The images of a report are listed in
+ * a "references" file in the images directory (see
+ * {@link #writeReferences(String, String, List)}), used by the
+ * {@link SnapshotIssueSupport} to find the images of a snapshot issue.</p>
+ */
+final class ReportImageStore {
+    static final String CONTENT_DIRECTORY_NAME = "content"; //NON-NLS
+    static final String THUMBNAILS_DIRECTORY_NAME = "thumbnails"; //NON-NLS
+    static final int THUMBNAIL_MAX_WIDTH = 240;
+    static final int THUMBNAIL_MAX_HEIGHT = 180;
+    static final String REFERENCES_FILE_NAME_SUFFIX = "-images.properties"; //NON-NLS
+    static final String ACTUAL_IMAGE_KEY = "actualImage"; //NON-NLS
+    static final String EXPECTED_IMAGE_KEY_PREFIX = "expectedImage@"; //NON-NLS
+    static final String DIFFERENCE_IMAGE_KEY_PREFIX = "differenceImage@"; //NON-NLS
+    private static final Map<File, ReportImageStore> STORES = new ConcurrentHashMap<>();
+
+    private final File imagesDirectory;
+    /**
+     * The tasks storing the images, by path (relative to the images
+     * directory).
+     *
+     * <p>Concurrent requests for the same image wait for the first task
+     * rather than writing the same file again.</p>
+     */
+    private final Map<String, FutureTask<String>> storeImageTasks =
+            new ConcurrentHashMap<>();
+
+    private ReportImageStore(File imagesDirectory) {
+        this.imagesDirectory = imagesDirectory;
+    }
+
+    /**
+     * Returns the {@link ReportImageStore} for the {@code imagesDirectory}.
+     *
+     * <p>All callers share the same store for a directory, i.e. an image is
+     * written only once per run.</p>
+     */
+    static ReportImageStore reportImageStore(File imagesDirectory) {
+        return STORES.computeIfAbsent(
+                imagesDirectory.getAbsoluteFile(), ReportImageStore::new);
+    }
+
+    File getImagesDirectory() {
+        return imagesDirectory;
+    }
+
+    /**
+     * Stores the {@code image} and returns the path of its file, relative
+     * to the images directory.
+     *
+     * <p>The file is only written (using the {@code encoder}) when no file
+     * with the same content exists.</p>
+     */
+    String storeImage(BufferedImage image, PngEncoder encoder) {
+        return storeImage(CONTENT_DIRECTORY_NAME, getContentFileName(image),
+                () -> image, encoder);
+    }
+
+    /**
+     * Stores a thumbnail of the {@code image} stored at {@code imagePath}
+     * (see {@link #storeImage(BufferedImage, PngEncoder)}) and returns the
+     * path of the thumbnail file, relative to the images directory.
+     *
+     * <p>The thumbnail is the image scaled down to fit into
+     * {@value #THUMBNAIL_MAX_WIDTH} x {@value #THUMBNAIL_MAX_HEIGHT}
+     * pixels. It is only created when no thumbnail for the image exists.
+     * For images small enough the {@code imagePath} is returned.</p>
+     */
+    String storeThumbnail(
+            BufferedImage image, String imagePath, PngEncoder encoder) {
+        if (image.getWidth() <= THUMBNAIL_MAX_WIDTH
+                && image.getHeight() <= THUMBNAIL_MAX_HEIGHT) {
+            return imagePath;
+        }
+        String fileName = new File(imagePath).getName();
+        return storeImage(THUMBNAILS_DIRECTORY_NAME, fileName,
+                () -> newThumbnail(image, THUMBNAIL_MAX_WIDTH, THUMBNAIL_MAX_HEIGHT),
+                encoder);
+    }
+
+    private String storeImage(
+            String directoryName,
+            String fileName,
+            Supplier<BufferedImage> imageSupplier,
+            PngEncoder encoder) {
+
+        String path = directoryName + "/" + fileName;
+        FutureTask<String> task = new FutureTask<>(() -> writeImageFile(
+                directoryName, fileName, imageSupplier, encoder));
+        @Nullable FutureTask<String> existingTask =
+                storeImageTasks.putIfAbsent(path, task);
+        if (existingTask == null) {
+            task.run();
+        } else {
+            task = existingTask;
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GuiTestingException(
+                    String.format("Interrupted when storing report image %s", path), e); //NON-NLS
+        } catch (ExecutionException e) {
+            // allow a retry
+            storeImageTasks.remove(path, task);
+            throw new GuiTestingException(
+                    String.format("Error when storing report image %s", path), //NON-NLS
+                    e.getCause());
+        }
+    }
+
+    /**
+     * Writes the references file of the snapshot with the
+     * {@code snapshotSimpleName}, listing the paths of the actual image and
+     * the expected and difference images of the snapshot (relative to the
+     * images directory).
+     */
+    void writeReferences(
+            String snapshotSimpleName,
+            String actualImagePath,
+            List<ExpectedAndDifferenceFile> expectedAndDifferenceFiles) {
+
+        Properties references = new Properties();
+        references.setProperty(ACTUAL_IMAGE_KEY, actualImagePath);
+        for (int i = 0; i < expectedAndDifferenceFiles.size(); i++) {
+            ExpectedAndDifferenceFile item = expectedAndDifferenceFiles.get(i);
+            references.setProperty(EXPECTED_IMAGE_KEY_PREFIX + i,
+                    item.expectedImageFilePath);
+            references.setProperty(DIFFERENCE_IMAGE_KEY_PREFIX + i,
+                    item.differenceImageFilePath);
+        }
+
+        File file = getReferencesFile(snapshotSimpleName);
+        try {
+            Files.createDirectories(imagesDirectory.toPath());
+            try (Writer writer = Files.newBufferedWriter(
+                    file.toPath(), StandardCharsets.UTF_8)) {
+                references.store(writer, snapshotSimpleName);
+            }
+        } catch (IOException e) {
+            throw new GuiTestingException(
+                    String.format("Error when writing %s", file.getAbsolutePath()), e); //NON-NLS
+        }
+    }
+
+    File getReferencesFile(String snapshotSimpleName) {
+        return new File(imagesDirectory,
+                snapshotSimpleName + REFERENCES_FILE_NAME_SUFFIX);
+    }
+
+    static String getContentFileName(BufferedImage image) {
+        return String.format("%016x-%dx%d.png", //NON-NLS
+                ImagePixels.of(image).getFullContentHash(),
+                image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Returns the {@code image} scaled down to fit into
+     * {@code maxWidth} x {@code maxHeight} pixels, keeping the aspect ratio.
+     */
+    static BufferedImage newThumbnail(
+            BufferedImage image, int maxWidth, int maxHeight) {
+        double scale = Math.min(1.0, Math.min(
+                (double) maxWidth / image.getWidth(),
+                (double) maxHeight / image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        // Halve the size in steps, as bilinear scaling by a large factor
+        // skips most pixels (e.g. small differences in a difference image)
+        BufferedImage result = image;
+        do {
+            int w = Math.max(width, result.getWidth() / 2);
+            int h = Math.max(height, result.getHeight() / 2);
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(result, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            result = next;
+        } while (result.getWidth() != width || result.getHeight() != height);
+        return result;
+    }
+
+    private String writeImageFile(
+            String directoryName,
+            String fileName,
+            Supplier<BufferedImage> imageSupplier,
+            PngEncoder encoder) throws IOException {
+
+        Path directory = new File(imagesDirectory, directoryName).toPath();
+        Path imageFile = directory.resolve(fileName);
+        if (!Files.isRegularFile(imageFile)) {
+            Files.createDirectories(directory);
+            // write to a temporary file first, so other readers never see
+            // a partially written image file. (The image writer requires
+            // the ".png" extension)
+            Path tempFile = Files.createTempFile(
+                    directory, "temp-image", ".png"); //NON-NLS
+            try {
+                encoder.writeImage(imageSupplier.get(), tempFile.toFile());
+                try {
+                    Files.move(tempFile, imageFile,
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, imageFile,
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+        return directoryName + "/" + fileName;
+    }
+}
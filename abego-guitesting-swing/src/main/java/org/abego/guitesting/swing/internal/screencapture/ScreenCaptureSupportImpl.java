@@ -26,46 +26,62 @@ package org.abego.guitesting.swing.internal.screencapture;
 
 import org.abego.commons.io.FileUtil;
 import org.abego.commons.polling.PollingService;
+import org.abego.commons.polling.PollingUtil;
 import org.abego.commons.seq.Seq;
+import org.abego.commons.swing.SwingUtilitiesUtil;
 import org.abego.commons.timeout.TimeoutUncheckedException;
 import org.abego.guitesting.swing.GuiTestingException;
+import org.abego.guitesting.swing.HeadlessGuiTestingException;
 import org.abego.guitesting.swing.ScreenCaptureSupport;
 import org.abego.guitesting.swing.WaitSupport;
 import org.abego.guitesting.swing.internal.GuiTestingUtil;
+import org.abego.guitesting.swing.internal.QuiescenceTracker;
 import org.eclipse.jdt.annotation.Nullable;
 import org.opentest4j.AssertionFailedError;
 
-import javax.imageio.ImageIO;
 import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+import java.awt.Color;
 import java.awt.Component;
+import java.awt.Container;
+import java.awt.Graphics2D;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.Robot;
 import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
 import java.awt.image.RenderedImage;
 import java.io.File;
-import java.io.IOException;
 import java.net.URL;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 import static java.util.logging.Logger.getLogger;
 import static org.abego.commons.io.FileUtil.findExistingDirectory;
 import static org.abego.commons.lang.StringUtil.replaceRange;
-import static org.abego.guitesting.swing.internal.GuiTestingUtil.checkIsPngFilename;
+import static org.abego.commons.seq.SeqUtil.newSeq;
 import static org.abego.guitesting.swing.internal.GuiTestingUtil.getNameDefiningCall;
-import static org.abego.guitesting.swing.internal.GuiTestingUtil.getReadImageErrorMessage;
 import static org.abego.guitesting.swing.internal.GuiTestingUtil.toScreenCoordinates;
 import static org.abego.guitesting.swing.internal.GuiTestingUtil.urlToFile;
 import static org.abego.guitesting.swing.internal.screencapture.SnapshotIssueSupport.newSnapshotIssueSupport;
+import static org.abego.guitesting.swing.internal.screencapture.StableImageCapture.captureStableImage;
 
 public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
     static final String SCREENSHOT_IMAGES_DIRECTORY_NAME_DEFAULT = "images"; //NON-NLS
     static final String SNAP_SHOTS_DIRECTORY_NAME = "/snap-shots"; //NON-NLS
+    /**
+     * The directory in the snapshot report directory holding the files of
+     * the {@link SnapshotImageIndex}es.
+     */
+    private static final String SNAPSHOT_INDEX_DIRECTORY_NAME = "snapshot-index"; //NON-NLS
     private static final String SNAPSHOT_NAME_DEFAULT = "snapshot"; //NON-NLS
     @SuppressWarnings("DuplicateStringLiteralInspection")
     private static final File[] testResourcesDirectoryCandidates = new File[]{
@@ -83,23 +99,47 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
     };
     private static final Logger LOGGER = getLogger(ScreenCaptureSupportImpl.class.getName());
     private static final Duration DELAY_BEFORE_NEW_SNAPSHOT_DEFAULT = Duration.ofSeconds(1);
+    private static final int NEW_SNAPSHOT_STABLE_CAPTURE_COUNT_DEFAULT = 3;
+    private static final PngEncoding SNAPSHOT_IMAGES_ENCODING_DEFAULT = PngEncoding.COMPACT;
+    private static final PngEncoding REPORT_IMAGES_ENCODING_DEFAULT = PngEncoding.FAST;
+    /**
+     * The time between two captures when waiting for a stable capture of
+     * a new snapshot.
+     */
+    private static final Duration NEW_SNAPSHOT_CAPTURE_INTERVAL = Duration.ofMillis(20);
+    /**
+     * The maximal time between two screenshots when recapturing on repaint,
+     * i.e. a new screenshot is also captured when no repaint was tracked
+     * for that time.
+     */
+    private static final Duration MAX_DURATION_WITHOUT_RECAPTURE = Duration.ofSeconds(1);
     @SuppressWarnings("DuplicateStringLiteralInspection")
     private static final String TEST_RESOURCES_DIRECTORY_PATH_DEFAULT = "src/test/resources"; //NON-NLS
-    private final Robot robot;
+    private final @Nullable Robot robot;
     private final PollingService pollingService;
     private final WaitSupport waitSupport;
     private File snapshotReportDirectory = new File("target/guitesting-reports");
     private boolean generateSnapshotIfMissing = true;
     private boolean useInnerJFrameBounds = false;
+    private final CaptureMode captureModeDefault;
+    private CaptureMode captureMode;
+    private boolean recaptureOnRepaint = false;
     private Duration delayBeforeNewSnapshot = DELAY_BEFORE_NEW_SNAPSHOT_DEFAULT;
+    private int newSnapshotStableCaptureCount = NEW_SNAPSHOT_STABLE_CAPTURE_COUNT_DEFAULT;
+    private PngEncoding snapshotImagesEncoding = SNAPSHOT_IMAGES_ENCODING_DEFAULT;
+    private PngEncoding reportImagesEncoding = REPORT_IMAGES_ENCODING_DEFAULT;
     private File testResourcesDirectory = new File(TEST_RESOURCES_DIRECTORY_PATH_DEFAULT);
     private int imageDifferenceTolerancePercentage = 0;
     private int imageDifferenceIgnoredBorderSize = 0;
     private int imageDifferenceIgnoredCornerSize = 0;
+    private List<Rectangle> imageDifferenceIgnoredRectangles = new ArrayList<>();
+    private int imageDifferenceParallelismThreshold = ImageCompare.PARALLELISM_THRESHOLD_DEFAULT;
 
     private ScreenCaptureSupportImpl(
-            Robot robot, PollingService pollingService, WaitSupport waitSupport) {
+            @Nullable Robot robot, PollingService pollingService, WaitSupport waitSupport) {
         this.robot = robot;
+        this.captureModeDefault = robot != null ? CaptureMode.ROBOT : CaptureMode.PAINT;
+        this.captureMode = captureModeDefault;
         this.pollingService = pollingService;
         this.waitSupport = waitSupport;
     }
@@ -109,6 +149,19 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
         return new ScreenCaptureSupportImpl(robot, pollingService, waitSupport);
     }
 
+    /**
+     * Returns a new {@link ScreenCaptureSupport} for a headless environment,
+     * i.e. without a {@link Robot}.
+     *
+     * <p>Screenshots of components are created by painting the components
+     * ({@link CaptureMode#PAINT}), screenshots of the screen are not
+     * supported.</p>
+     */
+    public static ScreenCaptureSupport newScreenCaptureSupportNoRobot(
+            PollingService pollingService, WaitSupport waitSupport) {
+        return new ScreenCaptureSupportImpl(null, pollingService, waitSupport);
+    }
+
     @Override
     public String getSnapshotNameDefault() {
         return SNAPSHOT_NAME_DEFAULT;
@@ -124,8 +177,31 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
         this.useInnerJFrameBounds = value;
     }
 
+    @Override
+    public CaptureMode getCaptureMode() {
+        return captureMode;
+    }
+
+    @Override
+    public void setCaptureMode(CaptureMode mode) {
+        this.captureMode = mode;
+    }
+
+    @Override
+    public boolean getRecaptureOnRepaint() {
+        return recaptureOnRepaint;
+    }
+
+    @Override
+    public void setRecaptureOnRepaint(boolean value) {
+        this.recaptureOnRepaint = value;
+    }
+
     @Override
     public BufferedImage captureScreen(@Nullable Rectangle screenRect) {
+        if (robot == null) {
+            throw new HeadlessGuiTestingException();
+        }
         return robot.createScreenCapture(screenRect != null
                 ? screenRect
                 : new Rectangle(Toolkit.getDefaultToolkit().getScreenSize()));
@@ -134,10 +210,172 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
     @Override
     public BufferedImage captureScreen(
             @Nullable Component component, @Nullable Rectangle rectangle) {
+        return captureScreen(component, rectangle, getCaptureMode());
+    }
+
+    @Override
+    public BufferedImage captureScreen(
+            @Nullable Component component,
+            @Nullable Rectangle rectangle,
+            CaptureMode captureMode) {
+        return captureScreen(component, rectangle, captureMode, null);
+    }
+
+    /**
+     * Returns a screenshot of the {@code component}, like
+     * {@link #captureScreen(Component, Rectangle, CaptureMode)}.
+     *
+     * <p>With {@link CaptureMode#PAINT} the component is painted into the
+     * {@code reusableImage}, if it has the size of the screenshot.</p>
+     */
+    private BufferedImage captureScreen(
+            @Nullable Component component,
+            @Nullable Rectangle rectangle,
+            CaptureMode captureMode,
+            @Nullable BufferedImage reusableImage) {
         if (component == null) {
             return captureScreen(rectangle);
         }
 
+        if (captureMode == CaptureMode.PAINT && !component.isDisplayable()) {
+            SwingUtilitiesUtil.runInEDT(() -> layoutOffscreen(component));
+        }
+        Rectangle capturedRectangle = getCapturedRectangle(component, rectangle);
+        switch (captureMode) {
+            case PAINT:
+                return paintComponent(component, capturedRectangle, reusableImage);
+            case ROBOT:
+            default:
+                if (robot == null) {
+                    throw new HeadlessGuiTestingException();
+                }
+                return captureScreen(
+                        toScreenCoordinates(component, capturedRectangle));
+        }
+    }
+
+    /**
+     * Lays out the {@code component} and its children, also when the
+     * component is not displayable, e.g. in a headless environment.
+     *
+     * <p>A component without a size gets its preferred size.</p>
+     */
+    private static void layoutOffscreen(Component component) {
+        if (component.getWidth() <= 0 || component.getHeight() <= 0) {
+            component.setSize(component.getPreferredSize());
+        }
+        layoutComponentTree(component);
+    }
+
+    /**
+     * Lays out the {@code component} and all its descendants.
+     *
+     * <p>In contrast to {@link Container#validate()} this also works for
+     * components that are not displayable.</p>
+     */
+    private static void layoutComponentTree(Component component) {
+        if (component instanceof Container) {
+            Container container = (Container) component;
+            container.doLayout();
+            for (Component c : container.getComponents()) {
+                layoutComponentTree(c);
+            }
+        }
+    }
+
+    /**
+     * Paints the {@code rectangle} of the {@code component} (in coordinates
+     * relative to the component) into an image, and returns the image.
+     *
+     * <p>The {@code reusableImage} is used for painting when it has the
+     * size of the {@code rectangle}, otherwise a new image is created.</p>
+     */
+    private static BufferedImage paintComponent(
+            Component component,
+            Rectangle rectangle,
+            @Nullable BufferedImage reusableImage) {
+        int width = Math.max(1, rectangle.width);
+        int height = Math.max(1, rectangle.height);
+        BufferedImage image = reusableImage != null
+                && reusableImage.getWidth() == width
+                && reusableImage.getHeight() == height
+                ? reusableImage
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        paintComponentArea(component, rectangle.getLocation(),
+                new Rectangle(rectangle.x, rectangle.y, width, height), image);
+        return image;
+    }
+
+    /**
+     * Paints the {@code area} of the {@code component} into the
+     * {@code image}, a screenshot of the component with its top left corner
+     * at {@code imageOrigin} (all in coordinates relative to the
+     * component).
+     */
+    private static void paintComponentArea(
+            Component component,
+            Point imageOrigin,
+            Rectangle area,
+            BufferedImage image) {
+        SwingUtilitiesUtil.runInEDT(() -> {
+            Graphics2D g = image.createGraphics();
+            try {
+                g.translate(-imageOrigin.x, -imageOrigin.y);
+                g.clipRect(area.x, area.y, area.width, area.height);
+
+                // components that are not opaque don't paint their
+                // background, so paint the background "behind" them.
+                Color background = component.getBackground();
+                g.setColor(background != null ? background : Color.WHITE);
+                g.fillRect(area.x, area.y, area.width, area.height);
+
+                component.printAll(g);
+            } finally {
+                g.dispose();
+            }
+        });
+    }
+
+    /**
+     * Captures the {@code area} of the {@code component} again, updating
+     * the {@code image}, a screenshot of the {@code capturedRectangle} of
+     * the component (all in coordinates relative to the component).
+     */
+    private void recaptureArea(
+            Component component,
+            Rectangle capturedRectangle,
+            Rectangle area,
+            CaptureMode captureMode,
+            BufferedImage image) {
+        switch (captureMode) {
+            case PAINT:
+                paintComponentArea(
+                        component, capturedRectangle.getLocation(), area, image);
+                break;
+            case ROBOT:
+            default:
+                BufferedImage areaImage =
+                        captureScreen(toScreenCoordinates(component, area));
+                Graphics2D g = image.createGraphics();
+                try {
+                    g.drawImage(areaImage,
+                            area.x - capturedRectangle.x,
+                            area.y - capturedRectangle.y,
+                            null);
+                } finally {
+                    g.dispose();
+                }
+                break;
+        }
+    }
+
+    /**
+     * Returns the area of the {@code component} captured by
+     * {@link #captureScreen(Component, Rectangle)}, in coordinates
+     * relative to the component.
+     */
+    private Rectangle getCapturedRectangle(
+            Component component, @Nullable Rectangle rectangle) {
         Rectangle componentRect = new Rectangle(component.getSize());
         if (rectangle == null) {
             rectangle = adjustRectangleForScreenCapture(component, null);
@@ -145,8 +383,7 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
         if (rectangle == null) {
             rectangle = componentRect;
         }
-        Rectangle rect = rectangle.intersection(componentRect);
-        return captureScreen(toScreenCoordinates(component, rect));
+        return rectangle.intersection(componentRect);
     }
 
     @Override
@@ -184,15 +421,38 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
         imageDifferenceIgnoredCornerSize = value;
     }
 
+    @Override
+    public Seq<Rectangle> getImageDifferenceIgnoredRectangles() {
+        return newSeq(imageDifferenceIgnoredRectangles);
+    }
+
+    @Override
+    public void setImageDifferenceIgnoredRectangles(Rectangle... rectangles) {
+        List<Rectangle> list = new ArrayList<>();
+        for (Rectangle r : rectangles) {
+            list.add(new Rectangle(r));
+        }
+        imageDifferenceIgnoredRectangles = list;
+    }
+
+    @Override
+    public int getImageDifferenceParallelismThreshold() {
+        return imageDifferenceParallelismThreshold;
+    }
+
+    @Override
+    public void setImageDifferenceParallelismThreshold(int value) {
+        imageDifferenceParallelismThreshold = value;
+    }
+
     @Override
     public ImageDifference imageDifference(BufferedImage imageA, BufferedImage imageB) {
         ImageCompare compare = newImageCompare();
-        @Nullable BufferedImage diff = compare.differenceMask(imageA, imageB);
-        if (diff != null) {
-            return ImageDifferenceImpl.of(true, imageA, imageB, diff);
-        } else {
-            return ImageDifferenceImpl.of(false, imageA, imageB, compare.transparentImage(imageA));
-        }
+        PixelDifferences differences = compare.differences(imageA, imageB);
+        return ImageDifferenceImpl.of(imageA, imageB, differences, () -> {
+            @Nullable BufferedImage diff = compare.differenceMask(differences);
+            return diff != null ? diff : compare.transparentImage(imageA);
+        });
     }
 
     @Override
@@ -202,26 +462,12 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
 
     @Override
     public void writeImage(RenderedImage image, File file) {
-        checkIsPngFilename(file);
-        try {
-            FileUtil.ensureDirectoryExists(file.getParentFile());
-
-            ImageIO.write(image, "png", file); //NON-NLS
-        } catch (IOException e) {
-            throw new GuiTestingException(
-                    String.format("Error when writing image to %s", file.getAbsolutePath()), e); //NON-NLS
-        }
+        GuiTestingUtil.writeImage(image, file);
     }
 
     @Override
     public BufferedImage readImage(File file) {
-        checkIsPngFilename(file);
-        try {
-            return ImageIO.read(file);
-        } catch (Exception e) {
-            throw new GuiTestingException(
-                    getReadImageErrorMessage(file.getAbsolutePath()), e);
-        }
+        return GuiTestingUtil.readImage(file);
     }
 
     @Override
@@ -237,11 +483,16 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
     @Override
     public BufferedImage waitUntilScreenshotMatchesImage(
             Component component, @Nullable Rectangle rectangle, BufferedImage... expectedImages) {
+        if (expectedImages.length == 0) {
+            throw new IllegalArgumentException("No expectedImages specified"); //NON-NLS
+        }
+
         rectangle = adjustRectangleForScreenCapture(component, rectangle);
         SnapshotInfo snapshotInfo = new SnapshotInfo(
                 null, "waitUntilScreenshotMatchesImage", getTestResourcesDirectory());
         return waitUntilScreenshotMatchesImageHelper(
-                component, rectangle, expectedImages, null, snapshotInfo);
+                component, rectangle, () -> expectedImages, null, null,
+                snapshotInfo, null);
     }
 
     @Override
@@ -269,6 +520,50 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
         delayBeforeNewSnapshot = duration;
     }
 
+    @Override
+    public int getNewSnapshotStableCaptureCount() {
+        return newSnapshotStableCaptureCount;
+    }
+
+    @Override
+    public void setNewSnapshotStableCaptureCount(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException(
+                    "newSnapshotStableCaptureCount must be >= 0"); //NON-NLS
+        }
+        newSnapshotStableCaptureCount = value;
+    }
+
+    @Override
+    public PngEncoding getSnapshotImagesEncoding() {
+        return snapshotImagesEncoding;
+    }
+
+    @Override
+    public void setSnapshotImagesEncoding(PngEncoding encoding) {
+        snapshotImagesEncoding = encoding;
+    }
+
+    @Override
+    public PngEncoding getReportImagesEncoding() {
+        return reportImagesEncoding;
+    }
+
+    @Override
+    public void setReportImagesEncoding(PngEncoding encoding) {
+        reportImagesEncoding = encoding;
+    }
+
+    @Override
+    public PngEncodingStatistics getPngEncodingStatistics(PngEncoding encoding) {
+        return PngEncoder.pngEncoder(encoding).getStatistics();
+    }
+
+    @Override
+    public void resetPngEncodingStatistics() {
+        PngEncoder.resetAllStatistics();
+    }
+
     @Override
     public File getTestResourcesDirectory() {
         return testResourcesDirectory;
@@ -320,7 +615,19 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
     @Override
     public BufferedImage[] getImagesOfSnapshot(String name) {
         SnapshotInfo info = new SnapshotInfo(name, "getImagesOfSnapshot", getTestResourcesDirectory());
-        return info.getImagesOfSnapshot();
+        // The images of the SnapshotImageCache are shared, so return copies
+        BufferedImage[] images = info.getImagesOfSnapshot();
+        BufferedImage[] result = new BufferedImage[images.length];
+        for (int i = 0; i < images.length; i++) {
+            result[i] = copyOf(images[i]);
+        }
+        return result;
+    }
+
+    private static BufferedImage copyOf(BufferedImage image) {
+        ColorModel colorModel = image.getColorModel();
+        return new BufferedImage(colorModel, image.copyData(null),
+                colorModel.isAlphaPremultiplied(), null);
     }
 
     @Override
@@ -329,63 +636,159 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
             @Nullable Rectangle rectangle,
             String snapshotName)
             throws GuiTestingException {
+        return waitUntilScreenshotMatchesSnapshotHelper(
+                component, rectangle, snapshotName, null);
+    }
+
+    @Override
+    public BufferedImage waitUntilScreenshotMatchesSnapshot(
+            Component component,
+            @Nullable Rectangle rectangle,
+            String snapshotName,
+            Predicate<Component> ignoredComponents)
+            throws GuiTestingException {
+        return waitUntilScreenshotMatchesSnapshotHelper(
+                component, rectangle, snapshotName, ignoredComponents);
+    }
+
+    private BufferedImage waitUntilScreenshotMatchesSnapshotHelper(
+            Component component,
+            @Nullable Rectangle rectangle,
+            String snapshotName,
+            @Nullable Predicate<Component> ignoredComponents)
+            throws GuiTestingException {
         SnapshotInfo info = new SnapshotInfo(
                 snapshotName, "waitUntilScreenshotMatchesSnapshot", getTestResourcesDirectory());
 
         rectangle = adjustRectangleForScreenCapture(component, rectangle);
 
-        BufferedImage[] snapshotImages = info.getImagesOfSnapshot();
+        int snapshotImagesCount = info.getSnapshotImagesCount();
         // Calculate the file we would use to store a new screenshot image,
         // e.g. if no existing snapshot image matches the current screenshot.
-        File newImageFile = info.getSnapshotImageFile(snapshotImages.length);
-        if (snapshotImages.length == 0) {
+        File newImageFile = info.getSnapshotImageFile(snapshotImagesCount);
+        if (snapshotImagesCount == 0) {
             // No snapshot image exists
 
             if (getGenerateSnapshotIfMissing()) {
                 return captureAndWriteInitialSnapshotImage(
-                        component, rectangle, newImageFile);
+                        component, rectangle, newImageFile, info);
             } else {
                 throw new GuiTestingException(
                         info.getNoSnapshotImagesFoundMessage());
             }
 
         } else {
-            // Snapshot images already exist.
+            // Snapshot images already exist. They are only read when the
+            // screenshot's content hash differs from the ones in the index.
             return waitUntilScreenshotMatchesImageHelper(
-                    component, rectangle, snapshotImages, newImageFile, info);
+                    component, rectangle, info::getImagesOfSnapshot,
+                    info.getContentHashesOfSnapshot(snapshotImagesCount),
+                    newImageFile, info, ignoredComponents);
         }
     }
 
+    /**
+     * Waits until the screenshot matches any of the expected images.
+     *
+     * <p>When {@code expectedImagesHashes} is {@code null} the content hashes
+     * are calculated from the expected images, otherwise the expected images
+     * are only requested when needed.</p>
+     */
     private BufferedImage waitUntilScreenshotMatchesImageHelper(
             Component component, @Nullable Rectangle rectangle,
-            BufferedImage[] expectedImages,
-            @Nullable File newImageFile, SnapshotInfo snapshotInfo) {
-
-        if (expectedImages.length == 0) {
-            throw new IllegalArgumentException("No expectedImages specified"); //NON-NLS
-        }
+            Supplier<BufferedImage[]> expectedImages,
+            long @Nullable [] expectedImagesHashes,
+            @Nullable File newImageFile, SnapshotInfo snapshotInfo,
+            @Nullable Predicate<Component> ignoredComponents) {
 
         CaptureScreenAndCompare csc = new CaptureScreenAndCompare(
-                component, rectangle, expectedImages);
+                component, rectangle, expectedImages, expectedImagesHashes,
+                ignoredComponents);
         try {
+            if (getRecaptureOnRepaint()) {
+                try (@Nullable RepaintTracker tracker =
+                             RepaintTracker.trackRepaints(component)) {
+                    if (tracker != null) {
+                        @Nullable BufferedImage image =
+                                waitUntilRepaintedScreenshotMatches(csc, tracker);
+                        // On timeout: a last try, failing with the same
+                        // exception as the regular polling.
+                        return image != null
+                                ? image
+                                : PollingUtil.poll(
+                                csc::capture,
+                                csc::imageMatchesAnyExpectedImage,
+                                Duration.ZERO);
+                    }
+                }
+            }
+
             return pollingService.poll(
                     csc::capture,
                     csc::imageMatchesAnyExpectedImage);
         } catch (TimeoutUncheckedException e) {
+            throw newUnmatchedScreenshotError(
+                    csc, newImageFile, snapshotInfo, e);
+        }
+    }
 
-            @Nullable BufferedImage actualImage = csc.getLastScreenshot();
-            if (actualImage == null) {
-                throw new AssertionFailedError("Timeout before first screenshot", e); //NON-NLS
+    /**
+     * Waits until the screenshot matches any expected image of the
+     * {@code csc} and returns the screenshot, or returns {@code null} on
+     * timeout.
+     *
+     * <p>After the first screenshot only the areas repainted (as tracked by
+     * the {@code tracker}) are captured again.</p>
+     */
+    @Nullable
+    private BufferedImage waitUntilRepaintedScreenshotMatches(
+            CaptureScreenAndCompare csc, RepaintTracker tracker) {
+        Instant end = Instant.now().plus(timeout());
+        BufferedImage image = csc.capture();
+        while (!csc.imageMatchesAnyExpectedImage(image)) {
+            Duration remaining = Duration.between(Instant.now(), end);
+            if (remaining.isNegative() || remaining.isZero()) {
+                return null;
             }
+            @Nullable Rectangle repaintedArea = tracker.waitForRepaint(
+                    remaining.compareTo(MAX_DURATION_WITHOUT_RECAPTURE) < 0
+                            ? remaining : MAX_DURATION_WITHOUT_RECAPTURE);
+            image = repaintedArea != null
+                    ? csc.recapture(repaintedArea)
+                    : csc.capture();
+        }
+        return image;
+    }
+
+    private AssertionFailedError newUnmatchedScreenshotError(
+            CaptureScreenAndCompare csc,
+            @Nullable File newImageFile,
+            SnapshotInfo snapshotInfo,
+            Exception timeoutException) {
 
-            File report = writeUnmatchedScreenshotReport(
-                    actualImage, expectedImages, e, snapshotInfo, newImageFile);
-            throw new AssertionFailedError(
-                    String.format("Screenshot does not match expected image (Timeout).\nFor details see:\n- %s", report.getAbsolutePath()), e); //NON-NLS
+        @Nullable BufferedImage actualImage = csc.getLastScreenshot();
+        if (actualImage == null) {
+            return new AssertionFailedError("Timeout before first screenshot", timeoutException); //NON-NLS
         }
+
+        File report = writeUnmatchedScreenshotReport(
+                actualImage, csc.getExpectedImages(), timeoutException, snapshotInfo,
+                newImageFile, csc.getImageCompare());
+        return new AssertionFailedError(
+                String.format("Screenshot does not match expected image (Timeout).\nFor details see:\n- %s", report.getAbsolutePath()), timeoutException); //NON-NLS
     }
 
     private ImageCompare newImageCompare() {
+        return newImageCompare(Collections.emptyList());
+    }
+
+    /**
+     * Returns a new {@link ImageCompare} using the current settings, also
+     * ignoring the {@code additionalIgnoredRectangles}.
+     */
+    private ImageCompare newImageCompare(List<Rectangle> additionalIgnoredRectangles) {
+        List<Rectangle> ignoredRectangles = new ArrayList<>(imageDifferenceIgnoredRectangles);
+        ignoredRectangles.addAll(additionalIgnoredRectangles);
         return ImageCompare.newImageCompare(new ImageCompare.Options() {
             @Override
             public int getTolerancePercentage() {
@@ -401,6 +804,16 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
             public int getIgnoredCornerSize() {
                 return imageDifferenceIgnoredCornerSize;
             }
+
+            @Override
+            public List<Rectangle> getIgnoredRectangles() {
+                return ignoredRectangles;
+            }
+
+            @Override
+            public int getParallelismThreshold() {
+                return imageDifferenceParallelismThreshold;
+            }
         });
     }
 
@@ -440,9 +853,16 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
 
     @Override
     public void resetScreenCaptureSupport() {
+        setCaptureMode(captureModeDefault);
+        setRecaptureOnRepaint(false);
         setImageDifferenceIgnoredBorderSize(0);
         setImageDifferenceIgnoredCornerSize(0);
+        setImageDifferenceIgnoredRectangles();
         setImageDifferenceTolerancePercentage(0);
+        setImageDifferenceParallelismThreshold(ImageCompare.PARALLELISM_THRESHOLD_DEFAULT);
+        setNewSnapshotStableCaptureCount(NEW_SNAPSHOT_STABLE_CAPTURE_COUNT_DEFAULT);
+        setSnapshotImagesEncoding(SNAPSHOT_IMAGES_ENCODING_DEFAULT);
+        setReportImagesEncoding(REPORT_IMAGES_ENCODING_DEFAULT);
     }
 
     @Override
@@ -454,25 +874,161 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
 
     private BufferedImage captureAndWriteInitialSnapshotImage(
             Component component, @Nullable Rectangle rectangle,
-            File imageFile) {
-
-        waitSupport.waitFor(getDelayBeforeNewSnapshot());
-        BufferedImage image = captureScreen(component, rectangle);
-        writeImage(image, imageFile);
+            File imageFile, SnapshotInfo snapshotInfo) {
+
+        waitForQuiescenceBeforeNewSnapshot();
+        BufferedImage image;
+        int stableCaptureCount = getNewSnapshotStableCaptureCount();
+        if (stableCaptureCount > 0) {
+            image = captureStableImage(
+                    () -> captureScreen(component, rectangle),
+                    stableCaptureCount,
+                    NEW_SNAPSHOT_CAPTURE_INTERVAL,
+                    getDelayBeforeNewSnapshot());
+        } else {
+            waitSupport.waitFor(getDelayBeforeNewSnapshot());
+            image = captureScreen(component, rectangle);
+        }
+        PngEncoder.pngEncoder(getSnapshotImagesEncoding()).writeImage(image, imageFile);
+        SnapshotImageIndex index = snapshotInfo.getSnapshotImageIndex();
+        index.putEntry(imageFile, image);
+        index.save();
         LOGGER.info(String.format("Initial snapshot image written: '%s'", imageFile.getAbsolutePath())); //NON-NLS
         return image;
     }
 
+    /**
+     * Waits at most {@link #getDelayBeforeNewSnapshot()} for the quiescence
+     * of the UI.
+     *
+     * <p>Waiting is "best-effort": a UI that does not become quiescent, e.g.
+     * because of a blinking caret or an animation, is still captured.</p>
+     */
+    private void waitForQuiescenceBeforeNewSnapshot() {
+        Duration maxDuration = getDelayBeforeNewSnapshot();
+        if (!QuiescenceTracker.getDefault().waitForQuiescenceAtMost(maxDuration)
+                && !maxDuration.isZero()) {
+            LOGGER.info(String.format(
+                    "UI not quiescent after %d ms, capturing new snapshot anyway", //NON-NLS
+                    maxDuration.toMillis()));
+        }
+    }
+
+    /**
+     * Writes the report for the unmatched screenshot and returns the
+     * report file.
+     *
+     * <p>The files of the report are written in the background (see
+     * {@link ScreenshotCompareReportWriter}), i.e. they may not yet exist
+     * when this method returns.</p>
+     */
     private File writeUnmatchedScreenshotReport(
             BufferedImage actualImage,
             BufferedImage[] expectedImages,
             Exception exception,
             SnapshotInfo snapshotInfo,
-            @Nullable File newImageFileForResources) {
+            @Nullable File newImageFileForResources,
+            ImageCompare imageCompare) {
+
+        File outputDir = getSnapshotReportDirectory();
+        String timestamp = Instant.now().toString();
+        PngEncoder encoder = PngEncoder.pngEncoder(getReportImagesEncoding());
+        ScreenshotCompareReportWriter.getDefault().submit(() ->
+                writeReportFiles(actualImage, expectedImages, exception,
+                        snapshotInfo, newImageFileForResources, imageCompare,
+                        outputDir, timestamp, encoder));
+        return ScreenshotCompareHtmlReport.getReportFile(
+                outputDir, snapshotInfo.getSnapshotSimpleName());
+    }
+
+    /**
+     * Writes the files of the report for the unmatched screenshot: the
+     * images (see {@link ReportImageStore}), the HTML report and the entry
+     * in the {@link ScreenshotCompareIndexReport}.
+     */
+    private static void writeReportFiles(
+            BufferedImage actualImage,
+            BufferedImage[] expectedImages,
+            Exception exception,
+            SnapshotInfo snapshotInfo,
+            @Nullable File newImageFileForResources,
+            ImageCompare imageCompare,
+            File outputDir,
+            String timestamp,
+            PngEncoder encoder) {
 
-        ScreenshotCompareReportData reportData = generateScreenshotCompareReportData(
-                actualImage, expectedImages, exception, snapshotInfo, newImageFileForResources);
-        return ScreenshotCompareHtmlReport.of(reportData).writeReportFile();
+        ReportImageStore imageStore = ReportImageStore.reportImageStore(
+                new File(outputDir, SCREENSHOT_IMAGES_DIRECTORY_NAME_DEFAULT));
+        String actualImagePath = imageStore.storeImage(actualImage, encoder);
+
+        List<ExpectedAndDifferenceFile> expectedAndDifferenceFiles = new ArrayList<>();
+        int closestIndex = 0;
+        @Nullable PixelDifferences closestDifferences = null;
+        @Nullable BufferedImage closestDifferenceImage = null;
+        for (int i = 0; i < expectedImages.length; i++) {
+            BufferedImage expectedImage = expectedImages[i];
+            PixelDifferences differences =
+                    imageCompare.differences(expectedImage, actualImage);
+            @Nullable BufferedImage differenceMask =
+                    imageCompare.differenceMask(differences);
+            BufferedImage differenceImage = differenceMask != null
+                    ? differenceMask
+                    : imageCompare.transparentImage(expectedImage);
+            expectedAndDifferenceFiles.add(new ExpectedAndDifferenceFile(
+                    imageStore.storeImage(expectedImage, encoder),
+                    imageStore.storeImage(differenceImage, encoder)));
+            if (closestDifferences == null
+                    || differences.getDifferentPixelsCount() < closestDifferences.getDifferentPixelsCount()) {
+                closestIndex = i;
+                closestDifferences = differences;
+                closestDifferenceImage = differenceImage;
+            }
+        }
+        imageStore.writeReferences(snapshotInfo.getSnapshotSimpleName(),
+                actualImagePath, expectedAndDifferenceFiles);
+
+        // write the HTML file after the images, so its images already exist
+        File reportFile = ScreenshotCompareHtmlReport.of(
+                generateScreenshotCompareReportData(
+                        outputDir, timestamp, exception, snapshotInfo,
+                        newImageFileForResources, actualImagePath,
+                        expectedAndDifferenceFiles)).writeReportFile();
+
+        if (closestDifferences != null && closestDifferenceImage != null) {
+            ExpectedAndDifferenceFile closestFiles =
+                    expectedAndDifferenceFiles.get(closestIndex);
+            ScreenshotCompareIndexReport.indexReport(outputDir).addEntry(
+                    new ScreenshotCompareIndexReport.Entry(
+                            snapshotInfo.getSnapshotSimpleName(),
+                            reportFile.getName(),
+                            timestamp,
+                            closestDifferences.getDifferentPixelsCount(),
+                            closestDifferences.getDifferentPixelsPercentage(),
+                            closestIndex,
+                            expectedImages.length,
+                            newImageLink(imageStore, actualImage,
+                                    actualImagePath, encoder),
+                            newImageLink(imageStore, expectedImages[closestIndex],
+                                    closestFiles.expectedImageFilePath, encoder),
+                            newImageLink(imageStore, closestDifferenceImage,
+                                    closestFiles.differenceImageFilePath, encoder)));
+        }
+    }
+
+    /**
+     * Returns the {@link ScreenshotCompareIndexReport.ImageLink} for the
+     * {@code image} stored at {@code imagePath} (relative to the images
+     * directory), storing the thumbnail of the image.
+     */
+    private static ScreenshotCompareIndexReport.ImageLink newImageLink(
+            ReportImageStore imageStore,
+            BufferedImage image,
+            String imagePath,
+            PngEncoder encoder) {
+        String thumbnailPath = imageStore.storeThumbnail(image, imagePath, encoder);
+        return new ScreenshotCompareIndexReport.ImageLink(
+                String.format("%s/%s", SCREENSHOT_IMAGES_DIRECTORY_NAME_DEFAULT, imagePath), //NON-NLS
+                String.format("%s/%s", SCREENSHOT_IMAGES_DIRECTORY_NAME_DEFAULT, thumbnailPath)); //NON-NLS
     }
 
     /**
@@ -498,45 +1054,33 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
         return rectangle;
     }
 
-    private ScreenshotCompareReportData generateScreenshotCompareReportData(
-            BufferedImage actualImage,
-            BufferedImage[] expectedImages,
+    /**
+     * Returns the {@link ScreenshotCompareReportData} for the images
+     * stored at the given paths (relative to the images directory).
+     */
+    private static ScreenshotCompareReportData generateScreenshotCompareReportData(
+            File outputDir,
+            String timestamp,
             Exception exception,
             SnapshotInfo snapshotInfo,
-            @Nullable File newImageFileForResources) {
-
-        File outputDir = getSnapshotReportDirectory();
-        String timestamp = Instant.now().toString();
+            @Nullable File newImageFileForResources,
+            String actualImagePath,
+            List<ExpectedAndDifferenceFile> expectedAndDifferenceImagePaths) {
 
         String imagesDirName = SCREENSHOT_IMAGES_DIRECTORY_NAME_DEFAULT; //NON-NLS
-        File imagesDir = new File(outputDir, imagesDirName);
-        FileUtil.ensureDirectoryExists(imagesDir);
-        File actualImageFile = new File(imagesDir, snapshotInfo.getActualImageFileName());
-        writeImage(actualImage, actualImageFile);
 
         List<ExpectedAndDifferenceFile> expectedAndDifferenceFiles = new ArrayList<>();
-        for (BufferedImage expectedImage : expectedImages) {
-            int i = expectedAndDifferenceFiles.size();
-            String expectedImageFileName = snapshotInfo.getExpectedImageFileName(i); //NON-NLS
-            File expectedImageFile = new File(imagesDir, expectedImageFileName);
-            writeImage(expectedImage, expectedImageFile);
-
-            String differenceImageFileName = snapshotInfo.getDifferenceImageFileName(i); //NON-NLS
-            File differenceImageFile = new File(imagesDir, differenceImageFileName);
-            writeImage(
-                    imageDifferenceMask(expectedImage, actualImage),
-                    differenceImageFile);
-
+        for (ExpectedAndDifferenceFile item : expectedAndDifferenceImagePaths) {
             expectedAndDifferenceFiles.add(
                     new ExpectedAndDifferenceFile(
-                            String.format("%s/%s", imagesDirName, expectedImageFileName), //NON-NLS
-                            String.format("%s/%s", imagesDirName, differenceImageFileName))); //NON-NLS
+                            String.format("%s/%s", imagesDirName, item.expectedImageFilePath), //NON-NLS
+                            String.format("%s/%s", imagesDirName, item.differenceImageFilePath))); //NON-NLS
         }
 
         return ScreenshotCompareReportData.of(
                 outputDir,
                 snapshotInfo,
-                String.format("%s/%s", imagesDirName, snapshotInfo.getActualImageFileName()), //NON-NLS
+                String.format("%s/%s", imagesDirName, actualImagePath), //NON-NLS
                 expectedAndDifferenceFiles,
                 exception,
                 newImageFileForResources,
@@ -545,6 +1089,8 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
 
     @Override
     public Seq<SnapshotIssue> getSnapshotIssues() {
+        // make sure all reports are written
+        ScreenshotCompareReportWriter.getDefault().flush();
         return newSnapshotIssueSupport(getSnapshotReportDirectory(),
                 getTestResourcesDirectory()).findSnapshotIssues();
     }
@@ -581,6 +1127,10 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
                     absoluteSnapshotName);
         }
 
+        /**
+         * Returns the images of the snapshot, as shared by the
+         * {@link SnapshotImageCache}, i.e. the images must not be modified.
+         */
         BufferedImage[] getImagesOfSnapshot() {
             List<BufferedImage> result = new ArrayList<>();
             int i = 0;
@@ -588,7 +1138,7 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
             do {
                 imageURL = getSnapshotImageURL(i);
                 if (imageURL != null) {
-                    result.add(GuiTestingUtil.readImage(imageURL));
+                    result.add(SnapshotImageCache.getDefault().getImage(imageURL));
                 }
                 i++;
             } while (imageURL != null);
@@ -596,6 +1146,87 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
             return result.toArray(new BufferedImage[0]);
         }
 
+        int getSnapshotImagesCount() {
+            @Nullable SnapshotManifest manifest = getSnapshotManifest();
+            if (manifest != null) {
+                return manifest.getImagesCount(getSnapshotFileSimpleName());
+            }
+
+            int i = 0;
+            while (getSnapshotImageURL(i) != null) {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Returns the content hashes of the first {@code count} snapshot
+         * images, as found in the {@link SnapshotImageIndex} of the snapshot
+         * directory in the test resources directory.
+         *
+         * <p>An image missing in the index is read through the
+         * {@link SnapshotImageCache}, i.e. it is not read again when it must
+         * be compared.</p>
+         *
+         * <p>A hash is 0 (i.e. "unknown") when the snapshot image on the
+         * class path may differ from the image file in the test resources
+         * directory.</p>
+         */
+        long[] getContentHashesOfSnapshot(int count) {
+            long[] result = new long[count];
+            if (count == 0) {
+                return result;
+            }
+            SnapshotImageIndex index = getSnapshotImageIndex();
+            for (int i = 0; i < count; i++) {
+                File file = getSnapshotImageFile(i);
+                @Nullable URL url = getSnapshotImageURL(i);
+                if (url != null && isSameImageFile(url, file)) {
+                    URL imageURL = url;
+                    @Nullable SnapshotImageIndex.Entry entry = index.getEntry(
+                            file, () -> SnapshotImageCache.getDefault().getImage(imageURL));
+                    if (entry != null) {
+                        result[i] = entry.getContentHash();
+                    }
+                }
+            }
+            index.save();
+            return result;
+        }
+
+        /**
+         * Returns the {@link SnapshotImageIndex} of the snapshot directory in
+         * the test resources directory.
+         *
+         * <p>The index file is stored in the snapshot report directory, not
+         * next to the snapshot images, to keep the test resources free of
+         * generated files.</p>
+         */
+        SnapshotImageIndex getSnapshotImageIndex() {
+            //noinspection StringConcatenation
+            String indexFileName = getSnapshotDirectoryResourceName()
+                    .replace('/', '.') + ".txt"; //NON-NLS
+            return SnapshotImageIndex.getIndex(
+                    getSnapshotImageFile(0).getParentFile(),
+                    new File(new File(getSnapshotReportDirectory(),
+                            SNAPSHOT_INDEX_DIRECTORY_NAME), indexFileName));
+        }
+
+        /**
+         * Returns {@code true} when the image at the {@code url} is the
+         * {@code file} or a copy of it (e.g. in "target/test-classes").
+         */
+        private boolean isSameImageFile(URL url, File file) {
+            //noinspection CallToSuspiciousStringMethod
+            if (!url.getProtocol().equals("file") || !file.isFile()) { //NON-NLS
+                return false;
+            }
+            File urlFile = urlToFile(url.toString());
+            // A copy has the same length and is not older than the original
+            return urlFile.length() == file.length()
+                    && urlFile.lastModified() >= file.lastModified();
+        }
+
         File getSnapshotImageFile(int index) {
             File dir = getTestResourcesDirectory();
             String imageName = getAbsoluteSnapshotImageResourceName(index)
@@ -603,22 +1234,50 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
             return new File(dir, imageName);
         }
 
-        private String getDifferenceImageFileName(int i) {
-            return String.format("%s-differenceImage@%d.png", getSnapshotSimpleName(), i); //NON-NLS
+        @Nullable
+        private URL getSnapshotImageURL(int i) {
+            @Nullable SnapshotManifest manifest = getSnapshotManifest();
+            return manifest != null
+                    ? manifest.getImageURL(SnapshotManifest.getImageFileName(
+                            getSnapshotFileSimpleName(), i))
+                    : ScreenCaptureSupportImpl.class.getResource(
+                            getAbsoluteSnapshotImageResourceName(i));
         }
 
-        private String getExpectedImageFileName(int i) {
-            return String.format("%s-expectedImage@%d.png", getSnapshotSimpleName(), i); //NON-NLS
+        /**
+         * Returns the {@link SnapshotManifest} of the "snap-shots" resource
+         * directory of the snapshot, or {@code null} when no manifest is
+         * available.
+         */
+        @Nullable
+        private SnapshotManifest getSnapshotManifest() {
+            @Nullable ClassLoader classLoader =
+                    ScreenCaptureSupportImpl.class.getClassLoader();
+            if (classLoader == null) {
+                return null;
+            }
+            return SnapshotManifest.ofResourceDirectory(
+                    classLoader, getSnapshotDirectoryResourceName());
         }
 
-        private String getActualImageFileName() {
-            return String.format("%s-actualImage.png", getSnapshotSimpleName()); //NON-NLS
+        /**
+         * Returns the name of the "snap-shots" resource directory of the
+         * snapshot, without a leading "/".
+         */
+        private String getSnapshotDirectoryResourceName() {
+            String resourceName = getAbsoluteSnapshotImageResourceName(0);
+            //noinspection MagicCharacter
+            return resourceName.substring(1, resourceName.lastIndexOf('/'));
         }
 
-        @Nullable
-        private URL getSnapshotImageURL(int i) {
-            return ScreenCaptureSupportImpl.class.getResource(
-                    getAbsoluteSnapshotImageResourceName(i));
+        /**
+         * Returns the name of the snapshot's image files without the
+         * "@index.png", i.e. the last part of the absolute snapshot name.
+         */
+        private String getSnapshotFileSimpleName() {
+            //noinspection MagicCharacter
+            return absoluteSnapshotName.substring(
+                    absoluteSnapshotName.lastIndexOf('/') + 1);
         }
 
         private String getAbsoluteSnapshotImageResourceName(int index) {
@@ -677,23 +1336,107 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
     private class CaptureScreenAndCompare {
         private final Component component;
         private final @Nullable Rectangle rectangle;
-        private final BufferedImage[] expectedImages;
+        private final @Nullable Predicate<Component> ignoredComponents;
+        private final CaptureMode captureMode = getCaptureMode();
+        /**
+         * The areas of the ignored components in the last screenshot, in
+         * coordinates relative to the screenshot.
+         */
+        private List<Rectangle> ignoredComponentsRectangles = Collections.emptyList();
+        private ImageCompare imageCompare = newImageCompare();
+        private final Supplier<BufferedImage[]> expectedImagesSupplier;
+        private BufferedImage @Nullable [] expectedImages;
+        /**
+         * The pixels of the expected images, converted only once (when
+         * first needed) and reused for every comparison.
+         */
+        private ImagePixels @Nullable [] expectedImagesPixels;
+        /**
+         * The {@link ImagePixels#getContentHash()}es of the expected images,
+         * with 0 for "unknown".
+         */
+        private final long[] expectedImagesHashes;
+        /**
+         * The content hash of the last compared screenshot, the
+         * {@link ImageCompare} used and the result of the comparison.
+         *
+         * <p>When the UI does not change the next screenshot is typically
+         * the same as the last one. Then the comparison is skipped and the
+         * last result is reused.</p>
+         */
+        private long lastComparedHash;
+        private @Nullable ImageCompare lastComparedImageCompare;
+        private boolean lastComparedResult;
 
         private @Nullable BufferedImage lastScreenshot;
 
         private CaptureScreenAndCompare(
                 Component component,
                 @Nullable Rectangle rectangle,
-                BufferedImage[] expectedImages) {
+                Supplier<BufferedImage[]> expectedImages,
+                long @Nullable [] expectedImagesHashes,
+                @Nullable Predicate<Component> ignoredComponents) {
             this.component = component;
             this.rectangle = rectangle;
-            this.expectedImages = expectedImages;
+            this.ignoredComponents = ignoredComponents;
+            this.expectedImagesSupplier = expectedImages;
+            this.expectedImagesHashes = expectedImagesHashes != null
+                    ? expectedImagesHashes
+                    : contentHashes(getExpectedImagesPixels());
+        }
+
+        private long[] contentHashes(ImagePixels[] pixels) {
+            long[] result = new long[pixels.length];
+            for (int i = 0; i < pixels.length; i++) {
+                result[i] = pixels[i].getContentHash();
+            }
+            return result;
+        }
+
+        private BufferedImage[] getExpectedImages() {
+            BufferedImage @Nullable [] result = expectedImages;
+            if (result == null) {
+                result = expectedImagesSupplier.get();
+                expectedImages = result;
+            }
+            return result;
+        }
+
+        private ImagePixels[] getExpectedImagesPixels() {
+            ImagePixels @Nullable [] result = expectedImagesPixels;
+            if (result == null) {
+                BufferedImage[] images = getExpectedImages();
+                result = new ImagePixels[images.length];
+                for (int i = 0; i < images.length; i++) {
+                    result[i] = ImagePixels.of(images[i]);
+                }
+                expectedImagesPixels = result;
+            }
+            return result;
         }
 
         private boolean imageMatchesAnyExpectedImage(BufferedImage image) {
-            for (BufferedImage expectedImage : expectedImages) {
-                ImageDifference diff = imageDifference(image, expectedImage);
-                if (!diff.imagesAreDifferent()) {
+            ImagePixels pixels = ImagePixels.of(image);
+            long hash = pixels.getContentHash();
+            if (hash == lastComparedHash
+                    && imageCompare == lastComparedImageCompare) {
+                return lastComparedResult;
+            }
+
+            // (same hash as an expected image: a match, without comparing pixels)
+            boolean result =
+                    imageCompare.ignoresAlpha() && containsHash(expectedImagesHashes, hash)
+                            || imageCompare.indexOfMatchingImage(pixels, getExpectedImagesPixels()) >= 0;
+
+            lastComparedHash = hash;
+            lastComparedImageCompare = imageCompare;
+            lastComparedResult = result;
+            return result;
+        }
+
+        private boolean containsHash(long[] hashes, long hash) {
+            for (long h : hashes) {
+                if (h == hash) {
                     return true;
                 }
             }
@@ -701,11 +1444,93 @@ public class ScreenCaptureSupportImpl implements ScreenCaptureSupport {
         }
 
         private BufferedImage capture() {
-            BufferedImage result = captureScreen(component, rectangle);
+            // When painting the component the image of the previous
+            // (non matching) capture is reused
+            BufferedImage result = captureScreen(
+                    component, rectangle, captureMode, lastScreenshot);
             this.lastScreenshot = result;
+            // (update after the capture, as capturing may layout the component)
+            if (ignoredComponents != null) {
+                updateIgnoredComponentsRectangles(ignoredComponents);
+            }
             return result;
         }
 
+        /**
+         * Captures the {@code repaintedArea} of the component again (in
+         * coordinates relative to the component), updating the last
+         * screenshot, and returns the screenshot.
+         *
+         * <p>Captures the full screenshot when the size of the captured area
+         * changed.</p>
+         */
+        private BufferedImage recapture(Rectangle repaintedArea) {
+            @Nullable BufferedImage image = lastScreenshot;
+            Rectangle capturedRectangle = getCapturedRectangle(component, rectangle);
+            if (image == null
+                    || image.getWidth() != capturedRectangle.width
+                    || image.getHeight() != capturedRectangle.height) {
+                return capture();
+            }
+
+            Rectangle area = repaintedArea.intersection(capturedRectangle);
+            if (!area.isEmpty()) {
+                recaptureArea(component, capturedRectangle, area, captureMode, image);
+                if (ignoredComponents != null) {
+                    updateIgnoredComponentsRectangles(ignoredComponents);
+                }
+            }
+            return image;
+        }
+
+        /**
+         * Updates the {@code imageCompare} to ignore the current areas of
+         * the components matching {@code ignoredComponents}.
+         *
+         * <p>The {@code imageCompare} (and its cached ignored regions) is only
+         * replaced when the areas changed.</p>
+         */
+        private void updateIgnoredComponentsRectangles(
+                Predicate<Component> ignoredComponents) {
+            Point captureOrigin =
+                    getCapturedRectangle(component, rectangle).getLocation();
+            List<Rectangle> rectangles = new ArrayList<>();
+            addIgnoredComponentsRectangles(
+                    rectangles, component, ignoredComponents, captureOrigin);
+            if (!rectangles.equals(ignoredComponentsRectangles)) {
+                ignoredComponentsRectangles = rectangles;
+                imageCompare = newImageCompare(rectangles);
+            }
+        }
+
+        private void addIgnoredComponentsRectangles(
+                List<Rectangle> rectangles,
+                Component parent,
+                Predicate<Component> ignoredComponents,
+                Point captureOrigin) {
+            if (!(parent instanceof Container)) {
+                return;
+            }
+            for (Component c : ((Container) parent).getComponents()) {
+                if (!c.isVisible()) {
+                    continue;
+                }
+                if (ignoredComponents.test(c)) {
+                    Rectangle r = SwingUtilities.convertRectangle(
+                            c, new Rectangle(c.getSize()), component);
+                    r.translate(-captureOrigin.x, -captureOrigin.y);
+                    rectangles.add(r);
+                } else {
+                    addIgnoredComponentsRectangles(
+                            rectangles, c, ignoredComponents, captureOrigin);
+                }
+            }
+        }
+
+        private ImageCompare getImageCompare() {
+            return imageCompare;
+        }
+
         @Nullable
         public BufferedImage getLastScreenshot() {
             return lastScreenshot;
@@ -49,10 +49,32 @@ public class ScreenshotCompareHtmlReport {
                 : "copy /Y " + source + " " + target; //NON-NLS
     }
 
+    /**
+     * Returns the file the report is written to.
+     *
+     * @return the file the report is written to
+     */
+    public File getReportFile() {
+        return getReportFile(reportData.getOutputDirectory(), reportData.getMethodName());
+    }
+
+    /**
+     * Returns the file the report for the method with the
+     * {@code methodName} is written to, in the {@code outputDirectory}.
+     *
+     * @param outputDirectory the directory of the report
+     * @param methodName      the name of the method the report is for
+     * @return the file the report is written to
+     */
+    public static File getReportFile(File outputDirectory, String methodName) {
+        //noinspection StringConcatenation
+        return new File(outputDirectory, methodName + "-failed.html"); //NON-NLS
+    }
+
     @SuppressWarnings({"StringConcatenation", "HardCodedStringLiteral"})
     public File writeReportFile() {
 
-        File reportFile = new File(reportData.getOutputDirectory(), reportData.getMethodName() + "-failed.html");
+        File reportFile = getReportFile();
         try (PrintStream report = new PrintStream(reportFile, StandardCharsets.UTF_8.name())) {
             report.println("" +
                     "<!DOCTYPE html>\n" +
@@ -65,7 +87,7 @@ public class ScreenshotCompareHtmlReport {
                     "<h1>" + reportData.getMethodName() + " failed</h1>\n" +
                     reportData.getTimestamp() + "\n" +
                     "<h2>Actual</h2>\n" +
-                    "<img src=\"" + reportData.getActualImageFilePath() + "\" alt=\"actual image\">\n");
+                    "<img src=\"" + reportData.getActualImageFilePath() + "\" alt=\"actual image\" loading=\"lazy\">\n");
 
             if (reportData.getNewImageAbsoluteFilePath() != null) {
                 printCopyFileStatement(report,
@@ -79,9 +101,9 @@ public class ScreenshotCompareHtmlReport {
             for (ExpectedAndDifferenceFile item : reportData.getExpectedAndDifferenceFiles()) {
                 report.println("" +
                         "<h2>Expected (Option " + i + " of " + n + ")</h2>\n" +
-                        "<img src=\"" + item.expectedImageFilePath + "\" alt=\"expected image " + i + "\">\n" +
+                        "<img src=\"" + item.expectedImageFilePath + "\" alt=\"expected image " + i + "\" loading=\"lazy\">\n" +
                         "<h3>Difference</h3>\n" +
-                        "<img src=\"" + item.differenceImageFilePath + "\" alt=\"difference image " + i + "\">\n");
+                        "<img src=\"" + item.differenceImageFilePath + "\" alt=\"difference image " + i + "\" loading=\"lazy\">\n");
                 printCopyFileStatement(report,
                         "To replace/overwrite the expected image with the actual image run the following in a command line terminal:",
                         reportData.getActualImageAbsoluteFilePath(),
@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.abego.guitesting.swing.GuiTestingException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The suite level report of the unmatched screenshots, listing all
+ * screenshot compare reports written during the run in the file
+ * {@value #INDEX_FILE_NAME} of the report directory.
+ *
+ * <p>The index is rewritten whenever a new report is added
+ * ({@link #addEntry(Entry)}). It shows thumbnails of the images (see
+ * {@link ReportImageStore#storeThumbnail}), loaded lazily by the browser,
+ * and links to the full size images. So even an index with hundreds of
+ * entries opens fast. The entries are sorted by the number of different
+ * pixels, largest first.</p>
+ *
+ * <p>The index only lists the reports of the current run (process), i.e.
+ * reports of earlier runs still in the report directory are not
+ * listed.</p>
+ */
+final class ScreenshotCompareIndexReport {
+    static final String INDEX_FILE_NAME = "index.html"; //NON-NLS
+    private static final Map<File, ScreenshotCompareIndexReport> REPORTS =
+            new ConcurrentHashMap<>();
+
+    private final File outputDirectory;
+    private final String startTimestamp = Instant.now().toString();
+    /**
+     * The entries, by snapshot name, i.e. a snapshot failing again
+     * replaces the earlier entry.
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private ScreenshotCompareIndexReport(File outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * Returns the {@link ScreenshotCompareIndexReport} for the report
+     * directory {@code outputDirectory}.
+     */
+    static ScreenshotCompareIndexReport indexReport(File outputDirectory) {
+        return REPORTS.computeIfAbsent(
+                outputDirectory.getAbsoluteFile(), ScreenshotCompareIndexReport::new);
+    }
+
+    File getIndexFile() {
+        return new File(outputDirectory, INDEX_FILE_NAME);
+    }
+
+    /**
+     * Adds the {@code entry} to the index and rewrites the index file.
+     */
+    synchronized void addEntry(Entry entry) {
+        entries.put(entry.snapshotName, entry);
+        writeIndexFile();
+    }
+
+    synchronized List<Entry> getEntries() {
+        List<Entry> result = new ArrayList<>(entries.values());
+        result.sort(Comparator
+                .comparingLong((Entry e) -> e.differentPixelsCount).reversed()
+                .thenComparing(e -> e.snapshotName));
+        return result;
+    }
+
+    @SuppressWarnings({"StringConcatenation", "HardCodedStringLiteral"})
+    private void writeIndexFile() {
+        File indexFile = getIndexFile();
+        try {
+            Files.createDirectories(outputDirectory.toPath());
+            // write to a temporary file first, so a browser never shows
+            // a partially written index.
+            Path tempFile = Files.createTempFile(
+                    outputDirectory.toPath(), INDEX_FILE_NAME, ".tmp");
+            try {
+                try (PrintStream report = new PrintStream(
+                        tempFile.toFile(), StandardCharsets.UTF_8.name())) {
+                    List<Entry> sortedEntries = getEntries();
+                    report.println("" +
+                            "<!DOCTYPE html>\n" +
+                            "<html lang=\"en\">\n" +
+                            "<head>\n" +
+                            "    <meta charset=\"UTF-8\">\n" +
+                            "    <title>Unmatched screenshots</title>\n" +
+                            "    <style>\n" +
+                            "        table { border-collapse: collapse; }\n" +
+                            "        td, th { border: 1px solid #ccc; padding: 4px; vertical-align: top; text-align: left; }\n" +
+                            "        img { max-width: " + ReportImageStore.THUMBNAIL_MAX_WIDTH + "px; max-height: " + ReportImageStore.THUMBNAIL_MAX_HEIGHT + "px; }\n" +
+                            "    </style>\n" +
+                            "</head>\n" +
+                            "<body>\n" +
+                            "<h1>Unmatched screenshots (" + sortedEntries.size() + ")</h1>\n" +
+                            "Run started " + startTimestamp + "\n" +
+                            "<table>\n" +
+                            "<tr><th>Snapshot</th><th>Different pixels</th><th>Actual</th><th>Expected (closest)</th><th>Difference</th></tr>");
+                    for (Entry entry : sortedEntries) {
+                        report.println("" +
+                                "<tr>\n" +
+                                "<td><a href=\"" + entry.reportFileName + "\">" + entry.snapshotName + "</a><br>" + entry.timestamp + "</td>\n" +
+                                "<td>" + entry.differentPixelsCount + String.format(" (%.2f%%)", entry.differentPixelsPercentage) + "</td>\n" +
+                                "<td>" + thumbnailHTML(entry.actualImage, "actual image") + "</td>\n" +
+                                "<td>" + thumbnailHTML(entry.expectedImage, "expected image") +
+                                "<br>Option " + (entry.expectedImageIndex + 1) + " of " + entry.expectedImagesCount + "</td>\n" +
+                                "<td>" + thumbnailHTML(entry.differenceImage, "difference image") + "</td>\n" +
+                                "</tr>");
+                    }
+                    report.println("" +
+                            "</table>\n" +
+                            "</body>\n" +
+                            "</html>");
+                }
+                try {
+                    Files.move(tempFile, indexFile.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, indexFile.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new GuiTestingException(
+                    "Error when writing report file " + indexFile.getAbsolutePath(), e);
+        }
+    }
+
+    @SuppressWarnings({"StringConcatenation", "HardCodedStringLiteral"})
+    private static String thumbnailHTML(ImageLink image, String alt) {
+        return "<a href=\"" + image.imagePath + "\">" +
+                "<img src=\"" + image.thumbnailPath + "\" alt=\"" + alt + "\" loading=\"lazy\">" +
+                "</a>";
+    }
+
+    /**
+     * An image in the index, with the paths (relative to the report
+     * directory) of the full size image and its thumbnail.
+     */
+    static final class ImageLink {
+        final String imagePath;
+        final String thumbnailPath;
+
+        ImageLink(String imagePath, String thumbnailPath) {
+            this.imagePath = imagePath;
+            this.thumbnailPath = thumbnailPath;
+        }
+    }
+
+    /**
+     * The entry of a screenshot compare report in the index.
+     *
+     * <p>The expected and difference image are the ones of the expected
+     * image closest to the actual image, i.e. with the fewest different
+     * pixels.</p>
+     */
+    static final class Entry {
+        final String snapshotName;
+        final String reportFileName;
+        final String timestamp;
+        final long differentPixelsCount;
+        final double differentPixelsPercentage;
+        final int expectedImageIndex;
+        final int expectedImagesCount;
+        final ImageLink actualImage;
+        final ImageLink expectedImage;
+        final ImageLink differenceImage;
+
+        Entry(String snapshotName,
+              String reportFileName,
+              String timestamp,
+              long differentPixelsCount,
+              double differentPixelsPercentage,
+              int expectedImageIndex,
+              int expectedImagesCount,
+              ImageLink actualImage,
+              ImageLink expectedImage,
+              ImageLink differenceImage) {
+            this.snapshotName = snapshotName;
+            this.reportFileName = reportFileName;
+            this.timestamp = timestamp;
+            this.differentPixelsCount = differentPixelsCount;
+            this.differentPixelsPercentage = differentPixelsPercentage;
+            this.expectedImageIndex = expectedImageIndex;
+            this.expectedImagesCount = expectedImagesCount;
+            this.actualImage = actualImage;
+            this.expectedImage = expectedImage;
+            this.differenceImage = differenceImage;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.util.logging.Logger.getLogger;
+
+/**
+ * Writes the files of screenshot compare reports (images and HTML) in the
+ * background, so a failing test does not have to wait for the (slow) PNG
+ * encoding.
+ *
+ * <p>The tasks are run by a small pool of daemon threads. When too many
+ * tasks are pending the task is run in the calling thread, to limit the
+ * memory held by pending tasks.</p>
+ *
+ * <p>{@link #flush()} waits until all submitted tasks are done. This
+ * happens automatically when the JVM exits.</p>
+ */
+public final class ScreenshotCompareReportWriter {
+    private static final Logger LOGGER = getLogger(ScreenshotCompareReportWriter.class.getName());
+    private static final int QUEUE_CAPACITY = 16;
+    private static final Duration FLUSH_ON_EXIT_TIMEOUT = Duration.ofMinutes(5);
+    private static final ScreenshotCompareReportWriter DEFAULT =
+            newScreenshotCompareReportWriter(
+                    Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+
+    private final ThreadPoolExecutor executor;
+    private final Object pendingTasksLock = new Object();
+    private int pendingTasksCount = 0;
+
+    private ScreenshotCompareReportWriter(int threadCount) {
+        executor = new ThreadPoolExecutor(
+                threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                newDaemonThreadFactory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    static ScreenshotCompareReportWriter newScreenshotCompareReportWriter(int threadCount) {
+        ScreenshotCompareReportWriter writer = new ScreenshotCompareReportWriter(threadCount);
+        Runtime.getRuntime().addShutdownHook(new Thread(
+                () -> writer.flush(FLUSH_ON_EXIT_TIMEOUT),
+                "ScreenshotCompareReportWriter-flush")); //NON-NLS
+        return writer;
+    }
+
+    public static ScreenshotCompareReportWriter getDefault() {
+        return DEFAULT;
+    }
+
+    private static ThreadFactory newDaemonThreadFactory() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, String.format(
+                    "ScreenshotCompareReportWriter-%d", //NON-NLS
+                    threadNumber.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Runs the {@code task} in the background.
+     *
+     * <p>Exceptions thrown by the task are logged.</p>
+     */
+    void submit(Runnable task) {
+        synchronized (pendingTasksLock) {
+            pendingTasksCount++;
+        }
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Error when writing report", e); //NON-NLS
+            } finally {
+                synchronized (pendingTasksLock) {
+                    pendingTasksCount--;
+                    pendingTasksLock.notifyAll();
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits until all submitted tasks are done.
+     */
+    public void flush() {
+        flush(null);
+    }
+
+    private void flush(@Nullable Duration timeout) {
+        long end = timeout != null ? System.nanoTime() + timeout.toNanos() : 0;
+        synchronized (pendingTasksLock) {
+            while (pendingTasksCount > 0) {
+                long waitMillis = 0;
+                if (timeout != null) {
+                    waitMillis = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+                    if (waitMillis <= 0) {
+                        LOGGER.warning(String.format(
+                                "Timeout when waiting for %d report(s) to be written", //NON-NLS
+                                pendingTasksCount));
+                        return;
+                    }
+                }
+                try {
+                    pendingTasksLock.wait(waitMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.abego.guitesting.swing.internal.GuiTestingUtil;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.abego.guitesting.swing.internal.GuiTestingUtil.urlToFile;
+
+/**
+ * A process-wide cache of decoded snapshot images, to avoid reading
+ * (decoding) the same snapshot image file again and again, e.g. in
+ * parameterized tests.
+ *
+ * <p>Images are cached by their URL. An image is read again when the
+ * modification time of its file changed. The cache holds at most
+ * {@code maxEntries} images (the least recently used ones are removed
+ * first) and only "softly" references the images, i.e. the garbage
+ * collector may remove images when memory gets low.</p>
+ *
+ * <p>The images returned by the cache are shared and must not be
+ * modified.</p>
+ */
+public final class SnapshotImageCache {
+    private static final int MAX_ENTRIES_DEFAULT = 256;
+    private static final SnapshotImageCache DEFAULT =
+            newSnapshotImageCache(MAX_ENTRIES_DEFAULT);
+
+    private final Map<String, CachedImage> images;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    private SnapshotImageCache(int maxEntries) {
+        this.images = new LinkedHashMap<String, CachedImage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedImage> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    static SnapshotImageCache newSnapshotImageCache(int maxEntries) {
+        return new SnapshotImageCache(maxEntries);
+    }
+
+    public static SnapshotImageCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the image at the {@code url}, from the cache when possible.
+     *
+     * <p>The returned image is shared and must not be modified.</p>
+     *
+     * @param url the URL of a PNG image
+     * @return the image at the {@code url}
+     */
+    public BufferedImage getImage(URL url) {
+        String key = url.toExternalForm();
+        long lastModified = lastModified(url);
+        synchronized (this) {
+            @Nullable CachedImage cachedImage = images.get(key);
+            if (cachedImage != null && cachedImage.lastModified == lastModified) {
+                @Nullable BufferedImage image = cachedImage.image.get();
+                if (image != null) {
+                    hitCount++;
+                    return image;
+                }
+            }
+            missCount++;
+        }
+
+        // read the image outside the lock, reading may take some time
+        BufferedImage image = GuiTestingUtil.readImage(url);
+        synchronized (this) {
+            images.put(key, new CachedImage(lastModified, image));
+        }
+        return image;
+    }
+
+    /**
+     * Removes the images with the file name of the {@code file}
+     * (e.g. "Foo@0.png") from the cache.
+     *
+     * <p>Call this method when writing a snapshot image file to the test
+     * resources directory. As the cached image may be a copy (e.g. from
+     * "target/test-classes") images are matched by their file name, possibly
+     * removing images of the same name from other directories, too.</p>
+     *
+     * @param file a snapshot image file just written
+     */
+    public synchronized void invalidate(File file) {
+        //noinspection StringConcatenation
+        String suffix = "/" + file.getName(); //NON-NLS
+        images.keySet().removeIf(k -> k.endsWith(suffix));
+    }
+
+    /**
+     * Removes all images from the cache.
+     */
+    public synchronized void clear() {
+        images.clear();
+    }
+
+    /**
+     * Returns the number of {@link #getImage(URL)} calls answered from the
+     * cache.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of {@link #getImage(URL)} calls that read the image.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the modification time of the file of the {@code url}, or 0
+     * when the {@code url} is not a file URL (e.g. an image in a jar file).
+     */
+    private static long lastModified(URL url) {
+        //noinspection CallToSuspiciousStringMethod
+        if (!url.getProtocol().equals("file")) { //NON-NLS
+            return 0;
+        }
+        File file = urlToFile(url.toString());
+        return file.lastModified();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("SnapshotImageCache{size=%d, hits=%d, misses=%d}", //NON-NLS
+                images.size(), hitCount, missCount);
+    }
+
+    private static final class CachedImage {
+        private final long lastModified;
+        private final SoftReference<BufferedImage> image;
+
+        private CachedImage(long lastModified, BufferedImage image) {
+            this.lastModified = lastModified;
+            this.image = new SoftReference<>(image);
+        }
+    }
+}
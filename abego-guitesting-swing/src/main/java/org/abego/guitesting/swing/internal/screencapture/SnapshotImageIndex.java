@@ -0,0 +1,358 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.abego.guitesting.swing.internal.GuiTestingUtil;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import static java.util.logging.Logger.getLogger;
+
+/**
+ * An index of the snapshot images in a "snap-shots" directory, holding the
+ * size and the content hash ({@link ImagePixels#getContentHash()}) of every
+ * image.
+ *
+ * <p>With the index a screenshot exactly matching a snapshot image is found
+ * without reading (decoding) the PNG file of the snapshot image.</p>
+ *
+ * <p>There is one index per directory and process
+ * ({@link #getIndex(File, File)}), kept in memory. The index is stored in
+ * an index file outside the directory, typically in the snapshot report
+ * directory, and only written when it changed.</p>
+ *
+ * <p>A stored entry is identified by the length and the CRC-32 checksum of
+ * the image file, not by its modification time, as checking out a file
+ * changes its modification time but not its content. Within the process
+ * an entry is only checked again when the length or the modification time
+ * of the image file changed. Entries of deleted image files are removed
+ * when the index file is read.</p>
+ */
+final class SnapshotImageIndex {
+    private static final String HEADER = "# abego GuiTesting snapshot index 2"; //NON-NLS
+    private static final Logger LOGGER = getLogger(SnapshotImageIndex.class.getName());
+    private static final Map<File, SnapshotImageIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final File directory;
+    private final File indexFile;
+    private final Map<String, Entry> entries = new TreeMap<>();
+    /**
+     * The length and modification time of the image files whose entries
+     * were checked (or calculated) in this process, by file name.
+     */
+    private final Map<String, FileStamp> checkedFiles = new HashMap<>();
+    private boolean modified = false;
+
+    private SnapshotImageIndex(File directory, File indexFile) {
+        this.directory = directory;
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Returns the {@link SnapshotImageIndex} of the {@code directory}, shared
+     * by the whole process.
+     *
+     * <p>When first requested the index is read from the {@code indexFile}
+     * (see {@link #load(File, File)}). Later calls return the same index,
+     * ignoring the {@code indexFile} parameter.</p>
+     */
+    static SnapshotImageIndex getIndex(File directory, File indexFile) {
+        return INDEXES.computeIfAbsent(
+                directory.getAbsoluteFile(), d -> load(directory, indexFile));
+    }
+
+    /**
+     * Returns a new {@link SnapshotImageIndex} of the {@code directory}, as
+     * stored in the {@code indexFile}, or an empty index when the index file
+     * does not exist (or is unreadable).
+     */
+    static SnapshotImageIndex load(File directory, File indexFile) {
+        SnapshotImageIndex result = new SnapshotImageIndex(directory, indexFile);
+        result.read();
+        return result;
+    }
+
+    File getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * Returns the {@link Entry} of the {@code imageFile}, or {@code null}
+     * when the file does not exist.
+     *
+     * <p>When the index has no entry for the current content of the file
+     * the entry is calculated from the image file.</p>
+     *
+     * @param imageFile a PNG file in the directory of this index
+     */
+    @Nullable
+    Entry getEntry(File imageFile) {
+        return getEntry(imageFile, () -> GuiTestingUtil.readImage(imageFile));
+    }
+
+    /**
+     * Returns the {@link Entry} of the {@code imageFile}, or {@code null}
+     * when the file does not exist.
+     *
+     * <p>When the index has no entry for the current content of the file
+     * the entry is calculated from the {@code image}, e.g. the shared image
+     * of the {@link SnapshotImageCache}.</p>
+     *
+     * @param imageFile a PNG file in the directory of this index
+     * @param image     supplies the image of the {@code imageFile}, only
+     *                  called when the entry must be calculated
+     */
+    @Nullable
+    synchronized Entry getEntry(File imageFile, Supplier<BufferedImage> image) {
+        checkIsInDirectory(imageFile);
+
+        String name = imageFile.getName();
+        if (!imageFile.isFile()) {
+            checkedFiles.remove(name);
+            if (entries.remove(name) != null) {
+                modified = true;
+            }
+            return null;
+        }
+
+        FileStamp stamp = new FileStamp(imageFile);
+        @Nullable Entry entry = entries.get(name);
+        if (entry != null && stamp.equals(checkedFiles.get(name))) {
+            return entry;
+        }
+        long checksum = checksum(imageFile);
+        if (entry == null || entry.length != stamp.length || entry.checksum != checksum) {
+            entry = newEntry(stamp.length, checksum, image.get());
+            entries.put(name, entry);
+            modified = true;
+        }
+        checkedFiles.put(name, stamp);
+        return entry;
+    }
+
+    /**
+     * Adds the entry for the {@code imageFile} just written with the
+     * {@code image}.
+     *
+     * @param imageFile a PNG file in the directory of this index
+     * @param image     the image written to the {@code imageFile}
+     */
+    synchronized void putEntry(File imageFile, BufferedImage image) {
+        checkIsInDirectory(imageFile);
+
+        String name = imageFile.getName();
+        FileStamp stamp = new FileStamp(imageFile);
+        entries.put(name, newEntry(stamp.length, checksum(imageFile), image));
+        checkedFiles.put(name, stamp);
+        modified = true;
+    }
+
+    private static Entry newEntry(long length, long checksum, BufferedImage image) {
+        return new Entry(length, checksum,
+                image.getWidth(), image.getHeight(),
+                ImagePixels.of(image).getContentHash());
+    }
+
+    /**
+     * Writes the index to its index file, when it was modified.
+     *
+     * <p>The index is just an optimization. Therefore failing to write the
+     * index file is only logged.</p>
+     */
+    synchronized void save() {
+        if (!modified) {
+            return;
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        entries.forEach((name, e) -> lines.add(String.format(
+                "%s\t%d\t%08x\t%d\t%d\t%016x", //NON-NLS
+                name, e.length, e.checksum, e.width, e.height, e.contentHash)));
+        Path indexPath = indexFile.toPath();
+        try {
+            Path parent = indexPath.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            // write to a temporary file first, so other readers never see
+            // a partially written index file.
+            Path tempFile = Files.createTempFile(
+                    parent, indexFile.getName(), ".tmp"); //NON-NLS
+            try {
+                Files.write(tempFile, lines, StandardCharsets.UTF_8);
+                try {
+                    Files.move(tempFile, indexPath,
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, indexPath,
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            modified = false;
+        } catch (IOException e) {
+            LOGGER.warning(String.format(
+                    "Error when writing snapshot index %s: %s", indexPath, e)); //NON-NLS
+        }
+    }
+
+    private void read() {
+        if (!indexFile.isFile()) {
+            return;
+        }
+        try {
+            List<String> lines = Files.readAllLines(
+                    indexFile.toPath(), StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+                // unknown format: rebuild the index
+                modified = true;
+                return;
+            }
+            for (String line : lines.subList(1, lines.size())) {
+                String[] parts = line.split("\t");
+                if (parts.length != 6 || !new File(directory, parts[0]).isFile()) {
+                    // corrupt line or the entry of a deleted image file
+                    modified = true;
+                    continue;
+                }
+                entries.put(parts[0], new Entry(
+                        Long.parseLong(parts[1]),
+                        Long.parseLong(parts[2], 16),
+                        Integer.parseInt(parts[3]),
+                        Integer.parseInt(parts[4]),
+                        Long.parseUnsignedLong(parts[5], 16)));
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.warning(String.format(
+                    "Error when reading snapshot index %s: %s", indexFile, e)); //NON-NLS
+            entries.clear();
+            modified = true;
+        }
+    }
+
+    private void checkIsInDirectory(File imageFile) {
+        if (!directory.equals(imageFile.getParentFile())) {
+            throw new IllegalArgumentException(String.format(
+                    "File %s not in directory %s", imageFile, directory)); //NON-NLS
+        }
+    }
+
+    /**
+     * Returns the CRC-32 checksum of the content of the {@code file}.
+     */
+    private static long checksum(File file) {
+        try {
+            CRC32 crc = new CRC32();
+            crc.update(Files.readAllBytes(file.toPath()));
+            return crc.getValue();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The size and the content hash of a snapshot image, together with the
+     * length and the CRC-32 checksum of the image file the entry was
+     * calculated from.
+     */
+    static final class Entry {
+        private final long length;
+        private final long checksum;
+        private final int width;
+        private final int height;
+        private final long contentHash;
+
+        private Entry(long length, long checksum, int width, int height, long contentHash) {
+            this.length = length;
+            this.checksum = checksum;
+            this.width = width;
+            this.height = height;
+            this.contentHash = contentHash;
+        }
+
+        int getWidth() {
+            return width;
+        }
+
+        int getHeight() {
+            return height;
+        }
+
+        /**
+         * Returns the {@link ImagePixels#getContentHash()} of the image.
+         */
+        long getContentHash() {
+            return contentHash;
+        }
+    }
+
+    /**
+     * The length and the modification time of a file.
+     */
+    private static final class FileStamp {
+        private final long length;
+        private final long lastModified;
+
+        private FileStamp(File file) {
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FileStamp)) {
+                return false;
+            }
+            FileStamp other = (FileStamp) o;
+            return length == other.length && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(length) * 31 + Long.hashCode(lastModified);
+        }
+    }
+}
@@ -29,14 +29,18 @@ import org.abego.guitesting.swing.ScreenCaptureSupport.SnapshotIssue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -44,6 +48,12 @@ import static java.lang.Integer.parseInt;
 import static java.nio.file.Files.walkFileTree;
 import static org.abego.commons.io.FileUtil.toURL;
 import static org.abego.commons.seq.SeqUtil.newSeq;
+import static org.abego.guitesting.swing.internal.screencapture.ReportImageStore.ACTUAL_IMAGE_KEY;
+import static org.abego.guitesting.swing.internal.screencapture.ReportImageStore.CONTENT_DIRECTORY_NAME;
+import static org.abego.guitesting.swing.internal.screencapture.ReportImageStore.DIFFERENCE_IMAGE_KEY_PREFIX;
+import static org.abego.guitesting.swing.internal.screencapture.ReportImageStore.EXPECTED_IMAGE_KEY_PREFIX;
+import static org.abego.guitesting.swing.internal.screencapture.ReportImageStore.THUMBNAILS_DIRECTORY_NAME;
+import static org.abego.guitesting.swing.internal.screencapture.ScreenCaptureSupportImpl.SCREENSHOT_IMAGES_DIRECTORY_NAME_DEFAULT;
 import static org.abego.guitesting.swing.internal.screencapture.ScreenCaptureSupportImpl.SNAP_SHOTS_DIRECTORY_NAME;
 
 final class SnapshotIssueSupport {
@@ -64,6 +74,19 @@ final class SnapshotIssueSupport {
      **/
     private final static Pattern EXPECTED_IMAGE_FILE_NAME_PATTERN =
             Pattern.compile("([-a-z.\\\\]+)([^@]*?)-expectedImage@(\\d+)\\.png");
+    /**
+     * The {@link Pattern} to match the parts of the name of a "references"
+     * file of the {@link ReportImageStore}.
+     * <p>
+     * Groups
+     * <ul>
+     *     <li>1 - packageName</li>
+     *     <li>2 - fileName</li>
+     * </ul>
+     **/
+    private final static Pattern REFERENCES_FILE_NAME_PATTERN =
+            Pattern.compile("([-a-z.\\\\]+)([^@]*?)" +
+                    Pattern.quote(ReportImageStore.REFERENCES_FILE_NAME_SUFFIX));
     private final List<SnapshotIssue> items = new ArrayList<>();
     private final File guitestingReportsDir;
     private final File testResourcesDir;
@@ -82,16 +105,34 @@ final class SnapshotIssueSupport {
 
         SimpleFileVisitor<Path> visitor = new SimpleFileVisitor<Path>() {
 
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                // the content-addressed image files are found through the
+                // "references" files
+                String name = dir.getFileName().toString();
+                //noinspection CallToSuspiciousStringMethod
+                return name.equals(CONTENT_DIRECTORY_NAME) || name.equals(THUMBNAILS_DIRECTORY_NAME)
+                        ? FileVisitResult.SKIP_SUBTREE
+                        : super.preVisitDirectory(dir, attrs);
+            }
+
             @Override
             public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
 
                 String input = file.getFileName().toString();
                 Matcher m = EXPECTED_IMAGE_FILE_NAME_PATTERN.matcher(input);
                 if (m.matches()) {
+                    // a report image file written by an earlier version,
+                    // not using the ReportImageStore
                     String packageName = m.group(1);
                     String fileName = m.group(2);
                     int index = parseInt(m.group(3));
                     items.add(new Issue(packageName, fileName, index));
+                } else {
+                    m = REFERENCES_FILE_NAME_PATTERN.matcher(input);
+                    if (m.matches()) {
+                        addIssuesOfReferencesFile(file, m.group(1), m.group(2));
+                    }
                 }
 
                 return super.visitFile(file, attrs);
@@ -110,17 +151,64 @@ final class SnapshotIssueSupport {
         return newSeq(items);
     }
 
+    /**
+     * Adds an {@link Issue} for every expected image listed in the
+     * "references" {@code file}.
+     */
+    private void addIssuesOfReferencesFile(
+            Path file, String packageName, String fileName) throws IOException {
+        Properties references = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            references.load(reader);
+        }
+        File imagesDir = file.getParent().toFile();
+        String actualImage = references.getProperty(ACTUAL_IMAGE_KEY);
+        if (actualImage == null) {
+            return;
+        }
+        for (int i = 0; ; i++) {
+            String expectedImage = references.getProperty(EXPECTED_IMAGE_KEY_PREFIX + i);
+            String differenceImage = references.getProperty(DIFFERENCE_IMAGE_KEY_PREFIX + i);
+            if (expectedImage == null || differenceImage == null) {
+                return;
+            }
+            items.add(new Issue(packageName, fileName, i,
+                    new File(imagesDir, actualImage),
+                    new File(imagesDir, expectedImage),
+                    new File(imagesDir, differenceImage)));
+        }
+    }
+
     private final class Issue implements SnapshotIssue {
 
         private final String packageName;
         private final String fileName;
         private final int index;
+        private final File actualImage;
+        private final File expectedImage;
+        private final File differenceImage;
 
-        private Issue(String packageName, String fileName, int index) {
+        private Issue(String packageName,
+                      String fileName,
+                      int index,
+                      File actualImage,
+                      File expectedImage,
+                      File differenceImage) {
 
             this.packageName = packageName;
             this.fileName = fileName;
             this.index = index;
+            this.actualImage = actualImage;
+            this.expectedImage = expectedImage;
+            this.differenceImage = differenceImage;
+        }
+
+        private Issue(String packageName, String fileName, int index) {
+            //noinspection StringConcatenation
+            this(packageName, fileName, index,
+                    getFileInReportsImagesDir(packageName, fileName, "-actualImage.png"), //NON-NLS
+                    getFileInReportsImagesDir(packageName, fileName, "-expectedImage@" + index + ".png"), //NON-NLS
+                    getFileInReportsImagesDir(packageName, fileName, "-differenceImage@" + index + ".png")); //NON-NLS
         }
 
         @Override
@@ -144,19 +232,17 @@ final class SnapshotIssueSupport {
 
         @Override
         public URL getActualImage() {
-            return toURL(getFileInReportsImagesDir("-actualImage.png")); //NON-NLS
+            return toURL(actualImage);
         }
 
         @Override
         public URL getExpectedImage() {
-            //noinspection StringConcatenation
-            return toURL(getFileInReportsImagesDir("-expectedImage@" + getIndex() + ".png")); //NON-NLS
+            return toURL(expectedImage);
         }
 
         @Override
         public URL getDifferenceImage() {
-            //noinspection StringConcatenation
-            return toURL(getFileInReportsImagesDir("-differenceImage@" + getIndex() + ".png")); //NON-NLS
+            return toURL(differenceImage);
         }
 
         @Override
@@ -170,12 +256,11 @@ final class SnapshotIssueSupport {
         }
 
         private File getSnapshotFileToAdd() {
-            File result;
-            int i = 0;
-            do {
-                result = getSnapshotFile(i++);
-            } while (result.exists());
-            return result;
+            // list the snap-shots directory once, rather than probing for
+            // every index
+            File directory = getSnapshotFile(0).getParentFile();
+            return getSnapshotFile(SnapshotManifest.ofDirectory(directory)
+                    .getImagesCount(fileName));
         }
 
         private File getSnapshotFile(int i) {
@@ -183,11 +268,13 @@ final class SnapshotIssueSupport {
                     testResourcesDir,
                     packageName.replace(".", "/") + SNAP_SHOTS_DIRECTORY_NAME + "/" + fileName + "@" + i + ".png");
         }
+    }
 
-        private File getFileInReportsImagesDir(String suffix) {
-            return new File(
-                    guitestingReportsDir,
-                    "images/" + packageName + fileName + suffix);
-        }
+    private File getFileInReportsImagesDir(
+            String packageName, String fileName, String suffix) {
+        //noinspection StringConcatenation
+        return new File(
+                new File(guitestingReportsDir, SCREENSHOT_IMAGES_DIRECTORY_NAME_DEFAULT),
+                packageName + fileName + suffix);
     }
 }
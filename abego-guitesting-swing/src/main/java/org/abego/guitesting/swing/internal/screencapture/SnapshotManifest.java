@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The snapshot images of a "snap-shots" directory, i.e. a map from the
+ * file names of the images (e.g. "Foo@0.png") to their URLs.
+ *
+ * <p>Looking up a snapshot image in the manifest is a map read, compared to
+ * probing for the resource (e.g. with {@link Class#getResource(String)}),
+ * that may scan all jars and directories of the class path.</p>
+ */
+final class SnapshotManifest {
+    /**
+     * The manifests of the resource directories, by class loader and
+     * directory name.
+     */
+    private static final Map<ClassLoader, Map<String, CachedManifest>> MANIFESTS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Map<String, URL> imageURLs;
+
+    private SnapshotManifest(Map<String, URL> imageURLs) {
+        this.imageURLs = imageURLs;
+    }
+
+    /**
+     * Returns the {@link SnapshotManifest} of the {@code directory}.
+     *
+     * <p>The directory is listed on every call.</p>
+     */
+    static SnapshotManifest ofDirectory(File directory) {
+        Map<String, URL> imageURLs = new HashMap<>();
+        addImageURLs(imageURLs, directory);
+        return new SnapshotManifest(imageURLs);
+    }
+
+    /**
+     * Returns the {@link SnapshotManifest} of the resource directory
+     * {@code directoryName} (e.g. "a/b/snap-shots"), as seen by the
+     * {@code classLoader}, or {@code null} when no manifest is available.
+     *
+     * <p>The manifest is created on the first call and reused as long as
+     * the directories it was created from are not modified.</p>
+     *
+     * <p>No manifest is available when the resource directory is not found
+     * or some of it is not a directory in the file system (e.g. in a jar
+     * file). In that case look up the resources directly.</p>
+     */
+    @Nullable
+    static SnapshotManifest ofResourceDirectory(
+            ClassLoader classLoader, String directoryName) {
+        Map<String, CachedManifest> manifests = MANIFESTS.computeIfAbsent(
+                classLoader, c -> new ConcurrentHashMap<>());
+        @Nullable CachedManifest cachedManifest = manifests.get(directoryName);
+        if (cachedManifest != null && cachedManifest.isUpToDate()) {
+            return cachedManifest.manifest;
+        }
+
+        cachedManifest = newCachedManifest(classLoader, directoryName);
+        if (cachedManifest == null) {
+            manifests.remove(directoryName);
+            return null;
+        }
+        manifests.put(directoryName, cachedManifest);
+        return cachedManifest.manifest;
+    }
+
+    @Nullable
+    private static CachedManifest newCachedManifest(
+            ClassLoader classLoader, String directoryName) {
+        List<File> directories = new ArrayList<>();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(directoryName);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                //noinspection CallToSuspiciousStringMethod
+                if (!url.getProtocol().equals("file")) { //NON-NLS
+                    return null;
+                }
+                directories.add(new File(url.toURI()));
+            }
+        } catch (IOException | URISyntaxException e) {
+            return null;
+        }
+        if (directories.isEmpty()) {
+            return null;
+        }
+
+        // When an image exists in multiple directories the first one wins,
+        // as with ClassLoader#getResource.
+        long[] lastModified = new long[directories.size()];
+        Map<String, URL> imageURLs = new HashMap<>();
+        for (int i = 0; i < directories.size(); i++) {
+            File directory = directories.get(i);
+            lastModified[i] = directory.lastModified();
+            addImageURLs(imageURLs, directory);
+        }
+        return new CachedManifest(
+                new SnapshotManifest(imageURLs), directories, lastModified);
+    }
+
+    private static void addImageURLs(Map<String, URL> imageURLs, File directory) {
+        File @Nullable [] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            //noinspection StringToUpperCaseOrToLowerCaseWithoutLocale
+            if (file.getName().toLowerCase().endsWith(".png") && file.isFile()) { //NON-NLS
+                try {
+                    imageURLs.putIfAbsent(file.getName(), file.toURI().toURL());
+                } catch (MalformedURLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the URL of the snapshot image with the {@code fileName}, or
+     * {@code null} when the image does not exist.
+     */
+    @Nullable
+    URL getImageURL(String fileName) {
+        return imageURLs.get(fileName);
+    }
+
+    /**
+     * Returns the number of images of the snapshot with the
+     * {@code simpleName}, i.e. the images "simpleName@0.png",
+     * "simpleName@1.png", ... up to the first missing one.
+     */
+    int getImagesCount(String simpleName) {
+        int i = 0;
+        while (imageURLs.containsKey(getImageFileName(simpleName, i))) {
+            i++;
+        }
+        return i;
+    }
+
+    static String getImageFileName(String simpleName, int index) {
+        return String.format("%s@%d.png", simpleName, index); //NON-NLS
+    }
+
+    private static final class CachedManifest {
+        private final SnapshotManifest manifest;
+        private final List<File> directories;
+        private final long[] lastModified;
+
+        private CachedManifest(
+                SnapshotManifest manifest, List<File> directories, long[] lastModified) {
+            this.manifest = manifest;
+            this.directories = directories;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Returns {@code true} when no file was added to or removed from
+         * the directories since the manifest was created.
+         */
+        private boolean isUpToDate() {
+            for (int i = 0; i < lastModified.length; i++) {
+                if (directories.get(i).lastModified() != lastModified[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal.screencapture;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.util.logging.Logger.getLogger;
+import static org.abego.commons.lang.ThreadUtil.sleep;
+
+/**
+ * Captures images repeatedly until the captured image is "stable", i.e.
+ * until a given number of consecutive captures are identical.
+ *
+ * <p>Captures are compared by their content hash
+ * ({@link ImagePixels#getContentHash()}), so every capture is only read
+ * once and no capture must be kept besides the last one.</p>
+ */
+final class StableImageCapture {
+    private static final Logger LOGGER = getLogger(StableImageCapture.class.getName());
+
+    private StableImageCapture() {
+    }
+
+    /**
+     * Returns an image captured by {@code capture} after
+     * {@code stableCaptureCount} consecutive captures returned identical
+     * images, or the last captured image when this did not happen within
+     * {@code maxDuration}.
+     *
+     * <p>Waits {@code captureInterval} between two captures.</p>
+     *
+     * <p>When {@code maxDuration} is zero the images of one "stable capture
+     * window" are captured, i.e. {@code stableCaptureCount} images, and the
+     * last captured image is returned, even when the images differ.</p>
+     */
+    static BufferedImage captureStableImage(
+            Supplier<BufferedImage> capture,
+            int stableCaptureCount,
+            Duration captureInterval,
+            Duration maxDuration) {
+
+        boolean singleWindow = maxDuration.isZero();
+        long start = System.nanoTime();
+        long end = start + maxDuration.toNanos();
+        BufferedImage image = capture.get();
+        long hash = ImagePixels.of(image).getContentHash();
+        int identicalCount = 1;
+        int captureCount = 1;
+        while (identicalCount < stableCaptureCount) {
+            long remainingMillis;
+            if (singleWindow) {
+                if (captureCount >= stableCaptureCount) {
+                    LOGGER.fine(String.format(
+                            "Image not stable after %d captures, using last capture", //NON-NLS
+                            captureCount));
+                    return image;
+                }
+                remainingMillis = captureInterval.toMillis();
+            } else {
+                remainingMillis = (end - System.nanoTime()) / 1_000_000;
+                if (remainingMillis <= 0) {
+                    LOGGER.warning(String.format(
+                            "Image not stable after %d captures in %d ms, using last capture", //NON-NLS
+                            captureCount, maxDuration.toMillis()));
+                    return image;
+                }
+            }
+            sleep(Math.min(captureInterval.toMillis(), remainingMillis));
+
+            BufferedImage nextImage = capture.get();
+            long nextHash = ImagePixels.of(nextImage).getContentHash();
+            identicalCount = nextHash == hash ? identicalCount + 1 : 1;
+            captureCount++;
+            image = nextImage;
+            hash = nextHash;
+        }
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(String.format(
+                    "Image stable after %d captures in %d ms", //NON-NLS
+                    captureCount, (System.nanoTime() - start) / 1_000_000));
+        }
+        return image;
+    }
+}
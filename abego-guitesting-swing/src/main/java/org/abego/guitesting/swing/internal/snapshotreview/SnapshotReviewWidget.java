@@ -28,6 +28,7 @@ import org.abego.commons.seq.Seq;
 import org.abego.commons.seq.SeqUtil;
 import org.abego.commons.swing.JComponentUtil;
 import org.abego.guitesting.swing.ScreenCaptureSupport.SnapshotIssue;
+import org.abego.guitesting.swing.internal.screencapture.SnapshotImageCache;
 import org.abego.guitesting.swing.internal.util.SwingUtil;
 import org.abego.guitesting.swing.internal.util.prop.Bindings;
 import org.abego.guitesting.swing.internal.util.prop.DependencyCollector;
@@ -53,6 +54,7 @@ import java.awt.Color;
 import java.awt.Toolkit;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.KeyEvent;
+import java.io.File;
 
 import static java.lang.Boolean.TRUE;
 import static org.abego.commons.io.FileUtil.copyFile;
@@ -174,9 +176,9 @@ class SnapshotReviewWidget implements Widget {
     private void overwriteSnapshot() {
         @Nullable SnapshotIssue currentIssue = getSelectedIssue();
         if (currentIssue != null) {
-            copyFile(
-                    toFile(currentIssue.getActualImage()),
-                    toFile(currentIssue.getOverwriteURL()));
+            File snapshotFile = toFile(currentIssue.getOverwriteURL());
+            copyFile(toFile(currentIssue.getActualImage()), snapshotFile);
+            SnapshotImageCache.getDefault().invalidate(snapshotFile);
             removeIssueAndVariants(currentIssue);
         }
     }
@@ -184,9 +186,9 @@ class SnapshotReviewWidget implements Widget {
     private void addAlternativeSnapshot() {
         @Nullable SnapshotIssue currentIssue = getSelectedIssue();
         if (currentIssue != null) {
-            copyFile(
-                    toFile(currentIssue.getActualImage()),
-                    toFile(currentIssue.getAddAlternativeURL()));
+            File snapshotFile = toFile(currentIssue.getAddAlternativeURL());
+            copyFile(toFile(currentIssue.getActualImage()), snapshotFile);
+            SnapshotImageCache.getDefault().invalidate(snapshotFile);
             removeIssueAndVariants(currentIssue);
         }
     }
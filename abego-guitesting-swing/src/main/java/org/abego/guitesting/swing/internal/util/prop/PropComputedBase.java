@@ -26,6 +26,7 @@ package org.abego.guitesting.swing.internal.util.prop;
 
 import org.abego.event.EventObserver;
 import org.abego.event.PropertyChanged;
+import org.abego.guitesting.swing.QuiescenceTracking;
 import org.eclipse.jdt.annotation.Nullable;
 
 import javax.swing.SwingWorker;
@@ -144,7 +145,7 @@ abstract class PropComputedBase<T> extends PropBase<T> {
 
         public void ensureComputationIsStarted() {
             if (getState() == SwingWorker.StateValue.PENDING) {
-                execute();
+                QuiescenceTracking.execute(this);
             }
         }
 
@@ -227,7 +228,7 @@ abstract class PropComputedBase<T> extends PropBase<T> {
         // Make sure the "old" result computer does not trigger more events
         currentResultComputer.getResult().stopNotifications();
 
-        new ResultComputer().execute();
+        QuiescenceTracking.execute(new ResultComputer());
     }
 
     private DependencyCollector newRecomputeTriggeringObserversForDependencies(List<EventObserver<PropertyChanged>> observers) {
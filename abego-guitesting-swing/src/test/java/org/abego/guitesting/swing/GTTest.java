@@ -31,6 +31,8 @@ import org.abego.commons.lang.RunOnClose;
 import org.abego.commons.seq.Seq;
 import org.abego.commons.swing.JFrameUtil;
 import org.abego.commons.timeout.TimeoutUncheckedException;
+import org.abego.guitesting.swing.ScreenCaptureSupport.CaptureMode;
+import org.abego.guitesting.swing.ScreenCaptureSupport.PngEncoding;
 import org.abego.guitesting.swing.ScreenCaptureSupport.ImageDifference;
 import org.abego.guitesting.swing.internal.PauseUI;
 import org.eclipse.jdt.annotation.Nullable;
@@ -49,13 +51,16 @@ import org.opentest4j.AssertionFailedError;
 import javax.swing.JButton;
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JDialog;
+import javax.swing.JLabel;
 import javax.swing.JFrame;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
+import javax.swing.JPanel;
 import javax.swing.JTextField;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.text.JTextComponent;
 import java.awt.Color;
 import java.awt.Component;
@@ -77,6 +82,8 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -92,6 +99,7 @@ import static org.abego.commons.seq.SeqUtil.newSeq;
 import static org.abego.guitesting.swing.internal.GuiTestingUtil.isBlueish;
 import static org.abego.guitesting.swing.internal.GuiTestingUtil.isGreenish;
 import static org.abego.guitesting.swing.internal.GuiTestingUtil.isRedish;
+import static org.abego.guitesting.swing.internal.GuiTestingUtil.urlToFile;
 import static org.abego.guitesting.swing.internal.screencapture.ImageCompare.imagesAreEqual;
 import static org.abego.guitesting.swing.internal.screencapture.ImageCompare.newImageCompare;
 import static org.abego.guitesting.swing.internal.screencapture.ImageCompareTest.getColors2Image;
@@ -1961,6 +1969,64 @@ public class GTTest {
         Assertions.assertEquals("foo\nbar", MyGT.blackboard().text());
     }
 
+    @Test
+    void waitForIdle_fastPath() {
+        assertFalse(gt.getWaitForIdleFastPath());
+        gt.setWaitForIdleFastPath(true);
+        try {
+            assertTrue(gt.getWaitForIdleFastPath());
+
+            // the event queue is not empty, i.e. we are not idle
+            invokeLater(() -> MyGT.blackboard().add("foo"));
+            invokeLater(() -> MyGT.blackboard().add("bar"));
+
+            gt.waitForIdle();
+
+            Assertions.assertEquals("foo\nbar", MyGT.blackboard().text());
+
+            // already idle
+            gt.waitForIdle();
+
+            Assertions.assertEquals("foo\nbar", MyGT.blackboard().text());
+        } finally {
+            gt.setWaitForIdleFastPath(false);
+        }
+    }
+
+    @Test
+    void waitForIdle_fastPath_eventInProcess() throws InterruptedException {
+        gt.setWaitForIdleFastPath(true);
+        try {
+            gt.waitForIdle();
+
+            // The event dispatch thread is waiting in application code (not
+            // for the next event) and the event queue is empty, i.e. we are
+            // not idle
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            invokeLater(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                MyGT.blackboard().add("foo");
+            });
+            started.await();
+            new Thread(() -> {
+                sleep(200);
+                release.countDown();
+            }).start();
+
+            gt.waitForIdle();
+
+            Assertions.assertEquals("foo", MyGT.blackboard().text());
+        } finally {
+            gt.setWaitForIdleFastPath(false);
+        }
+    }
+
     @Test
     void allWindows_ok() {
         MyGT.showFramesForWindowsTests();
@@ -2222,6 +2288,57 @@ public class GTTest {
         assertMatchesColorsImage(image);
     }
 
+    @Test
+    void captureScreen_Component_Rectangle_paintMode() {
+        JFrame frame = MyGT.showFrameWithColors();
+        assertFrameWithColorsIsDisplayedRetrying(frame);
+
+        BufferedImage image = gt.captureScreen(
+                frame.getContentPane(),
+                new Rectangle(100, 100),
+                CaptureMode.PAINT);
+
+        assertEquals(100, image.getWidth());
+        assertEquals(100, image.getHeight());
+        assertMatchesColorsImage(image);
+    }
+
+    @Test
+    void resetScreenCaptureSupport() {
+        int parallelismThreshold = gt.getImageDifferenceParallelismThreshold();
+        int stableCaptureCount = gt.getNewSnapshotStableCaptureCount();
+        PngEncoding snapshotImagesEncoding = gt.getSnapshotImagesEncoding();
+        PngEncoding reportImagesEncoding = gt.getReportImagesEncoding();
+
+        gt.setImageDifferenceParallelismThreshold(parallelismThreshold + 1);
+        gt.setNewSnapshotStableCaptureCount(stableCaptureCount + 1);
+        gt.setSnapshotImagesEncoding(PngEncoding.DEFAULT);
+        gt.setReportImagesEncoding(PngEncoding.DEFAULT);
+        gt.resetScreenCaptureSupport();
+
+        assertEquals(parallelismThreshold, gt.getImageDifferenceParallelismThreshold());
+        assertEquals(stableCaptureCount, gt.getNewSnapshotStableCaptureCount());
+        assertEquals(snapshotImagesEncoding, gt.getSnapshotImagesEncoding());
+        assertEquals(reportImagesEncoding, gt.getReportImagesEncoding());
+    }
+
+    @Test
+    void captureScreen_Component_captureModeProperty() {
+        JFrame frame = MyGT.showFrameWithColors();
+        assertFrameWithColorsIsDisplayedRetrying(frame);
+
+        assertEquals(CaptureMode.ROBOT, gt.getCaptureMode());
+        try {
+            gt.setCaptureMode(CaptureMode.PAINT);
+
+            assertEquals(CaptureMode.PAINT, gt.getCaptureMode());
+            assertMatchesColorsImage(gt.captureScreen(frame.getContentPane()));
+        } finally {
+            gt.resetScreenCaptureSupport();
+        }
+        assertEquals(CaptureMode.ROBOT, gt.getCaptureMode());
+    }
+
     @Test
     void captureScreen_JFrame_normalBounds_and_innerBounds() {
         JFrame frame = MyGT.showFrameWithTitle();
@@ -2390,6 +2507,37 @@ public class GTTest {
                         || imagesAreEqual(expectedImage2, actualImage));
     }
 
+    @Test
+    void waitUntilScreenshotMatchesImage_recaptureOnRepaint() {
+        JFrame frame = MyGT.showFrameWithColors();
+        Container contentPane = frame.getContentPane();
+        BufferedImage expectedImage = gt.waitUntilScreenshotMatchesImage(
+                contentPane, getColorsImage(), getColorsAtScreen1Image());
+
+        // cover the content pane, and uncover it again after a while
+        JPanel glassPane = new JPanel();
+        glassPane.setBackground(Color.YELLOW);
+        gt.runInEDT(() -> {
+            frame.setGlassPane(glassPane);
+            glassPane.setVisible(true);
+        });
+        gt.waitForIdle();
+        Timer timer = new Timer(500, e -> glassPane.setVisible(false));
+        timer.setRepeats(false);
+
+        gt.setRecaptureOnRepaint(true);
+        try {
+            timer.start();
+            BufferedImage actualImage =
+                    gt.waitUntilScreenshotMatchesImage(contentPane, expectedImage);
+
+            assertTrue(imagesAreEqual(expectedImage, actualImage));
+        } finally {
+            gt.resetScreenCaptureSupport();
+        }
+        assertFalse(gt.getRecaptureOnRepaint());
+    }
+
     @Test
     void waitUntilScreenshotMatchesImage_timeout() {
         JFrame frame = MyGT.showFrameWithColors();
@@ -2405,6 +2553,26 @@ public class GTTest {
         assertIsUnmatchedScreenshotError(error);
     }
 
+    @Test
+    void waitUntilScreenshotMatchesImage_timeout_recaptureOnRepaint() {
+        JFrame frame = MyGT.showFrameWithColors();
+        BufferedImage notReallyExpectedImage = getColors2Image();
+        gt.setTimeout(Duration.ofSeconds(2));
+
+        gt.setRecaptureOnRepaint(true);
+        try {
+            AssertionFailedError error = assertThrows(AssertionFailedError.class,
+                    () -> gt.waitUntilScreenshotMatchesImage(
+                            frame.getContentPane(), notReallyExpectedImage));
+
+            assertIsUnmatchedScreenshotError(error);
+            // the same cause as without recapturing on repaint
+            assertTrue(error.getCause() instanceof TimeoutUncheckedException);
+        } finally {
+            gt.resetScreenCaptureSupport();
+        }
+    }
+
     @Test
     void waitUntilScreenshotMatchesSnapshot_missingScreenshots_dontGenerate() {
         JFrame frame = MyGT.showFrameWithColors();
@@ -2533,6 +2701,104 @@ public class GTTest {
         gt.waitUntilScreenshotMatchesSnapshot(tf, new Rectangle(15, 10));
     }
 
+    @Test
+    void waitUntilScreenshotMatchesSnapshot_ignoredComponents() {
+        JLabel status = new JLabel("ready");
+        JLabel clock = new JLabel("10:00");
+        JPanel panel = newPanelWithStatusAndClock(status, clock);
+
+        runWithSnapshotInTestClasses(
+                "GTTest.waitUntilScreenshotMatchesSnapshot_ignoredComponents-snapshot",
+                name -> {
+                    gt.setGenerateSnapshotIfMissing(true);
+                    gt.waitUntilScreenshotMatchesSnapshot(panel, name, clock);
+                    gt.setGenerateSnapshotIfMissing(false);
+
+                    gt.runInEDT(() -> clock.setText("10:01"));
+                    gt.waitForIdle();
+
+                    gt.waitUntilScreenshotMatchesSnapshot(panel, name, clock);
+                    gt.waitUntilScreenshotMatchesSnapshot(
+                            panel, null, name, c -> c == clock);
+
+                    // without ignoring the clock the screenshot does not match
+                    gt.setTimeout(Duration.ofSeconds(1));
+                    assertThrows(AssertionFailedError.class,
+                            () -> gt.waitUntilScreenshotMatchesSnapshot(panel, name));
+                });
+    }
+
+    @Test
+    void waitUntilScreenshotMatchesSnapshot_ignoredComponentMoves() {
+        JLabel status = new JLabel("ready");
+        JLabel clock = new JLabel("10:00");
+        JPanel panel = newPanelWithStatusAndClock(status, clock);
+
+        runWithSnapshotInTestClasses(
+                "GTTest.waitUntilScreenshotMatchesSnapshot_ignoredComponentMoves-snapshot",
+                name -> {
+                    gt.setGenerateSnapshotIfMissing(true);
+                    gt.waitUntilScreenshotMatchesSnapshot(panel, name, clock);
+                    gt.setGenerateSnapshotIfMissing(false);
+
+                    // The clock moves away, and comes back with another text
+                    // when the status is "ready" again. Only the ignored area
+                    // following the clock lets the screenshot match.
+                    gt.runInEDT(() -> {
+                        status.setText("busy");
+                        clock.setLocation(120, 10);
+                    });
+                    gt.waitForIdle();
+                    Timer timer = new Timer(500, e -> {
+                        status.setText("ready");
+                        clock.setText("10:01");
+                        clock.setLocation(70, 10);
+                    });
+                    timer.setRepeats(false);
+                    timer.start();
+
+                    gt.waitUntilScreenshotMatchesSnapshot(panel, name, clock);
+                });
+    }
+
+    private static JPanel newPanelWithStatusAndClock(JLabel status, JLabel clock) {
+        JPanel panel = new JPanel(null);
+        panel.setPreferredSize(new Dimension(200, 40));
+        status.setBounds(10, 10, 50, 20);
+        clock.setBounds(70, 10, 50, 20);
+        panel.add(status);
+        panel.add(clock);
+        gt.showInFrame(panel, new Point(100, 100), null);
+        gt.waitForIdle();
+        return panel;
+    }
+
+    /**
+     * Runs the {@code test} with the (absolute) name of the snapshot with
+     * the {@code simpleName}, with snapshots written to "target/test-classes".
+     *
+     * <p>As "target/test-classes" is on the class path a snapshot generated
+     * by the {@code test} is found by later calls of the same test.</p>
+     */
+    private static void runWithSnapshotInTestClasses(
+            String simpleName, Consumer<String> test) {
+        File snapshotsDirectory = new File(
+                urlToFile(valueOrFail(GTTest.class.getResource("")).toString()),
+                "snap-shots");
+        File imageFile = new File(snapshotsDirectory, simpleName + "@0.png");
+        File testResourcesDirectory = gt.getTestResourcesDirectory();
+        //noinspection ResultOfMethodCallIgnored
+        imageFile.delete();
+        gt.setTestResourcesDirectory(new File("target/test-classes"));
+        try {
+            test.accept("/org/abego/guitesting/swing/" + simpleName);
+        } finally {
+            gt.setTestResourcesDirectory(testResourcesDirectory);
+            //noinspection ResultOfMethodCallIgnored
+            imageFile.delete();
+        }
+    }
+
     private void callWaitUntilSnapshotMatchesSnapshot(JTextField tf, String name) {
         gt.waitUntilScreenshotMatchesSnapshot(tf, name);
     }
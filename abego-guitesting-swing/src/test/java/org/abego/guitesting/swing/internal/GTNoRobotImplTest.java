@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal;
+
+import org.abego.guitesting.swing.GT;
+import org.abego.guitesting.swing.HeadlessGuiTestingException;
+import org.abego.guitesting.swing.ScreenCaptureSupport.CaptureMode;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import static org.abego.guitesting.swing.internal.GTNoRobotImpl.newGTNoRobot;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GTNoRobotImplTest {
+    private final GT gt = newGTNoRobot();
+
+    private static JPanel newRedPanelWithBlueLabel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBackground(Color.RED);
+        JLabel label = new JLabel();
+        label.setOpaque(true);
+        label.setBackground(Color.BLUE);
+        label.setPreferredSize(new Dimension(10, 10));
+        panel.add(label, BorderLayout.NORTH);
+        panel.setPreferredSize(new Dimension(40, 30));
+        return panel;
+    }
+
+    @Test
+    void getCaptureMode() {
+        assertEquals(CaptureMode.PAINT, gt.getCaptureMode());
+    }
+
+    @Test
+    void captureScreen_Component() {
+        JPanel panel = newRedPanelWithBlueLabel();
+
+        BufferedImage image = gt.captureScreen(panel);
+
+        // the (not displayable) panel is sized and laid out before painting
+        assertEquals(40, image.getWidth());
+        assertEquals(30, image.getHeight());
+        assertEquals(Color.BLUE.getRGB(), image.getRGB(20, 5));
+        assertEquals(Color.RED.getRGB(), image.getRGB(20, 20));
+    }
+
+    @Test
+    void captureScreen_Component_Rectangle() {
+        JPanel panel = newRedPanelWithBlueLabel();
+
+        BufferedImage image = gt.captureScreen(panel, new Rectangle(5, 5, 10, 10));
+
+        assertEquals(10, image.getWidth());
+        assertEquals(10, image.getHeight());
+        assertEquals(Color.BLUE.getRGB(), image.getRGB(0, 0));
+        assertEquals(Color.RED.getRGB(), image.getRGB(0, 5));
+    }
+
+    @Test
+    void captureScreen_Rectangle() {
+        assertThrows(HeadlessGuiTestingException.class,
+                () -> gt.captureScreen(new Rectangle(10, 10)));
+    }
+
+    @Test
+    void waitUntilScreenshotMatchesImage() {
+        JPanel panel = newRedPanelWithBlueLabel();
+        BufferedImage expectedImage = gt.captureScreen(panel);
+
+        BufferedImage image = gt.waitUntilScreenshotMatchesImage(panel, expectedImage);
+
+        assertEquals(expectedImage.getWidth(), image.getWidth());
+        assertEquals(expectedImage.getHeight(), image.getHeight());
+        assertFalse(gt.imageDifference(expectedImage, image).imagesAreDifferent());
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal;
+
+import org.abego.commons.timeout.TimeoutUncheckedException;
+import org.abego.guitesting.swing.PollingSupport.PollingStatistics;
+import org.abego.guitesting.swing.PollingSupport.PollingStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.abego.commons.polling.Polling.newPollingService;
+import static org.abego.commons.timeout.Timeout.newTimeoutService;
+import static org.abego.guitesting.swing.internal.PollingSupportImpl.newPollingSupport;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PollingSupportImplTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private static PollingSupportImpl newPollingSupportForTest() {
+        return newPollingSupport(newPollingService(newTimeoutService()));
+    }
+
+    @Test
+    void pollingStrategy_default() {
+        PollingSupportImpl polling = newPollingSupportForTest();
+
+        assertEquals(PollingStrategy.FIXED, polling.getPollingStrategy());
+
+        polling.setPollingStrategy(PollingStrategy.BACKOFF);
+
+        assertEquals(PollingStrategy.BACKOFF, polling.getPollingStrategy());
+    }
+
+    @Test
+    void poll_allStrategies() {
+        PollingSupportImpl polling = newPollingSupportForTest();
+
+        for (PollingStrategy strategy : PollingStrategy.values()) {
+            AtomicInteger calls = new AtomicInteger();
+
+            int result = polling.poll(calls::incrementAndGet, i -> i >= 5, TIMEOUT, strategy);
+
+            assertEquals(5, result);
+            PollingStatistics statistics = polling.getPollingStatistics(strategy);
+            assertEquals(1, statistics.getPollsCount());
+            assertEquals(0, statistics.getTimeoutsCount());
+            assertEquals(5, statistics.getIterationsCount());
+            assertEquals(5, statistics.getMaxIterationsCount());
+            // 5 iterations go into the "4 to 7" bucket
+            assertArrayEquals(new long[]{0, 0, 1}, statistics.getIterationsHistogram());
+        }
+    }
+
+    @Test
+    void poll_testsResultOncePerIteration() {
+        PollingSupportImpl polling = newPollingSupportForTest();
+
+        for (PollingStrategy strategy : PollingStrategy.values()) {
+            AtomicInteger calls = new AtomicInteger();
+            AtomicInteger tests = new AtomicInteger();
+
+            polling.poll(calls::incrementAndGet,
+                    i -> tests.incrementAndGet() > 0 && i >= 3, TIMEOUT, strategy);
+
+            assertEquals(3, calls.get());
+            assertEquals(3, tests.get());
+            assertEquals(3, polling.getPollingStatistics(strategy).getIterationsCount());
+        }
+    }
+
+    @Test
+    void poll_backoffIsFastForSoonTrueConditions() {
+        PollingSupportImpl polling = newPollingSupportForTest();
+        long end = System.nanoTime() + Duration.ofMillis(2).toNanos();
+
+        long start = System.nanoTime();
+        polling.poll(System::nanoTime, t -> t >= end, TIMEOUT, PollingStrategy.BACKOFF);
+        long millis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        // with doubling intervals we overshoot the 2 ms by at most about
+        // the last interval (plus scheduling delays)
+        assertTrue(millis < 50, "took " + millis + " ms");
+    }
+
+    @Test
+    void poll_timeout() {
+        PollingSupportImpl polling = newPollingSupportForTest();
+
+        assertThrows(TimeoutUncheckedException.class, () ->
+                polling.poll(() -> false, b -> b, Duration.ofMillis(20), PollingStrategy.SPIN_THEN_SLEEP));
+
+        PollingStatistics statistics =
+                polling.getPollingStatistics(PollingStrategy.SPIN_THEN_SLEEP);
+        assertEquals(1, statistics.getPollsCount());
+        assertEquals(1, statistics.getTimeoutsCount());
+        assertTrue(statistics.getIterationsCount() > 1);
+        assertTrue(statistics.getPollingTime().toMillis() >= 20);
+    }
+
+    @Test
+    void pollNoFail_timeout() {
+        PollingSupportImpl polling = newPollingSupportForTest();
+        AtomicInteger calls = new AtomicInteger();
+
+        int result = polling.pollNoFail(calls::incrementAndGet, i -> i < 0, Duration.ofMillis(20), PollingStrategy.BACKOFF);
+
+        assertEquals(calls.get(), result);
+        assertEquals(1, polling.getPollingStatistics(PollingStrategy.BACKOFF).getTimeoutsCount());
+    }
+
+    @Test
+    void resetPollingStatistics() {
+        PollingSupportImpl polling = newPollingSupportForTest();
+        polling.poll(() -> true, b -> b, TIMEOUT, PollingStrategy.BACKOFF);
+
+        polling.resetPollingStatistics();
+
+        PollingStatistics statistics = polling.getPollingStatistics(PollingStrategy.BACKOFF);
+        assertEquals(0, statistics.getPollsCount());
+        assertEquals(0, statistics.getIterationsCount());
+        assertEquals(0, statistics.getIterationsHistogram().length);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal;
+
+import org.abego.commons.timeout.TimeoutUncheckedException;
+import org.abego.guitesting.swing.QuiescenceTracking;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuiescenceTrackerTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void waitForQuiescence_nothingPending() {
+        QuiescenceTracker tracker = QuiescenceTracker.getDefault();
+
+        tracker.waitForQuiescence(TIMEOUT);
+
+        assertFalse(tracker.hasPendingActivities());
+    }
+
+    @Test
+    void waitForQuiescence_timer() {
+        AtomicBoolean fired = new AtomicBoolean();
+        Timer timer = new Timer(100, e -> fired.set(true));
+        timer.setRepeats(false);
+
+        QuiescenceTracking.start(timer);
+        QuiescenceTracker.getDefault().waitForQuiescence(TIMEOUT);
+
+        assertTrue(fired.get());
+        assertFalse(timer.isRunning());
+    }
+
+    @Test
+    void waitForQuiescence_worker() {
+        AtomicBoolean done = new AtomicBoolean();
+        SwingWorker<String, Object> worker = new SwingWorker<String, Object>() {
+            @Override
+            protected String doInBackground() {
+                sleep(100);
+                return "foo";
+            }
+
+            @Override
+            protected void done() {
+                done.set(true);
+            }
+        };
+
+        QuiescenceTracking.execute(worker);
+        QuiescenceTracker.getDefault().waitForQuiescence(TIMEOUT);
+
+        assertTrue(done.get());
+        assertFalse(QuiescenceTracker.getDefault().hasPendingActivities());
+    }
+
+    @Test
+    void trackBeforeExecute_workerAlreadyDone() throws Exception {
+        SwingWorker<String, Object> worker = new SwingWorker<String, Object>() {
+            @Override
+            protected String doInBackground() {
+                return "foo";
+            }
+        };
+        worker.execute();
+        worker.get();
+        QuiescenceTracker.getDefault().waitForQuiescence(TIMEOUT);
+
+        QuiescenceTracker.getDefault().trackBeforeExecute(worker);
+
+        assertFalse(QuiescenceTracker.getDefault().hasPendingActivities());
+    }
+
+    @Test
+    void waitForQuiescence_activitiesStartingActivities() {
+        AtomicBoolean secondFired = new AtomicBoolean();
+        Timer second = new Timer(50, e -> secondFired.set(true));
+        second.setRepeats(false);
+        Timer first = new Timer(50, e -> QuiescenceTracking.start(second));
+        first.setRepeats(false);
+
+        QuiescenceTracking.start(first);
+        QuiescenceTracker.getDefault().waitForQuiescence(TIMEOUT);
+
+        assertTrue(secondFired.get());
+    }
+
+    @Test
+    void waitForQuiescence_timeout() {
+        Timer timer = new Timer(10, e -> {
+        });
+        QuiescenceTracking.start(timer);
+        try {
+            assertThrows(TimeoutUncheckedException.class, () ->
+                    QuiescenceTracker.getDefault().waitForQuiescence(Duration.ofMillis(100)));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    void waitForQuiescenceAtMost_repeatingTimer() {
+        Timer timer = new Timer(10, e -> {
+        });
+        QuiescenceTracking.start(timer);
+        try {
+            assertFalse(QuiescenceTracker.getDefault()
+                    .waitForQuiescenceAtMost(Duration.ofMillis(100)));
+        } finally {
+            timer.stop();
+        }
+
+        assertTrue(QuiescenceTracker.getDefault().waitForQuiescenceAtMost(TIMEOUT));
+    }
+}
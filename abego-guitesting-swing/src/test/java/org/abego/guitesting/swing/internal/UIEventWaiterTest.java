@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal;
+
+import org.abego.commons.timeout.TimeoutUncheckedException;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import java.awt.Toolkit;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.abego.guitesting.swing.internal.UIEventWaiter.newUIEventWaiter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UIEventWaiterTest {
+    private static final Duration NO_FALLBACK_POLL = Duration.ofHours(1);
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void poll_alreadyTrue() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = newUIEventWaiter(NO_FALLBACK_POLL).poll(
+                () -> {
+                    calls.incrementAndGet();
+                    return "foo";
+                },
+                "foo"::equals,
+                TIMEOUT);
+
+        assertEquals("foo", result);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void waitUntil_reevaluatesAfterUIEvent() {
+        UIEventWaiter waiter = newUIEventWaiter(NO_FALLBACK_POLL);
+        JPanel panel = new JPanel();
+        AtomicBoolean done = new AtomicBoolean();
+
+        // add a component in the EDT, creating a UI event
+        new Thread(() -> {
+            sleep(100);
+            SwingUtilities.invokeLater(() -> {
+                done.set(true);
+                panel.add(new JLabel());
+            });
+        }).start();
+        long start = System.nanoTime();
+        waiter.waitUntil(done::get, TIMEOUT);
+
+        // (without the event the wait would only end by the fallback poll,
+        // after an hour, or when timing out)
+        assertTrue(Duration.ofNanos(System.nanoTime() - start)
+                .compareTo(TIMEOUT.dividedBy(2)) < 0);
+        assertEquals(1, panel.getComponentCount());
+    }
+
+    @Test
+    void waitUntil_fallbackPoll() {
+        UIEventWaiter waiter = newUIEventWaiter(Duration.ofMillis(10));
+        AtomicBoolean done = new AtomicBoolean();
+
+        // change the state without UI events
+        new Thread(() -> {
+            sleep(50);
+            done.set(true);
+        }).start();
+        waiter.waitUntil(done::get, TIMEOUT);
+
+        assertTrue(done.get());
+    }
+
+    @Test
+    void waitUntil_listensOnlyWhileWaiting() {
+        UIEventWaiter waiter = newUIEventWaiter(Duration.ofMillis(10));
+        int listenersCount = awtEventListenersCount();
+        AtomicInteger listenersCountWhileWaiting = new AtomicInteger();
+
+        waiter.waitUntil(() -> {
+            listenersCountWhileWaiting.set(awtEventListenersCount());
+            return true;
+        }, TIMEOUT);
+
+        assertEquals(listenersCount + 1, listenersCountWhileWaiting.get());
+        assertEquals(listenersCount, awtEventListenersCount());
+    }
+
+    @Test
+    void pollNoFail_timeout() {
+        UIEventWaiter waiter = newUIEventWaiter(Duration.ofMillis(10));
+        AtomicInteger calls = new AtomicInteger();
+
+        int result = waiter.pollNoFail(calls::incrementAndGet, i -> i < 0, Duration.ofMillis(50));
+
+        assertEquals(calls.get(), result);
+    }
+
+    @Test
+    void waitUntil_timeout() {
+        UIEventWaiter waiter = newUIEventWaiter(Duration.ofMillis(10));
+
+        assertThrows(TimeoutUncheckedException.class,
+                () -> waiter.waitUntil(() -> false, Duration.ofMillis(50)));
+    }
+
+    private static int awtEventListenersCount() {
+        return Toolkit.getDefaultToolkit().getAWTEventListeners().length;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -28,13 +28,21 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.junit.jupiter.api.Test;
 
 import javax.imageio.ImageIO;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
 
 import static org.abego.guitesting.swing.internal.screencapture.ImageCompare.newImageCompare;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ImageCompareTest {
 
@@ -87,6 +95,41 @@ public class ImageCompareTest {
         return readResourceImage("colorsLarger.png");
     }
 
+    /**
+     * Returns a new image of the {@code type}, with pixel {@code (x,y)} set
+     * to the (INT_ARGB) value {@code pixelAt.applyAsInt(x, y)}.
+     *
+     * <p>The pixels are set row by row, from left to right.</p>
+     */
+    public static BufferedImage newImage(
+            int width, int height, int type, IntBinaryOperator pixelAt) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, pixelAt.applyAsInt(x, y));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Returns a new image of the {@code type} with a color gradient,
+     * starting with the (INT_ARGB) value {@code argb} at {@code (0,0)}.
+     */
+    public static BufferedImage newGradientImage(
+            int width, int height, int type, int argb) {
+        return newImage(width, height, type,
+                (x, y) -> argb + x * 0x010203 + y * 0x030201);
+    }
+
+    /**
+     * Returns a new {@link BufferedImage#TYPE_INT_RGB} image filled with the
+     * color {@code rgb}.
+     */
+    public static BufferedImage newSolidImage(int width, int height, int rgb) {
+        return newImage(width, height, BufferedImage.TYPE_INT_RGB, (x, y) -> rgb);
+    }
+
     private static BufferedImage readResourceImage(String name) {
         try {
             //noinspection ConstantConditions
@@ -117,4 +160,232 @@ public class ImageCompareTest {
         assertNull(diffMask2);
     }
 
+    @Test
+    void differenceMask_intImageVsOtherImageType() {
+        BufferedImage image1 = toImageOfType(getColorsImage(), BufferedImage.TYPE_INT_RGB);
+        BufferedImage image2 = toImageOfType(getColors2Image(), BufferedImage.TYPE_3BYTE_BGR);
+
+        ImageCompare imageCompare = newImageCompare();
+
+        @Nullable
+        BufferedImage diffMask =
+                imageCompare.differenceMask(image1, image2);
+        assertNotNull(diffMask);
+
+        @Nullable
+        BufferedImage diffMask2 =
+                imageCompare.differenceMask(getColorsColors2DifferenceMask(), diffMask);
+
+        assertNull(diffMask2);
+        assertNull(imageCompare.differenceMask(
+                image1, toImageOfType(image1, BufferedImage.TYPE_INT_ARGB)));
+    }
+
+    @Test
+    void differenceMask_subimage() {
+        BufferedImage image = toImageOfType(getColorsImage(), BufferedImage.TYPE_INT_RGB);
+        int w = image.getWidth();
+        int h = image.getHeight();
+
+        BufferedImage larger = new BufferedImage(w + 5, h + 3, BufferedImage.TYPE_INT_RGB);
+        larger.getGraphics().drawImage(image, 2, 1, null);
+        BufferedImage subimage = larger.getSubimage(2, 1, w, h);
+
+        assertNull(newImageCompare().differenceMask(image, subimage));
+    }
+
+    @Test
+    void imagesAreDifferent() {
+        ImageCompare imageCompare = newImageCompare();
+
+        assertTrue(imageCompare.imagesAreDifferent(getColorsImage(), getColors2Image()));
+        assertTrue(imageCompare.imagesAreDifferent(getColorsImage(), getColorsLargerImage()));
+        assertFalse(imageCompare.imagesAreDifferent(getColorsImage(), getColorsImage()));
+    }
+
+    @Test
+    void differenceMask_parallel() {
+        ImageCompare sequentialCompare = newImageCompare(
+                newOptions(Integer.MAX_VALUE));
+        ImageCompare parallelCompare = newImageCompare(
+                newOptions(0));
+
+        BufferedImage image1 = getColorsImage();
+        BufferedImage image2 = getColorsLargerImage();
+
+        @Nullable
+        BufferedImage sequentialDiffMask =
+                sequentialCompare.differenceMask(image1, image2);
+        @Nullable
+        BufferedImage parallelDiffMask =
+                parallelCompare.differenceMask(image1, image2);
+        assertNotNull(sequentialDiffMask);
+        assertNotNull(parallelDiffMask);
+
+        assertNull(newImageCompare().differenceMask(sequentialDiffMask, parallelDiffMask));
+        assertTrue(parallelCompare.imagesAreDifferent(image1, image2));
+        assertFalse(parallelCompare.imagesAreDifferent(image1, image1));
+    }
+
+    @Test
+    void differenceMask_ignoredRectangles() {
+        BufferedImage image1 = getColorsImage();
+        BufferedImage image2 = toImageOfType(image1, BufferedImage.TYPE_INT_RGB);
+        // a "clock" at (10,20)-(14,22) and a single pixel at (0,0)
+        for (int y = 20; y < 23; y++) {
+            for (int x = 10; x < 15; x++) {
+                image2.setRGB(x, y, ~image2.getRGB(x, y));
+            }
+        }
+        image2.setRGB(0, 0, ~image2.getRGB(0, 0));
+
+        ImageCompare ignoreClock = newImageCompare(new ImageCompare.Options() {
+            @Override
+            public List<Rectangle> getIgnoredRectangles() {
+                return Collections.singletonList(new Rectangle(8, 19, 10, 5));
+            }
+        });
+        ImageCompare ignoreClockAndPixel = newImageCompare(new ImageCompare.Options() {
+            @Override
+            public List<Rectangle> getIgnoredRectangles() {
+                return Arrays.asList(
+                        new Rectangle(8, 19, 10, 5),
+                        new Rectangle(-5, -5, 6, 6));
+            }
+        });
+
+        @Nullable
+        BufferedImage diffMask = ignoreClock.differenceMask(image1, image2);
+        assertNotNull(diffMask);
+        assertEquals(0xFF000000, diffMask.getRGB(0, 0));
+        for (int y = 0; y < diffMask.getHeight(); y++) {
+            for (int x = 0; x < diffMask.getWidth(); x++) {
+                if (x != 0 || y != 0) {
+                    assertEquals(0x00FFFFFF, diffMask.getRGB(x, y));
+                }
+            }
+        }
+
+        assertTrue(ignoreClock.imagesAreDifferent(image1, image2));
+        assertFalse(ignoreClockAndPixel.imagesAreDifferent(image1, image2));
+        assertNull(ignoreClockAndPixel.differenceMask(image1, image2));
+    }
+
+    @Test
+    void differences() {
+        BufferedImage image1 = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        BufferedImage image2 = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        // region 1: a diagonal line (3,1), (4,2), (5,3)
+        image2.setRGB(3, 1, 0xFFFFFF);
+        image2.setRGB(4, 2, 0xFFFFFF);
+        image2.setRGB(5, 3, 0xFFFFFF);
+        // region 2: a block (10,5)-(12,6)
+        for (int y = 5; y < 7; y++) {
+            for (int x = 10; x < 13; x++) {
+                image2.setRGB(x, y, 0x808080);
+            }
+        }
+        // a pixel with a difference within the tolerance (10%)
+        image2.setRGB(0, 9, 0x080808);
+
+        ImageCompare imageCompare = newImageCompare(new ImageCompare.Options() {
+            @Override
+            public int getTolerancePercentage() {
+                return 10;
+            }
+        });
+        PixelDifferences differences = imageCompare.differences(image1, image2);
+
+        assertTrue(differences.hasDifferentPixels());
+        assertEquals(9, differences.getDifferentPixelsCount());
+        assertEquals(4.5, differences.getDifferentPixelsPercentage(), 0.0001);
+        assertEquals(100, differences.getMaxDifferencePercentage());
+        assertEquals(Arrays.asList(
+                new Rectangle(3, 1, 3, 3),
+                new Rectangle(10, 5, 3, 2)),
+                differences.getDifferenceRectangles());
+
+        @Nullable
+        BufferedImage diffMask = imageCompare.differenceMask(differences);
+        assertNotNull(diffMask);
+        assertNull(newImageCompare().differenceMask(
+                diffMask, imageCompare.differenceMask(image1, image2)));
+
+        PixelDifferences noDifferences = imageCompare.differences(image1, image1);
+        assertFalse(noDifferences.hasDifferentPixels());
+        assertEquals(0, noDifferences.getMaxDifferencePercentage());
+        assertTrue(noDifferences.getDifferenceRectangles().isEmpty());
+        assertNull(imageCompare.differenceMask(noDifferences));
+    }
+
+    @Test
+    void differences_mergedRectangles() {
+        // An "L" and a pixel in the bounding rectangle of the "L"
+        BufferedImage image1 = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        BufferedImage image2 = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 5; y++) {
+            image2.setRGB(0, y, 0xFFFFFF);
+        }
+        for (int x = 0; x < 5; x++) {
+            image2.setRGB(x, 4, 0xFFFFFF);
+        }
+        image2.setRGB(3, 1, 0xFFFFFF);
+
+        PixelDifferences differences = newImageCompare().differences(image1, image2);
+
+        assertEquals(10, differences.getDifferentPixelsCount());
+        assertEquals(Collections.singletonList(new Rectangle(0, 0, 5, 5)),
+                differences.getDifferenceRectangles());
+    }
+
+    @Test
+    void indexOfMatchingImage() {
+        ImagePixels colors = ImagePixels.of(getColorsImage());
+        ImagePixels colors2 = ImagePixels.of(getColors2Image());
+        ImagePixels colorsLarger = ImagePixels.of(getColorsLargerImage());
+        ImagePixels colorsInt = ImagePixels.of(
+                toImageOfType(getColorsImage(), BufferedImage.TYPE_INT_RGB));
+
+        for (ImageCompare imageCompare : new ImageCompare[]{
+                newImageCompare(newOptions(Integer.MAX_VALUE)),
+                newImageCompare(newOptions(0))}) {
+            assertEquals(-1, imageCompare.indexOfMatchingImage(
+                    colors, new ImagePixels[0]));
+            assertEquals(0, imageCompare.indexOfMatchingImage(
+                    colors, new ImagePixels[]{colorsInt}));
+            assertEquals(2, imageCompare.indexOfMatchingImage(
+                    colors, new ImagePixels[]{colors2, colorsLarger, colorsInt}));
+            assertEquals(1, imageCompare.indexOfMatchingImage(
+                    colors, new ImagePixels[]{colors2, colorsInt, colors}));
+            assertEquals(-1, imageCompare.indexOfMatchingImage(
+                    colors, new ImagePixels[]{colors2, colorsLarger}));
+        }
+    }
+
+    private static ImageCompare.Options newOptions(int parallelismThreshold) {
+        return new ImageCompare.Options() {
+            @Override
+            public int getIgnoredBorderSize() {
+                return 1;
+            }
+
+            @Override
+            public int getIgnoredCornerSize() {
+                return 10;
+            }
+
+            @Override
+            public int getParallelismThreshold() {
+                return parallelismThreshold;
+            }
+        };
+    }
+
+    private static BufferedImage toImageOfType(BufferedImage image, int imageType) {
+        BufferedImage result = new BufferedImage(
+                image.getWidth(), image.getHeight(), imageType);
+        result.getGraphics().drawImage(image, 0, 0, null);
+        return result;
+    }
+
 }
@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.abego.guitesting.swing.internal.screencapture.ImageCompareTest.newGradientImage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ImagePixelsTest {
+
+    private static long contentHash(BufferedImage image) {
+        return ImagePixels.of(image).getContentHash();
+    }
+
+    @Test
+    void getContentHash_sameContent() {
+        BufferedImage image = newGradientImage(21, 10, BufferedImage.TYPE_INT_RGB, 0xff112233);
+
+        assertEquals(contentHash(image), contentHash(
+                newGradientImage(21, 10, BufferedImage.TYPE_INT_RGB, 0xff112233)));
+        // other image types
+        assertEquals(contentHash(image), contentHash(
+                newGradientImage(21, 10, BufferedImage.TYPE_INT_ARGB, 0xff112233)));
+        assertEquals(contentHash(image), contentHash(
+                newGradientImage(21, 10, BufferedImage.TYPE_3BYTE_BGR, 0xff112233)));
+        // alpha channel is ignored
+        assertEquals(contentHash(image), contentHash(
+                newGradientImage(21, 10, BufferedImage.TYPE_INT_ARGB, 0x80112233)));
+        // sub image
+        BufferedImage largerImage = newGradientImage(30, 20, BufferedImage.TYPE_INT_RGB, 0xff112233);
+        assertEquals(contentHash(image), contentHash(largerImage.getSubimage(0, 0, 21, 10)));
+    }
+
+    @Test
+    void getContentHash_differentContent() {
+        BufferedImage image = newGradientImage(21, 10, BufferedImage.TYPE_INT_RGB, 0xff112233);
+        long hash = contentHash(image);
+
+        // any changed pixel changes the hash
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                BufferedImage otherImage =
+                        newGradientImage(21, 10, BufferedImage.TYPE_INT_RGB, 0xff112233);
+                otherImage.setRGB(x, y, otherImage.getRGB(x, y) ^ 1);
+
+                assertNotEquals(hash, contentHash(otherImage));
+            }
+        }
+    }
+
+    @Test
+    void getContentHash_differentSize() {
+        // (all pixels are black)
+        long hash = contentHash(new BufferedImage(4, 1, BufferedImage.TYPE_INT_RGB));
+
+        assertNotEquals(hash, contentHash(new BufferedImage(1, 4, BufferedImage.TYPE_INT_RGB)));
+        assertNotEquals(hash, contentHash(new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB)));
+        assertNotEquals(hash, contentHash(new BufferedImage(8, 1, BufferedImage.TYPE_INT_RGB)));
+    }
+
+    @Test
+    void getFullContentHash_sameContent() {
+        BufferedImage image = newGradientImage(21, 10, BufferedImage.TYPE_INT_RGB, 0xff112233);
+        long hash = ImagePixels.of(image).getFullContentHash();
+
+        // opaque images of other types
+        assertEquals(hash, ImagePixels.of(
+                newGradientImage(21, 10, BufferedImage.TYPE_INT_ARGB, 0xff112233)).getFullContentHash());
+        assertEquals(hash, ImagePixels.of(
+                newGradientImage(21, 10, BufferedImage.TYPE_3BYTE_BGR, 0xff112233)).getFullContentHash());
+    }
+
+    @Test
+    void getFullContentHash_differentAlpha() {
+        BufferedImage opaque = newGradientImage(21, 10, BufferedImage.TYPE_INT_ARGB, 0xff112233);
+        BufferedImage translucent = newGradientImage(21, 10, BufferedImage.TYPE_INT_ARGB, 0x80112233);
+
+        assertEquals(contentHash(opaque), contentHash(translucent));
+        assertNotEquals(ImagePixels.of(opaque).getFullContentHash(),
+                ImagePixels.of(translucent).getFullContentHash());
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.abego.guitesting.swing.ScreenCaptureSupport.PngEncoding;
+import org.abego.guitesting.swing.ScreenCaptureSupport.PngEncodingStatistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Random;
+import java.util.zip.Adler32;
+
+import static org.abego.guitesting.swing.internal.screencapture.ImageCompareTest.newImage;
+import static org.abego.guitesting.swing.internal.screencapture.PngEncoder.pngEncoder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PngEncoderTest {
+
+    private static BufferedImage newNoisyImage(int width, int height, int type) {
+        Random random = new Random(42);
+        // some "noise" on a gradient, with varying alpha
+        return newImage(width, height, type,
+                (x, y) -> (x * 0x010203 + y * 0x030201 + random.nextInt(4))
+                        | ((x + y) & 0xff) << 24);
+    }
+
+    private static BufferedImage encodeAndDecode(
+            BufferedImage image, PngEncoding encoding) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        pngEncoder(encoding).write(image, out);
+        BufferedImage result = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        assertNotNull(result);
+        return result;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    void write_rgb() throws IOException {
+        BufferedImage image = newNoisyImage(21, 10, BufferedImage.TYPE_INT_RGB);
+
+        BufferedImage fast = encodeAndDecode(image, PngEncoding.FAST);
+        BufferedImage compact = encodeAndDecode(image, PngEncoding.COMPACT);
+        BufferedImage imageIO = encodeAndDecode(image, PngEncoding.DEFAULT);
+
+        assertSamePixels(image, fast);
+        assertSamePixels(image, compact);
+        assertSamePixels(image, imageIO);
+        assertFalse(fast.getColorModel().hasAlpha());
+    }
+
+    @Test
+    void write_argb() throws IOException {
+        BufferedImage image = newNoisyImage(21, 10, BufferedImage.TYPE_INT_ARGB);
+
+        BufferedImage fast = encodeAndDecode(image, PngEncoding.FAST);
+        BufferedImage compact = encodeAndDecode(image, PngEncoding.COMPACT);
+        BufferedImage imageIO = encodeAndDecode(image, PngEncoding.DEFAULT);
+
+        assertSamePixels(image, fast);
+        assertSamePixels(image, compact);
+        assertSamePixels(image, imageIO);
+        assertTrue(fast.getColorModel().hasAlpha());
+    }
+
+    @Test
+    void write_otherImageTypeAndSubimage() throws IOException {
+        BufferedImage image = newNoisyImage(40, 30, BufferedImage.TYPE_3BYTE_BGR);
+        BufferedImage subimage = newNoisyImage(40, 30, BufferedImage.TYPE_INT_RGB)
+                .getSubimage(5, 7, 20, 10);
+
+        assertSamePixels(image, encodeAndDecode(image, PngEncoding.FAST));
+        assertSamePixels(subimage, encodeAndDecode(subimage, PngEncoding.COMPACT));
+    }
+
+    @Test
+    void write_largeImage() throws IOException {
+        // large enough to be compressed in multiple segments
+        BufferedImage image = newNoisyImage(1000, 1200, BufferedImage.TYPE_INT_RGB);
+
+        assertSamePixels(image, encodeAndDecode(image, PngEncoding.FAST));
+        assertSamePixels(image, encodeAndDecode(image, PngEncoding.COMPACT));
+    }
+
+    @Test
+    void writeImage_metrics(@TempDir File dir) {
+        PngEncoder encoder = pngEncoder(PngEncoding.FAST);
+        long imageCount = encoder.getImageCount();
+        long outputSize = encoder.getOutputSize();
+        File file = new File(dir, "image.png");
+
+        encoder.writeImage(newNoisyImage(21, 10, BufferedImage.TYPE_INT_RGB), file);
+
+        assertEquals(imageCount + 1, encoder.getImageCount());
+        assertEquals(outputSize + file.length(), encoder.getOutputSize());
+    }
+
+    @Test
+    void getStatistics(@TempDir File dir) {
+        PngEncoder encoder = pngEncoder(PngEncoding.COMPACT);
+        PngEncoder.resetAllStatistics();
+        File file = new File(dir, "image.png");
+
+        encoder.writeImage(newNoisyImage(21, 10, BufferedImage.TYPE_INT_RGB), file);
+        PngEncodingStatistics statistics = encoder.getStatistics();
+        encoder.writeImage(newNoisyImage(21, 10, BufferedImage.TYPE_INT_RGB), file);
+
+        // the statistics don't change with later images
+        assertEquals(1, statistics.getImagesCount());
+        assertEquals(file.length(), statistics.getOutputSize());
+        assertFalse(statistics.getEncodingTime().isNegative());
+        assertEquals(2, encoder.getStatistics().getImagesCount());
+        assertEquals(0, pngEncoder(PngEncoding.FAST).getStatistics().getImagesCount());
+
+        PngEncoder.resetAllStatistics();
+
+        assertEquals(0, encoder.getStatistics().getImagesCount());
+        assertEquals(0, encoder.getStatistics().getOutputSize());
+        assertEquals(Duration.ZERO, encoder.getStatistics().getEncodingTime());
+    }
+
+    @Test
+    void combineAdler32() {
+        byte[] bytes = new byte[100_000];
+        new Random(42).nextBytes(bytes);
+        Adler32 all = new Adler32();
+        all.update(bytes);
+        Adler32 first = new Adler32();
+        first.update(bytes, 0, 30_000);
+        Adler32 second = new Adler32();
+        second.update(bytes, 30_000, 70_000);
+
+        assertEquals(all.getValue(), PngEncoder.combineAdler32(
+                first.getValue(), second.getValue(), 70_000));
+        assertEquals(all.getValue(), PngEncoder.combineAdler32(
+                1, all.getValue(), bytes.length));
+    }
+}
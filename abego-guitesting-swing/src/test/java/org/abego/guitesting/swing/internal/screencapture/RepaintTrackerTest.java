@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.abego.guitesting.swing.GT;
+import org.abego.guitesting.swing.GuiTesting;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JLabel;
+import javax.swing.RepaintManager;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static javax.swing.SwingUtilities.invokeLater;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RepaintTrackerTest {
+    private static final GT gt = GuiTesting.newGT();
+
+    private static JLabel showLabel() {
+        JLabel label = new JLabel("foo");
+        gt.showInFrame(label);
+        gt.waitForIdle();
+        return label;
+    }
+
+    @AfterEach
+    void tearDown() {
+        gt.cleanup();
+    }
+
+    @Test
+    void trackRepaints_keepsRepaintManagerConfiguration() {
+        JLabel label = showLabel();
+        RepaintManager repaintManager = RepaintManager.currentManager(label);
+        boolean doubleBufferingEnabled = repaintManager.isDoubleBufferingEnabled();
+        Dimension doubleBufferMaximumSize = repaintManager.getDoubleBufferMaximumSize();
+        repaintManager.setDoubleBufferingEnabled(false);
+        repaintManager.setDoubleBufferMaximumSize(new Dimension(123, 45));
+        try {
+            try (@Nullable RepaintTracker tracker = RepaintTracker.trackRepaints(label)) {
+                assertNotNull(tracker);
+                RepaintManager trackingRepaintManager = RepaintManager.currentManager(label);
+                assertNotSame(repaintManager, trackingRepaintManager);
+                assertFalse(trackingRepaintManager.isDoubleBufferingEnabled());
+                assertEquals(new Dimension(123, 45),
+                        trackingRepaintManager.getDoubleBufferMaximumSize());
+            }
+            assertSame(repaintManager, RepaintManager.currentManager(label));
+        } finally {
+            repaintManager.setDoubleBufferingEnabled(doubleBufferingEnabled);
+            repaintManager.setDoubleBufferMaximumSize(doubleBufferMaximumSize);
+        }
+    }
+
+    @Test
+    void trackRepaints_swapsRepaintManagerInEDT() throws InterruptedException {
+        JLabel label = showLabel();
+        RepaintManager repaintManager = RepaintManager.currentManager(label);
+
+        // keep the event dispatch thread busy (e.g. painting)
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        invokeLater(() -> {
+            busy.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        busy.await();
+        AtomicReference<RepaintTracker> trackerRef = new AtomicReference<>();
+        Thread thread = new Thread(() -> trackerRef.set(RepaintTracker.trackRepaints(label)));
+        thread.start();
+        thread.join(200);
+
+        // not replaced while the event dispatch thread is busy
+        assertSame(repaintManager, RepaintManager.currentManager(label));
+
+        release.countDown();
+        thread.join();
+        try (@Nullable RepaintTracker tracker = trackerRef.get()) {
+            assertNotNull(tracker);
+            assertNotSame(repaintManager, RepaintManager.currentManager(label));
+        }
+        assertSame(repaintManager, RepaintManager.currentManager(label));
+    }
+
+    @Test
+    void waitForRepaint() {
+        JLabel label = showLabel();
+
+        try (@Nullable RepaintTracker tracker = RepaintTracker.trackRepaints(label)) {
+            assertNotNull(tracker);
+
+            gt.runInEDT(() -> label.setText("bar"));
+            @Nullable Rectangle repaintedArea = tracker.waitForRepaint(Duration.ofSeconds(5));
+
+            assertNotNull(repaintedArea);
+            assertFalse(repaintedArea.isEmpty());
+        }
+    }
+}
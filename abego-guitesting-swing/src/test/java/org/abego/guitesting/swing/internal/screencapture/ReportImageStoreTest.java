@@ -0,0 +1,200 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.abego.guitesting.swing.ScreenCaptureSupport.PngEncoding;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.abego.guitesting.swing.internal.screencapture.ImageCompareTest.newImage;
+import static org.abego.guitesting.swing.internal.screencapture.ImageCompareTest.newSolidImage;
+import static org.abego.guitesting.swing.internal.screencapture.PngEncoder.pngEncoder;
+import static org.abego.guitesting.swing.internal.screencapture.ReportImageStore.reportImageStore;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportImageStoreTest {
+
+    private static String[] contentFileNames(File imagesDir) {
+        String[] result = new File(imagesDir, ReportImageStore.CONTENT_DIRECTORY_NAME).list();
+        assertNotNull(result);
+        Arrays.sort(result);
+        return result;
+    }
+
+    @Test
+    void reportImageStore_sameDirectorySameStore(@TempDir File tempDir) {
+        assertSame(reportImageStore(tempDir),
+                reportImageStore(new File(tempDir.getAbsolutePath())));
+    }
+
+    @Test
+    void storeImage(@TempDir File imagesDir) throws IOException {
+        ReportImageStore store = reportImageStore(imagesDir);
+        PngEncoder encoder = pngEncoder(PngEncoding.FAST);
+        long imageCount = encoder.getImageCount();
+
+        String red = store.storeImage(newSolidImage(40, 30, Color.RED.getRGB()), encoder);
+        String redAgain = store.storeImage(newSolidImage(40, 30, Color.RED.getRGB()), encoder);
+        String blue = store.storeImage(newSolidImage(40, 30, Color.BLUE.getRGB()), encoder);
+
+        // an image with the same content is written only once
+        assertEquals(red, redAgain);
+        assertNotEquals(red, blue);
+        assertEquals(2, encoder.getImageCount() - imageCount);
+        assertEquals(2, contentFileNames(imagesDir).length);
+
+        assertTrue(red.startsWith(ReportImageStore.CONTENT_DIRECTORY_NAME + "/"));
+        BufferedImage image = ImageIO.read(new File(imagesDir, red));
+        assertEquals(40, image.getWidth());
+        assertEquals(Color.RED.getRGB(), image.getRGB(5, 5));
+    }
+
+    @Test
+    void storeImage_differentAlpha(@TempDir File imagesDir) throws IOException {
+        ReportImageStore store = reportImageStore(imagesDir);
+        PngEncoder encoder = pngEncoder(PngEncoding.FAST);
+        BufferedImage opaque = newImage(40, 30, BufferedImage.TYPE_INT_ARGB,
+                (x, y) -> Color.RED.getRGB());
+        // same RGB values, but transparent
+        BufferedImage transparent = newImage(40, 30, BufferedImage.TYPE_INT_ARGB,
+                (x, y) -> Color.RED.getRGB() & 0xFFFFFF);
+
+        String opaquePath = store.storeImage(opaque, encoder);
+        String transparentPath = store.storeImage(transparent, encoder);
+
+        assertNotEquals(opaquePath, transparentPath);
+        assertEquals(0xFF,
+                ImageIO.read(new File(imagesDir, opaquePath)).getRGB(5, 5) >>> 24);
+        assertEquals(0,
+                ImageIO.read(new File(imagesDir, transparentPath)).getRGB(5, 5) >>> 24);
+    }
+
+    @Test
+    void storeImage_reusesFilesOfEarlierRun(@TempDir File imagesDir) {
+        BufferedImage image = newSolidImage(40, 30, Color.GREEN.getRGB());
+        String fileName = ReportImageStore.getContentFileName(image);
+        File file = new File(imagesDir,
+                ReportImageStore.CONTENT_DIRECTORY_NAME + "/" + fileName);
+        pngEncoder(PngEncoding.DEFAULT).writeImage(image, file);
+        long length = file.length();
+        PngEncoder encoder = pngEncoder(PngEncoding.FAST);
+        long imageCount = encoder.getImageCount();
+
+        String path = reportImageStore(imagesDir).storeImage(image, encoder);
+
+        assertEquals(file, new File(imagesDir, path));
+        assertEquals(length, file.length());
+        assertEquals(0, encoder.getImageCount() - imageCount);
+    }
+
+    @Test
+    void storeThumbnail(@TempDir File imagesDir) throws IOException {
+        ReportImageStore store = reportImageStore(imagesDir);
+        PngEncoder encoder = pngEncoder(PngEncoding.FAST);
+        BufferedImage image = new BufferedImage(1000, 300, BufferedImage.TYPE_INT_RGB);
+        String imagePath = store.storeImage(image, encoder);
+        long imageCount = encoder.getImageCount();
+
+        String thumbnailPath = store.storeThumbnail(image, imagePath, encoder);
+        String thumbnailPathAgain = store.storeThumbnail(image, imagePath, encoder);
+
+        assertEquals(thumbnailPath, thumbnailPathAgain);
+        assertEquals(1, encoder.getImageCount() - imageCount);
+        assertTrue(thumbnailPath.startsWith(ReportImageStore.THUMBNAILS_DIRECTORY_NAME + "/"));
+        BufferedImage thumbnail = ImageIO.read(new File(imagesDir, thumbnailPath));
+        assertEquals(240, thumbnail.getWidth());
+        assertEquals(72, thumbnail.getHeight());
+    }
+
+    @Test
+    void storeThumbnail_smallImage(@TempDir File imagesDir) {
+        ReportImageStore store = reportImageStore(imagesDir);
+        PngEncoder encoder = pngEncoder(PngEncoding.FAST);
+        BufferedImage image = newSolidImage(40, 30, Color.RED.getRGB());
+        String imagePath = store.storeImage(image, encoder);
+
+        assertEquals(imagePath, store.storeThumbnail(image, imagePath, encoder));
+    }
+
+    @Test
+    void newThumbnail() {
+        BufferedImage image = new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB);
+        // a small area (smaller than the scale factor of 20) remains visible
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(1003, 503, 12, 12);
+        g.dispose();
+
+        BufferedImage thumbnail = ReportImageStore.newThumbnail(image, 100, 100);
+
+        assertEquals(100, thumbnail.getWidth());
+        assertEquals(50, thumbnail.getHeight());
+        int maxRed = 0;
+        for (int y = 0; y < thumbnail.getHeight(); y++) {
+            for (int x = 0; x < thumbnail.getWidth(); x++) {
+                maxRed = Math.max(maxRed, new Color(thumbnail.getRGB(x, y)).getRed());
+            }
+        }
+        assertTrue(maxRed > 0);
+    }
+
+    @Test
+    void writeReferences(@TempDir File imagesDir) throws IOException {
+        ReportImageStore store = reportImageStore(imagesDir);
+
+        store.writeReferences("a.b.Test.foo-snapshot", "content/1.png",
+                Arrays.asList(
+                        new ExpectedAndDifferenceFile("content/2.png", "content/3.png"),
+                        new ExpectedAndDifferenceFile("content/4.png", "content/3.png")));
+
+        File file = new File(imagesDir, "a.b.Test.foo-snapshot-images.properties");
+        assertEquals(file, store.getReferencesFile("a.b.Test.foo-snapshot"));
+        Properties references = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            references.load(in);
+        }
+        assertEquals(5, references.size());
+        assertEquals("content/1.png", references.getProperty("actualImage"));
+        assertEquals("content/2.png", references.getProperty("expectedImage@0"));
+        assertEquals("content/3.png", references.getProperty("differenceImage@0"));
+        assertEquals("content/4.png", references.getProperty("expectedImage@1"));
+        assertEquals("content/3.png", references.getProperty("differenceImage@1"));
+    }
+}
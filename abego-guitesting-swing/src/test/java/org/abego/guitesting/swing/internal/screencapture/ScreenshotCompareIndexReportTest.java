@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.abego.guitesting.swing.internal.screencapture.ScreenshotCompareIndexReport.Entry;
+import org.abego.guitesting.swing.internal.screencapture.ScreenshotCompareIndexReport.ImageLink;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.abego.guitesting.swing.internal.screencapture.ScreenshotCompareIndexReport.indexReport;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScreenshotCompareIndexReportTest {
+
+    private static Entry newEntry(String snapshotName, long differentPixelsCount) {
+        return new Entry(snapshotName,
+                snapshotName + "-failed.html",
+                "2020-01-01T00:00:00Z",
+                differentPixelsCount,
+                differentPixelsCount / 100.0,
+                0,
+                1,
+                new ImageLink("images/content/a.png", "images/thumbnails/a.png"),
+                new ImageLink("images/content/e.png", "images/thumbnails/e.png"),
+                new ImageLink("images/content/d.png", "images/thumbnails/d.png"));
+    }
+
+    private static String readIndexFile(ScreenshotCompareIndexReport report) throws IOException {
+        return new String(Files.readAllBytes(report.getIndexFile().toPath()),
+                StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void indexReport_sameDirectorySameReport(@TempDir File tempDir) {
+        assertSame(indexReport(tempDir),
+                indexReport(new File(tempDir.getAbsolutePath())));
+    }
+
+    @Test
+    void addEntry(@TempDir File tempDir) throws IOException {
+        ScreenshotCompareIndexReport report = indexReport(tempDir);
+
+        report.addEntry(newEntry("Test.small-snapshot", 10));
+
+        assertEquals(new File(tempDir, "index.html"), report.getIndexFile());
+        String html = readIndexFile(report);
+        assertTrue(html.contains("<h1>Unmatched screenshots (1)</h1>"));
+        assertTrue(html.contains("<a href=\"Test.small-snapshot-failed.html\">"));
+        // thumbnails are loaded lazily and link to the full size images
+        assertTrue(html.contains("<a href=\"images/content/a.png\"><img src=\"images/thumbnails/a.png\" alt=\"actual image\" loading=\"lazy\"></a>"));
+
+        // the index is updated with every new entry
+        report.addEntry(newEntry("Test.large-snapshot", 1000));
+        report.addEntry(newEntry("Test.medium-snapshot", 100));
+
+        html = readIndexFile(report);
+        assertTrue(html.contains("<h1>Unmatched screenshots (3)</h1>"));
+        // sorted by the number of different pixels, largest first
+        int large = html.indexOf("Test.large-snapshot");
+        int medium = html.indexOf("Test.medium-snapshot");
+        int small = html.indexOf("Test.small-snapshot");
+        assertTrue(large < medium && medium < small);
+    }
+
+    @Test
+    void addEntry_replacesEntryOfSameSnapshot(@TempDir File tempDir) {
+        ScreenshotCompareIndexReport report = indexReport(tempDir);
+
+        report.addEntry(newEntry("Test.foo-snapshot", 10));
+        report.addEntry(newEntry("Test.foo-snapshot", 20));
+
+        assertEquals(1, report.getEntries().size());
+        assertEquals(20, report.getEntries().get(0).differentPixelsCount);
+    }
+}
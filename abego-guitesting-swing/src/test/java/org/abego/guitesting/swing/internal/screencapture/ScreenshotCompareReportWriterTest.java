@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.abego.guitesting.swing.internal.screencapture.ScreenshotCompareReportWriter.newScreenshotCompareReportWriter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScreenshotCompareReportWriterTest {
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void flush() {
+        ScreenshotCompareReportWriter writer = newScreenshotCompareReportWriter(2);
+        AtomicInteger doneCount = new AtomicInteger();
+
+        // more tasks than threads and queue capacity
+        for (int i = 0; i < 50; i++) {
+            writer.submit(() -> {
+                sleep(5);
+                doneCount.incrementAndGet();
+            });
+        }
+        writer.flush();
+
+        assertEquals(50, doneCount.get());
+    }
+
+    @Test
+    void flush_failingTask() {
+        ScreenshotCompareReportWriter writer = newScreenshotCompareReportWriter(1);
+        AtomicInteger doneCount = new AtomicInteger();
+
+        writer.submit(() -> {
+            throw new IllegalStateException("Failing task (expected)");
+        });
+        writer.submit(doneCount::incrementAndGet);
+        writer.flush();
+
+        assertEquals(1, doneCount.get());
+    }
+
+    @Test
+    void flush_noTasks() {
+        ScreenshotCompareReportWriter writer = newScreenshotCompareReportWriter(1);
+
+        writer.flush();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.net.URL;
+
+import static org.abego.guitesting.swing.internal.GuiTestingUtil.writeImage;
+import static org.abego.guitesting.swing.internal.screencapture.SnapshotImageCache.newSnapshotImageCache;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotImageCacheTest {
+
+    private static URL writeNewImage(File file, int width) throws Exception {
+        writeImage(new BufferedImage(width, 10, BufferedImage.TYPE_INT_RGB), file);
+        return file.toURI().toURL();
+    }
+
+    @Test
+    void getImage(@TempDir File dir) throws Exception {
+        SnapshotImageCache cache = newSnapshotImageCache(10);
+        URL url = writeNewImage(new File(dir, "foo@0.png"), 21);
+
+        BufferedImage image = cache.getImage(url);
+
+        assertEquals(21, image.getWidth());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        assertSame(image, cache.getImage(url));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void getImage_modifiedFile(@TempDir File dir) throws Exception {
+        SnapshotImageCache cache = newSnapshotImageCache(10);
+        File file = new File(dir, "foo@0.png");
+        URL url = writeNewImage(file, 21);
+        cache.getImage(url);
+
+        writeNewImage(file, 22);
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        BufferedImage image = cache.getImage(url);
+
+        assertEquals(22, image.getWidth());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void invalidate(@TempDir File dir) throws Exception {
+        SnapshotImageCache cache = newSnapshotImageCache(10);
+        File file = new File(dir, "foo@0.png");
+        URL url = writeNewImage(file, 21);
+        URL otherURL = writeNewImage(new File(dir, "foo@1.png"), 21);
+        BufferedImage image = cache.getImage(url);
+        BufferedImage otherImage = cache.getImage(otherURL);
+
+        // a file with the same name in another directory, e.g. in the
+        // test resources directory
+        cache.invalidate(new File(new File(dir, "other"), "foo@0.png"));
+
+        assertNotSame(image, cache.getImage(url));
+        assertSame(otherImage, cache.getImage(otherURL));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    void getImage_maxEntries(@TempDir File dir) throws Exception {
+        SnapshotImageCache cache = newSnapshotImageCache(2);
+        URL url0 = writeNewImage(new File(dir, "foo@0.png"), 21);
+        URL url1 = writeNewImage(new File(dir, "foo@1.png"), 21);
+        URL url2 = writeNewImage(new File(dir, "foo@2.png"), 21);
+        BufferedImage image0 = cache.getImage(url0);
+        BufferedImage image1 = cache.getImage(url1);
+        // url0 is now the most recently used one
+        assertSame(image0, cache.getImage(url0));
+
+        // removes url1, the least recently used one
+        cache.getImage(url2);
+
+        assertSame(image0, cache.getImage(url0));
+        assertNotSame(image1, cache.getImage(url1));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+    }
+}
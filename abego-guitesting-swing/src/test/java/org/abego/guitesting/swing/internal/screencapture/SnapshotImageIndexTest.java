@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.abego.guitesting.swing.internal.GuiTestingUtil.writeImage;
+import static org.abego.guitesting.swing.internal.screencapture.ImageCompareTest.newGradientImage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class SnapshotImageIndexTest {
+
+    private static File newImagesDir(File dir) {
+        File result = new File(dir, "snap-shots");
+        assertTrue(result.mkdir());
+        return result;
+    }
+
+    private static File indexFile(File dir) {
+        return new File(dir, "reports/snapshot-index/snap-shots.txt");
+    }
+
+    @Test
+    void getEntry(@TempDir File dir) {
+        File imagesDir = newImagesDir(dir);
+        BufferedImage image = newGradientImage(21, 10, BufferedImage.TYPE_INT_RGB, 0x112233);
+        File file = new File(imagesDir, "foo@0.png");
+        writeImage(image, file);
+
+        SnapshotImageIndex index = SnapshotImageIndex.load(imagesDir, indexFile(dir));
+        SnapshotImageIndex.Entry entry = index.getEntry(file);
+
+        assertNotNull(entry);
+        assertEquals(21, entry.getWidth());
+        assertEquals(10, entry.getHeight());
+        assertEquals(ImagePixels.of(image).getContentHash(), entry.getContentHash());
+    }
+
+    @Test
+    void getEntry_missingFile(@TempDir File dir) {
+        File imagesDir = newImagesDir(dir);
+        SnapshotImageIndex index = SnapshotImageIndex.load(imagesDir, indexFile(dir));
+
+        assertNull(index.getEntry(new File(imagesDir, "foo@0.png")));
+    }
+
+    @Test
+    void getIndex_onePerDirectory(@TempDir File dir) {
+        File imagesDir = newImagesDir(dir);
+
+        SnapshotImageIndex index = SnapshotImageIndex.getIndex(imagesDir, indexFile(dir));
+
+        assertSame(index, SnapshotImageIndex.getIndex(imagesDir, indexFile(dir)));
+    }
+
+    @Test
+    void save_and_load(@TempDir File dir) {
+        File imagesDir = newImagesDir(dir);
+        BufferedImage image = newGradientImage(21, 10, BufferedImage.TYPE_INT_RGB, 0x112233);
+        File file = new File(imagesDir, "foo@0.png");
+        writeImage(image, file);
+        SnapshotImageIndex index = SnapshotImageIndex.load(imagesDir, indexFile(dir));
+        index.getEntry(file);
+
+        index.save();
+
+        assertTrue(index.getIndexFile().isFile());
+        assertEquals(1, imagesDir.list().length); // nothing added to the images directory
+        SnapshotImageIndex.Entry entry = SnapshotImageIndex.load(imagesDir, indexFile(dir))
+                .getEntry(file, () -> fail("image must not be read"));
+        assertNotNull(entry);
+        assertEquals(ImagePixels.of(image).getContentHash(), entry.getContentHash());
+    }
+
+    @Test
+    void save_onlyWhenModified(@TempDir File dir) {
+        File imagesDir = newImagesDir(dir);
+        File file = new File(imagesDir, "foo@0.png");
+        writeImage(newGradientImage(21, 10, BufferedImage.TYPE_INT_RGB, 0x112233), file);
+        SnapshotImageIndex index = SnapshotImageIndex.load(imagesDir, indexFile(dir));
+        index.getEntry(file);
+        index.save();
+        assertTrue(index.getIndexFile().delete());
+
+        index.getEntry(file);
+        index.save();
+        SnapshotImageIndex.load(imagesDir, indexFile(dir)).save();
+
+        assertFalse(index.getIndexFile().exists());
+    }
+
+    @Test
+    void getEntry_touchedFile(@TempDir File dir) {
+        File imagesDir = newImagesDir(dir);
+        File file = new File(imagesDir, "foo@0.png");
+        writeImage(newGradientImage(21, 10, BufferedImage.TYPE_INT_RGB, 0x112233), file);
+        SnapshotImageIndex index = SnapshotImageIndex.load(imagesDir, indexFile(dir));
+        SnapshotImageIndex.Entry entry = index.getEntry(file);
+        assertNotNull(entry);
+        index.save();
+
+        // e.g. a checkout changes the modification time, but not the content
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        SnapshotImageIndex.Entry newEntry = SnapshotImageIndex.load(imagesDir, indexFile(dir))
+                .getEntry(file, () -> fail("image must not be read"));
+
+        assertNotNull(newEntry);
+        assertEquals(entry.getContentHash(), newEntry.getContentHash());
+    }
+
+    @Test
+    void getEntry_modifiedFile(@TempDir File dir) {
+        File imagesDir = newImagesDir(dir);
+        File file = new File(imagesDir, "foo@0.png");
+        writeImage(newGradientImage(21, 10, BufferedImage.TYPE_INT_RGB, 0x112233), file);
+        SnapshotImageIndex index = SnapshotImageIndex.load(imagesDir, indexFile(dir));
+        SnapshotImageIndex.Entry entry = index.getEntry(file);
+        assertNotNull(entry);
+        index.save();
+
+        BufferedImage newImage = newGradientImage(22, 10, BufferedImage.TYPE_INT_RGB, 0x445566);
+        writeImage(newImage, file);
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        SnapshotImageIndex.Entry newEntry = index.getEntry(file);
+
+        assertNotNull(newEntry);
+        assertEquals(22, newEntry.getWidth());
+        assertNotEquals(entry.getContentHash(), newEntry.getContentHash());
+        assertEquals(ImagePixels.of(newImage).getContentHash(), newEntry.getContentHash());
+    }
+
+    @Test
+    void load_removesEntriesOfDeletedFiles(@TempDir File dir) {
+        File imagesDir = newImagesDir(dir);
+        File file = new File(imagesDir, "foo@0.png");
+        writeImage(newGradientImage(21, 10, BufferedImage.TYPE_INT_RGB, 0x112233), file);
+        SnapshotImageIndex index = SnapshotImageIndex.load(imagesDir, indexFile(dir));
+        index.getEntry(file);
+        index.save();
+        long indexLength = index.getIndexFile().length();
+
+        assertTrue(file.delete());
+        SnapshotImageIndex.load(imagesDir, indexFile(dir)).save();
+
+        assertTrue(index.getIndexFile().length() < indexLength);
+    }
+
+    @Test
+    void load_corruptIndexFile(@TempDir File dir) throws Exception {
+        File imagesDir = newImagesDir(dir);
+        File file = new File(imagesDir, "foo@0.png");
+        BufferedImage image = newGradientImage(21, 10, BufferedImage.TYPE_INT_RGB, 0x112233);
+        writeImage(image, file);
+        File indexFile = indexFile(dir);
+        assertTrue(indexFile.getParentFile().mkdirs());
+        Files.write(indexFile.toPath(),
+                "garbage\nfoo@0.png\t1\n".getBytes(StandardCharsets.UTF_8));
+
+        SnapshotImageIndex.Entry entry = SnapshotImageIndex.load(imagesDir, indexFile)
+                .getEntry(file);
+
+        assertNotNull(entry);
+        assertEquals(ImagePixels.of(image).getContentHash(), entry.getContentHash());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static org.abego.guitesting.swing.internal.GuiTestingUtil.writeImage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotManifestTest {
+
+    private static File writeNewImage(File directory, String fileName) {
+        File file = new File(directory, fileName);
+        writeImage(new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB), file);
+        return file;
+    }
+
+    @Test
+    void ofDirectory(@TempDir File dir) throws Exception {
+        File file = writeNewImage(dir, "Foo@0.png");
+        writeNewImage(dir, "Foo@1.png");
+        writeNewImage(dir, "Foo@3.png");
+        writeNewImage(dir, "FooBar@0.png");
+
+        SnapshotManifest manifest = SnapshotManifest.ofDirectory(dir);
+
+        assertEquals(2, manifest.getImagesCount("Foo"));
+        assertEquals(1, manifest.getImagesCount("FooBar"));
+        assertEquals(0, manifest.getImagesCount("Bar"));
+        assertEquals(file.toURI().toURL(), manifest.getImageURL("Foo@0.png"));
+        assertNull(manifest.getImageURL("Foo@2.png"));
+    }
+
+    @Test
+    void ofDirectory_missingDirectory(@TempDir File dir) {
+        SnapshotManifest manifest = SnapshotManifest.ofDirectory(new File(dir, "missing"));
+
+        assertEquals(0, manifest.getImagesCount("Foo"));
+    }
+
+    @Test
+    void ofResourceDirectory(@TempDir File dir) throws Exception {
+        File root1 = new File(dir, "root1");
+        File root2 = new File(dir, "root2");
+        File snapshots1 = new File(root1, "a/b/snap-shots");
+        File snapshots2 = new File(root2, "a/b/snap-shots");
+        File file1 = writeNewImage(snapshots1, "Foo@0.png");
+        writeNewImage(snapshots2, "Foo@0.png");
+        File file2 = writeNewImage(snapshots2, "Foo@1.png");
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{
+                root1.toURI().toURL(), root2.toURI().toURL()}, null)) {
+
+            SnapshotManifest manifest =
+                    SnapshotManifest.ofResourceDirectory(classLoader, "a/b/snap-shots");
+
+            assertNotNull(manifest);
+            assertEquals(2, manifest.getImagesCount("Foo"));
+            // as with getResource the first directory wins
+            assertEquals(file1.toURI().toURL(), manifest.getImageURL("Foo@0.png"));
+            assertEquals(classLoader.getResource("a/b/snap-shots/Foo@0.png"),
+                    manifest.getImageURL("Foo@0.png"));
+            assertEquals(file2.toURI().toURL(), manifest.getImageURL("Foo@1.png"));
+
+            // unknown resource directory
+            assertNull(SnapshotManifest.ofResourceDirectory(classLoader, "c/snap-shots"));
+        }
+    }
+
+    @Test
+    void ofResourceDirectory_addedImage(@TempDir File dir) throws Exception {
+        File snapshots = new File(dir, "a/snap-shots");
+        writeNewImage(snapshots, "Foo@0.png");
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{
+                dir.toURI().toURL()}, null)) {
+            SnapshotManifest manifest =
+                    SnapshotManifest.ofResourceDirectory(classLoader, "a/snap-shots");
+            assertNotNull(manifest);
+            assertEquals(1, manifest.getImagesCount("Foo"));
+
+            writeNewImage(snapshots, "Foo@1.png");
+            // make sure the directory's modification time changed
+            assertTrue(snapshots.setLastModified(snapshots.lastModified() + 2000));
+            manifest = SnapshotManifest.ofResourceDirectory(classLoader, "a/snap-shots");
+
+            assertNotNull(manifest);
+            assertEquals(2, manifest.getImagesCount("Foo"));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.guitesting.swing.internal.screencapture;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.abego.guitesting.swing.internal.screencapture.ImageCompareTest.newSolidImage;
+import static org.abego.guitesting.swing.internal.screencapture.StableImageCapture.captureStableImage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StableImageCaptureTest {
+    private static final Duration CAPTURE_INTERVAL = Duration.ofMillis(1);
+    private static final Duration MAX_DURATION = Duration.ofSeconds(10);
+
+    @Test
+    void captureStableImage_staticImage() {
+        AtomicInteger captures = new AtomicInteger();
+
+        BufferedImage image = captureStableImage(() -> {
+            captures.incrementAndGet();
+            return newSolidImage(10, 8, 0xff0000);
+        }, 3, CAPTURE_INTERVAL, MAX_DURATION);
+
+        assertEquals(3, captures.get());
+        assertEquals(0xff0000, image.getRGB(3, 4) & 0xffffff);
+    }
+
+    @Test
+    void captureStableImage_changingImage() {
+        // the image changes with the first 4 captures, and is then stable
+        AtomicInteger captures = new AtomicInteger();
+
+        BufferedImage image = captureStableImage(
+                () -> newSolidImage(10, 8, Math.min(captures.incrementAndGet(), 5)),
+                3, CAPTURE_INTERVAL, MAX_DURATION);
+
+        assertEquals(7, captures.get());
+        assertEquals(5, image.getRGB(3, 4) & 0xffffff);
+    }
+
+    @Test
+    void captureStableImage_neverStable() {
+        AtomicInteger captures = new AtomicInteger();
+        BufferedImage[] lastImage = new BufferedImage[1];
+
+        long start = System.nanoTime();
+        BufferedImage image = captureStableImage(() -> {
+            lastImage[0] = newSolidImage(10, 8, captures.incrementAndGet());
+            return lastImage[0];
+        }, 3, CAPTURE_INTERVAL, Duration.ofMillis(50));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertSame(lastImage[0], image);
+        assertTrue(captures.get() > 1);
+        assertTrue(millis >= 50, "took " + millis + " ms");
+    }
+
+    @Test
+    void captureStableImage_zeroMaxDuration() {
+        AtomicInteger captures = new AtomicInteger();
+        BufferedImage[] lastImage = new BufferedImage[1];
+        Logger logger = Logger.getLogger(StableImageCapture.class.getName());
+        List<LogRecord> warnings = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+                    warnings.add(record);
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        logger.addHandler(handler);
+        try {
+            BufferedImage image = captureStableImage(() -> {
+                lastImage[0] = newSolidImage(10, 8, captures.incrementAndGet());
+                return lastImage[0];
+            }, 3, CAPTURE_INTERVAL, Duration.ZERO);
+
+            assertSame(lastImage[0], image);
+            assertEquals(3, captures.get());
+            assertTrue(warnings.isEmpty());
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+}